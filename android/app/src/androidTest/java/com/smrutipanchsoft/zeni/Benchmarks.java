@@ -0,0 +1,84 @@
+package com.smrutipanchsoft.zeni;
+
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Helpers for the on-device measurements. Results are printed one line each
+ * and sent as instrumentation status, so they show up in
+ * `./gradlew connectedAndroidTest` logs and `adb shell am instrument -r` output.
+ */
+final class Benchmarks {
+
+    private static final String TAG = "ZeniBenchmark";
+
+    // Keeps a measured object graph reachable until retainedBytes() is done with it
+    private static volatile Object retained;
+
+    private Benchmarks() {
+    }
+
+    static void report(String line) {
+        Log.i(TAG, line);
+        System.out.println(line);
+        Bundle status = new Bundle();
+        status.putString("stream", line + "\n");
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+    }
+
+    /**
+     * Run an asynchronous call and wait for the value it hands its callback.
+     */
+    static <T> T await(Consumer<ConversationStore.Callback<T>> call) {
+        AtomicReference<T> result = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        call.accept(value -> {
+            result.set(value);
+            done.countDown();
+        });
+        try {
+            assertTrue("Timed out", done.await(60, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+        return result.get();
+    }
+
+    /**
+     * Java heap held by what build returns, after collecting garbage on both
+     * sides of the call.
+     */
+    static long retainedBytes(Supplier<Object> build) {
+        long before = usedHeap();
+        retained = build.get();
+        long after = usedHeap();
+        retained = null;
+        return Math.max(0, after - before);
+    }
+
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    static long median(long[] samples) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,85 @@
+package com.smrutipanchsoft.zeni;
+
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.os.SystemClock;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Scripted drag of the overlay bubble: how many window layout updates (Binder
+ * calls into the system server) it costs, and the frame times while dragging
+ * and snapping. Before WindowLayoutScheduler every move request was an
+ * updateViewLayout call, so "requests" is the uncoalesced IPC count and
+ * "updates" the coalesced one.
+ *
+ * ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=com.smrutipanchsoft.zeni.BubbleDragBenchmarkTest
+ */
+@RunWith(AndroidJUnit4.class)
+public class BubbleDragBenchmarkTest {
+
+    // UiDevice injects one move every 5 ms - several per frame at 60-120 Hz
+    private static final int DRAG_STEPS = 200;
+    private static final long SETTLE_MS = 1000;
+
+    private OverlayHarness overlay;
+
+    @Before
+    public void setUp() {
+        overlay = new OverlayHarness();
+        overlay.grantOverlayPermission();
+        overlay.start();
+    }
+
+    @After
+    public void tearDown() {
+        overlay.stop();
+        overlay.close();
+    }
+
+    @Test
+    public void scriptedDragMakesAtMostOneLayoutUpdatePerFrame() {
+        Rect bubble = overlay.findBubble().getVisibleBounds();
+        Bundle before = windowLayout();
+
+        int width = overlay.device.getDisplayWidth();
+        int height = overlay.device.getDisplayHeight();
+        assertTrue(overlay.device.drag(bubble.centerX(), bubble.centerY(),
+                width / 2, height * 2 / 3, DRAG_STEPS));
+        // Let the fling snap to the edge finish
+        SystemClock.sleep(SETTLE_MS);
+
+        Bundle stats = overlay.request(OverlayIpc.MSG_FRAME_STATS);
+        assertNotNull(stats);
+        Bundle after = stats.getBundle("windowLayout");
+        long requests = (long) (after.getDouble("requests") - before.getDouble("requests"));
+        long updates = (long) (after.getDouble("updates") - before.getDouble("updates"));
+        Bundle frames = stats.getBundle("bubbleDrag");
+
+        Benchmarks.report("📊 drag of " + DRAG_STEPS + " moves: " + requests + " layout requests (uncoalesced IPC), "
+                + updates + " updateViewLayout calls");
+        Benchmarks.report("📊 drag frames: " + (long) frames.getDouble("frames") + " frames, p50 "
+                + (long) frames.getDouble("p50Ms") + " ms, p95 " + (long) frames.getDouble("p95Ms")
+                + " ms, p99 " + (long) frames.getDouble("p99Ms") + " ms, janky " + (long) frames.getDouble("janky"));
+
+        assertTrue("no layout requests", requests > 0);
+        assertTrue(updates + " updates for " + requests + " requests", updates < requests);
+        // At most one update per frame, with a frame of slack at each end
+        assertTrue(updates + " updates in " + frames.getDouble("frames") + " frames",
+                updates <= frames.getDouble("frames") + 2);
+    }
+
+    private Bundle windowLayout() {
+        Bundle stats = overlay.request(OverlayIpc.MSG_FRAME_STATS);
+        assertNotNull(stats);
+        return stats.getBundle("windowLayout");
+    }
+}
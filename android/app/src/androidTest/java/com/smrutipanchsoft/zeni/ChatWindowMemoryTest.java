@@ -0,0 +1,125 @@
+package com.smrutipanchsoft.zeni;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Heap held by the overlay chat at 100, 1 000 and 10 000 messages: the bounded
+ * window OverlayService keeps (CHAT_WINDOW_SIZE rendered rows, older ones paged
+ * from ConversationStore) against keeping every rendered message, as the
+ * unbounded list did. Also walks the whole conversation back page by page.
+ *
+ * ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=com.smrutipanchsoft.zeni.ChatWindowMemoryTest
+ */
+@RunWith(AndroidJUnit4.class)
+public class ChatWindowMemoryTest {
+
+    private static final String DB_NAME = "conversations-memory-test.db";
+
+    private Context context;
+    private ConversationStore store;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        store = new ConversationStore(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void windowStaysFlatAsTheConversationGrows() {
+        long[] windowBytes = new long[3];
+        long[] unboundedBytes = new long[3];
+        int[] sizes = {100, 1_000, 10_000};
+
+        for (int s = 0; s < sizes.length; s++) {
+            int size = sizes[s];
+            String conversation = store.newConversation();
+            for (int i = 0; i < size; i++) {
+                store.append(conversation, i, i % 2 == 0, message(i), "12:00");
+            }
+
+            windowBytes[s] = Benchmarks.retainedBytes(() -> render(
+                    Benchmarks.<List<ConversationStore.Record>>await(callback -> store.loadBefore(
+                            conversation, Long.MAX_VALUE, OverlayService.CHAT_WINDOW_SIZE, callback))));
+            unboundedBytes[s] = Benchmarks.retainedBytes(() -> render(
+                    Benchmarks.<List<ConversationStore.Record>>await(callback -> store.loadBefore(
+                            conversation, Long.MAX_VALUE, size, callback))));
+
+            Benchmarks.report("📊 " + size + " messages: window " + windowBytes[s] / 1024
+                    + " KB, every message " + unboundedBytes[s] / 1024 + " KB");
+        }
+
+        // 100x the messages, about the same window; the unbounded list grows with them
+        assertTrue("window " + windowBytes[2] + " B vs " + unboundedBytes[2] + " B",
+                windowBytes[2] * 10 < unboundedBytes[2]);
+        assertTrue("window " + windowBytes[1] + " B -> " + windowBytes[2] + " B",
+                windowBytes[2] < windowBytes[1] * 2 + 64 * 1024);
+    }
+
+    @Test
+    public void olderPagesWalkBackToTheFirstMessage() {
+        int size = 10_000;
+        String conversation = store.newConversation();
+        for (int i = 0; i < size; i++) {
+            store.append(conversation, i, i % 2 == 0, message(i), "12:00");
+        }
+
+        List<ConversationStore.Record> window = Benchmarks.await(callback -> store.loadBefore(
+                conversation, Long.MAX_VALUE, OverlayService.CHAT_WINDOW_SIZE, callback));
+        long oldest = window.get(0).seq;
+        int pages = 0;
+        long[] pageMs = new long[(size - OverlayService.CHAT_WINDOW_SIZE) / OverlayService.CHAT_PAGE_SIZE + 1];
+        while (oldest > 0) {
+            long before = oldest;
+            long start = SystemClock.elapsedRealtimeNanos();
+            List<ConversationStore.Record> page = Benchmarks.await(callback -> store.loadBefore(
+                    conversation, before, OverlayService.CHAT_PAGE_SIZE, callback));
+            pageMs[pages++] = (SystemClock.elapsedRealtimeNanos() - start) / 1_000_000;
+            assertEquals(before - 1, page.get(page.size() - 1).seq);
+            oldest = page.get(0).seq;
+        }
+
+        long[] measured = new long[pages];
+        System.arraycopy(pageMs, 0, measured, 0, pages);
+        Benchmarks.report("📊 " + pages + " older pages of " + OverlayService.CHAT_PAGE_SIZE
+                + ": median " + Benchmarks.median(measured) + " ms per page");
+        assertEquals(0, oldest);
+    }
+
+    // What a row holds on to: the text, and for replies the rendered Spanned
+    private static List<Object> render(List<ConversationStore.Record> records) {
+        List<Object> rows = new ArrayList<>(records.size());
+        for (ConversationStore.Record record : records) {
+            rows.add(record.isUser ? record.text : new MarkdownRenderer(record.text));
+        }
+        return rows;
+    }
+
+    private static String message(int i) {
+        return i % 2 == 0
+                ? "Question number " + i + " about something the user wanted to know"
+                : "Here is **answer " + i + "** with a list:\n• first point\n• second point\n"
+                        + "1. and a numbered step that explains *why* it works";
+    }
+}
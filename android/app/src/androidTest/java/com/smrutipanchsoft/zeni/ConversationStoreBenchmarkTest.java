@@ -0,0 +1,158 @@
+package com.smrutipanchsoft.zeni;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Write, load and search cost of the on-device history at realistic sizes, in
+ * a scratch database (real history is untouched).
+ *
+ * ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=com.smrutipanchsoft.zeni.ConversationStoreBenchmarkTest
+ */
+@RunWith(AndroidJUnit4.class)
+public class ConversationStoreBenchmarkTest {
+
+    private static final String DB_NAME = "conversations-benchmark.db";
+    private static final int SEARCH_CORPUS = 50_000;
+    private static final int MESSAGES_PER_CONVERSATION = 100;
+    private static final int SEARCH_ROUNDS = 7;
+    // Appears in exactly RARE_HITS messages of the search corpus
+    private static final String RARE_WORD = "zephyrine";
+    private static final int RARE_HITS = 5;
+
+    private Context context;
+    private ConversationStore store;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        store = new ConversationStore(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void writeCostStaysFlatAsHistoryGrows() {
+        int[] sizes = {10_000, 100_000};
+        long[] perWriteUs = new long[sizes.length];
+        int written = 0;
+
+        for (int s = 0; s < sizes.length; s++) {
+            String chat = "benchmark-" + sizes[s];
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < sizes[s]; i++) {
+                store.appendNext(chat, "msg_" + i, ConversationStore.SOURCE_APP, i % 2 == 0,
+                        "Benchmark message number " + i, null);
+            }
+            // Reads queue behind the writes, so this returns once they are all in
+            loadNewest(chat, 1);
+            long writeNanos = SystemClock.elapsedRealtimeNanos() - start;
+            perWriteUs[s] = writeNanos / 1000 / sizes[s];
+            written += sizes[s];
+
+            start = SystemClock.elapsedRealtimeNanos();
+            List<ConversationStore.Record> page = loadNewest(chat, 50);
+            long pageMs = (SystemClock.elapsedRealtimeNanos() - start) / 1_000_000;
+
+            start = SystemClock.elapsedRealtimeNanos();
+            List<ConversationStore.Record> all = loadNewest(chat, sizes[s]);
+            long fullMs = (SystemClock.elapsedRealtimeNanos() - start) / 1_000_000;
+
+            assertEquals(50, page.size());
+            assertEquals(sizes[s], all.size());
+            Benchmarks.report("📊 " + sizes[s] + " messages (" + written + " in the store): write "
+                    + writeNanos / 1_000_000 + " ms, " + perWriteUs[s] + " µs each, newest 50 in "
+                    + pageMs + " ms, whole chat in " + fullMs + " ms");
+        }
+
+        // One indexed insert per message - no rewrite of what is already stored
+        assertTrue(perWriteUs[0] + " µs -> " + perWriteUs[1] + " µs", perWriteUs[1] < perWriteUs[0] * 3 + 50);
+    }
+
+    @Test
+    public void searchOverFiftyThousandMessagesTakesMilliseconds() {
+        Random random = new Random(7);
+        String[] vocabulary = vocabulary(2_000);
+        String conversation = null;
+        for (int i = 0; i < SEARCH_CORPUS; i++) {
+            if (i % MESSAGES_PER_CONVERSATION == 0) {
+                conversation = store.newConversation();
+            }
+            String text = sentence(random, vocabulary, 12);
+            if (i % (SEARCH_CORPUS / RARE_HITS) == 0) {
+                text += " " + RARE_WORD;
+            }
+            store.append(conversation, i % MESSAGES_PER_CONVERSATION, i % 2 == 0, text, "12:00");
+        }
+        // Wait for the writes, then warm the index pages up
+        search(RARE_WORD, 20);
+
+        String common = vocabulary[0];
+        String[] queries = {RARE_WORD, common, vocabulary[0].substring(0, 2), common + " " + vocabulary[1],
+                "what is " + vocabulary[500]};
+        for (String query : queries) {
+            long[] samples = new long[SEARCH_ROUNDS];
+            List<ConversationStore.Hit> hits = null;
+            for (int round = 0; round < SEARCH_ROUNDS; round++) {
+                long start = SystemClock.elapsedRealtimeNanos();
+                hits = search(query, 20);
+                samples[round] = (SystemClock.elapsedRealtimeNanos() - start) / 1000;
+            }
+            long medianUs = Benchmarks.median(samples);
+            Benchmarks.report("📊 search \"" + query + "\" over " + SEARCH_CORPUS + " messages: "
+                    + hits.size() + " hits, median " + medianUs / 1000.0 + " ms");
+            assertTrue("\"" + query + "\" took " + medianUs + " µs", medianUs < 100_000);
+        }
+
+        assertEquals(RARE_HITS, search(RARE_WORD, 20).size());
+    }
+
+    private List<ConversationStore.Record> loadNewest(String conversation, int limit) {
+        return Benchmarks.await(callback -> store.loadBefore(conversation, Long.MAX_VALUE, limit, callback));
+    }
+
+    private List<ConversationStore.Hit> search(String query, int limit) {
+        return Benchmarks.await(callback -> store.search(query, limit, 0, callback));
+    }
+
+    // Made-up lower-case words, so no query accidentally matches English stop words
+    private static String[] vocabulary(int size) {
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            words[i] = "w" + Integer.toString(i * 7919 + 1296, 36);
+        }
+        return words;
+    }
+
+    // Zipf-like: low indices are much more common, like real text
+    private static String sentence(Random random, String[] vocabulary, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            double u = random.nextDouble();
+            sb.append(vocabulary[(int) (Math.pow(u, 3) * vocabulary.length)]);
+        }
+        return sb.toString();
+    }
+}
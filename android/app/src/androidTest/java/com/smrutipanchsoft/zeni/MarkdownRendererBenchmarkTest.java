@@ -0,0 +1,123 @@
+package com.smrutipanchsoft.zeni;
+
+import android.os.SystemClock;
+import android.text.Html;
+import android.text.Spanned;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Streaming a long reply into the chat and rebinding it while scrolling:
+ * MarkdownRenderer against the regex + Html.fromHtml path it replaced.
+ * Reported only - timings on a shared device are too noisy to assert on.
+ *
+ * ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=com.smrutipanchsoft.zeni.MarkdownRendererBenchmarkTest
+ */
+@RunWith(AndroidJUnit4.class)
+public class MarkdownRendererBenchmarkTest {
+
+    private static final int SECTIONS = 40;
+    private static final int REBINDS = 200;
+    private static final int RUNS = 7;
+
+    @Test
+    public void streamingALongReply() {
+        String reply = longReply(SECTIONS);
+        List<String> tokens = tokens(reply);
+
+        // Warm both paths up so class loading and JIT are not measured
+        for (int i = 0; i < 3; i++) {
+            streamWithRegexAndHtml(tokens);
+            streamWithRenderer(tokens);
+        }
+
+        long[] legacyMs = new long[RUNS];
+        long[] rendererMs = new long[RUNS];
+        int legacyLength = 0;
+        int rendererLength = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            legacyLength = streamWithRegexAndHtml(tokens).length();
+            legacyMs[run] = (SystemClock.elapsedRealtimeNanos() - start) / 1_000_000;
+
+            start = SystemClock.elapsedRealtimeNanos();
+            rendererLength = streamWithRenderer(tokens).length();
+            rendererMs[run] = (SystemClock.elapsedRealtimeNanos() - start) / 1_000_000;
+        }
+
+        Benchmarks.report("📊 " + reply.length() + " chars, " + tokens.size() + " tokens, " + REBINDS
+                + " rebinds (median of " + RUNS + "): regex+Html " + Benchmarks.median(legacyMs)
+                + " ms, renderer " + Benchmarks.median(rendererMs) + " ms");
+        assertTrue(legacyLength > 0 && rendererLength > 0);
+    }
+
+    // The pre-renderer path: every token re-formats the whole reply, and every
+    // rebind while scrolling parses the HTML again
+    private static Spanned streamWithRegexAndHtml(List<String> tokens) {
+        StringBuilder partial = new StringBuilder();
+        Spanned shown = null;
+        for (String token : tokens) {
+            partial.append(token);
+            shown = Html.fromHtml(formatMessageToHtml(partial.toString()), Html.FROM_HTML_MODE_LEGACY);
+        }
+        String html = formatMessageToHtml(partial.toString());
+        for (int i = 0; i < REBINDS; i++) {
+            shown = Html.fromHtml(html, Html.FROM_HTML_MODE_LEGACY);
+        }
+        return shown;
+    }
+
+    private static Spanned streamWithRenderer(List<String> tokens) {
+        MarkdownRenderer renderer = new MarkdownRenderer();
+        Spanned shown = null;
+        for (String token : tokens) {
+            renderer.append(token);
+            shown = renderer.getSpanned();
+        }
+        for (int i = 0; i < REBINDS; i++) {
+            shown = renderer.getSpanned();
+        }
+        return shown;
+    }
+
+    // Copied from OverlayService before MarkdownRenderer replaced it
+    private static String formatMessageToHtml(String text) {
+        if (text == null) return "";
+
+        text = text.replaceAll("\\*\\*(.+?)\\*\\*", "<b>$1</b>");
+        text = text.replaceAll("\\*(.+?)\\*", "<i>$1</i>");
+        text = text.replaceAll("(?m)^• (.+)$", "<br/>• $1");
+        text = text.replaceAll("(?m)^(\\d+)\\. (.+)$", "<br/><b>$1.</b> $2");
+        text = text.replaceAll("^<br/>", "");
+
+        return text;
+    }
+
+    private static String longReply(int sections) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= sections; i++) {
+            sb.append("Here is **point ").append(i).append("** with some *emphasis* and more words to read.\n");
+            sb.append("• first detail of the point\n");
+            sb.append("• second detail with **bold** text\n");
+            sb.append(i).append(". a numbered step that goes on for a while\n");
+        }
+        return sb.toString();
+    }
+
+    // Split like a model stream: a few characters at a time
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < text.length(); i += 4) {
+            tokens.add(text.substring(i, Math.min(text.length(), i + 4)));
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,152 @@
+package com.smrutipanchsoft.zeni;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
+import android.os.Process;
+import android.os.SystemClock;
+import android.widget.ImageView;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Drives the real OverlayService in its ":overlay" process from a test: grants
+ * the overlay permission, starts and stops the service, and asks it for its
+ * stats over the same OverlayClient channel OverlayModule uses.
+ */
+final class OverlayHarness {
+
+    private static final long TIMEOUT_MS = 15_000;
+
+    final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+    final Context context = instrumentation.getTargetContext();
+    final UiDevice device = UiDevice.getInstance(instrumentation);
+    private OverlayClient client;
+
+    OverlayHarness() {
+        instrumentation.runOnMainSync(() -> {
+            client = new OverlayClient(context);
+            client.bind();
+        });
+    }
+
+    void grantOverlayPermission() {
+        shell("appops set " + context.getPackageName() + " SYSTEM_ALERT_WINDOW allow");
+    }
+
+    /**
+     * Start the service the way the system would for a user (the shell is not
+     * subject to background start limits) and wait until it answers.
+     */
+    void start() {
+        shell("am start-foreground-service -n " + context.getPackageName() + "/" + OverlayService.class.getName());
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MS;
+        while (!client.isConnected()) {
+            if (SystemClock.uptimeMillis() > deadline) {
+                fail("Overlay did not start");
+            }
+            SystemClock.sleep(5);
+        }
+    }
+
+    void stop() {
+        CountDownLatch stopped = new CountDownLatch(1);
+        instrumentation.runOnMainSync(() -> client.whenStopped(stopped::countDown));
+        context.stopService(new Intent(context, OverlayService.class));
+        await(stopped);
+    }
+
+    /**
+     * Stop the service and kill its process, so the next start is a cold one.
+     */
+    void stopCold() {
+        Bundle memory = request(OverlayIpc.MSG_MEMORY);
+        stop();
+        if (memory == null) {
+            return;
+        }
+        int pid = (int) memory.getDouble("pid");
+        Process.killProcess(pid);
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MS;
+        while (new File("/proc/" + pid).exists()) {
+            if (SystemClock.uptimeMillis() > deadline) {
+                fail("Overlay process " + pid + " did not exit");
+            }
+            SystemClock.sleep(10);
+        }
+    }
+
+    boolean isRunning() {
+        return client.isConnected();
+    }
+
+    /**
+     * One OverlayIpc request; null when the overlay has nothing to report.
+     */
+    Bundle request(int what) {
+        AtomicReference<Bundle> result = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        instrumentation.runOnMainSync(() -> client.request(what, reply -> {
+            result.set(reply);
+            done.countDown();
+        }));
+        await(done);
+        return result.get();
+    }
+
+    /**
+     * The bubble - until the spotlight is built it is the overlay's only image.
+     */
+    UiObject2 findBubble() {
+        UiObject2 bubble = device.wait(Until.findObject(
+                By.pkg(context.getPackageName()).clazz(ImageView.class)), TIMEOUT_MS);
+        assertNotNull("Bubble not on screen", bubble);
+        return bubble;
+    }
+
+    void close() {
+        instrumentation.runOnMainSync(() -> client.unbind());
+    }
+
+    String shell(String command) {
+        ParcelFileDescriptor output = instrumentation.getUiAutomation().executeShellCommand(command);
+        StringBuilder sb = new StringBuilder();
+        try (InputStream in = new FileInputStream(output.getFileDescriptor())) {
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                sb.append(new String(buffer, 0, n));
+            }
+            output.close();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return sb.toString();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue("Timed out", latch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.smrutipanchsoft.zeni;
+
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.os.SystemClock;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Cold start of the overlay and its first open, over several runs. Each run
+ * kills the ":overlay" process, starts the service, waits for the bubble,
+ * reads the idle footprint, then taps the bubble and waits for the first
+ * spotlight frame. Reported as medians of OverlayService.StartupTimings plus
+ * the process age when it first answered (process start to ready).
+ *
+ * ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=com.smrutipanchsoft.zeni.OverlayStartupBenchmarkTest
+ */
+@RunWith(AndroidJUnit4.class)
+public class OverlayStartupBenchmarkTest {
+
+    private static final int RUNS = 5;
+    private static final long TIMEOUT_MS = 10_000;
+
+    private OverlayHarness overlay;
+
+    @Before
+    public void setUp() {
+        overlay = new OverlayHarness();
+        overlay.grantOverlayPermission();
+        // Whatever ran before, the first run starts from a dead process
+        overlay.start();
+        overlay.stopCold();
+    }
+
+    @After
+    public void tearDown() {
+        if (overlay.isRunning()) {
+            overlay.stop();
+        }
+        overlay.close();
+    }
+
+    @Test
+    public void coldStartAndFirstOpen() {
+        long[] processToReady = new long[RUNS];
+        long[] serviceCreate = new long[RUNS];
+        long[] timeToBubble = new long[RUNS];
+        long[] idlePss = new long[RUNS];
+        long[] spotlightBuild = new long[RUNS];
+        long[] firstOpen = new long[RUNS];
+        int prewarmed = 0;
+
+        for (int run = 0; run < RUNS; run++) {
+            overlay.start();
+            Bundle memory = overlay.request(OverlayIpc.MSG_MEMORY);
+            assertNotNull(memory);
+            processToReady[run] = (long) memory.getDouble("uptimeMs");
+
+            Rect bubble = overlay.findBubble().getVisibleBounds();
+            Bundle timings = awaitTimings("timeToBubbleMs");
+            serviceCreate[run] = (long) timings.getDouble("serviceCreateMs");
+            timeToBubble[run] = (long) timings.getDouble("timeToBubbleMs");
+            // The spotlight is not built yet, so this is what an idle overlay costs
+            idlePss[run] = (long) overlay.request(OverlayIpc.MSG_MEMORY).getDouble("totalPssKb");
+
+            assertTrue(overlay.device.click(bubble.centerX(), bubble.centerY()));
+            timings = awaitTimings("timeToFirstOpenMs");
+            spotlightBuild[run] = (long) timings.getDouble("spotlightBuildMs");
+            firstOpen[run] = (long) timings.getDouble("timeToFirstOpenMs");
+            if (timings.getBoolean("spotlightPrewarmed")) {
+                prewarmed++;
+            }
+
+            overlay.stopCold();
+        }
+
+        Benchmarks.report("📊 overlay cold start (median of " + RUNS + "): process to ready "
+                + Benchmarks.median(processToReady) + " ms, onCreate " + Benchmarks.median(serviceCreate)
+                + " ms, bubble drawn " + Benchmarks.median(timeToBubble) + " ms, idle PSS "
+                + Benchmarks.median(idlePss) + " KB");
+        Benchmarks.report("📊 overlay first open (median of " + RUNS + "): spotlight build "
+                + Benchmarks.median(spotlightBuild) + " ms, tap to first frame "
+                + Benchmarks.median(firstOpen) + " ms, prewarmed " + prewarmed + "/" + RUNS);
+
+        assertTrue(Benchmarks.median(timeToBubble) >= 0);
+        assertTrue(Benchmarks.median(firstOpen) >= 0);
+    }
+
+    // Poll until the service has recorded the named timing
+    private Bundle awaitTimings(String key) {
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MS;
+        while (SystemClock.uptimeMillis() < deadline) {
+            Bundle timings = overlay.request(OverlayIpc.MSG_STARTUP_TIMINGS);
+            if (timings != null && timings.getDouble(key) >= 0) {
+                return timings;
+            }
+            SystemClock.sleep(20);
+        }
+        fail("Overlay never recorded " + key);
+        return null;
+    }
+}
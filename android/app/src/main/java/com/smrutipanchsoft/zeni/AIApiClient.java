@@ -2,28 +2,81 @@ package com.smrutipanchsoft.zeni;
 
 import android.os.Handler;
 import android.os.Looper;
-import android.util.Log;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.MalformedJsonException;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 
 public class AIApiClient {
     private static final String TAG = "AIApiClient";
     
     // ✅ Railway Backend URL
-    private static final String BASE_URL = "https://zeni-backend.up.railway.app";
+    private static final String DEFAULT_BASE_URL = "https://zeni-backend.up.railway.app";
+
+    // Request bodies smaller than this are not worth gzipping
+    private static final int COMPRESSION_THRESHOLD_BYTES = 1024;
+
+    // Well inside the pool's keep-alive, so a warmed connection is still there
+    private static final long PREWARM_INTERVAL_MS = 60_000;
+
+    // Upper bound for a whole /batch, however many messages it carries
+    private static final long MAX_BATCH_READ_TIMEOUT_MS = 5 * 60 * 1000;
+
+    // Error passed to StreamCallbacks that do not override onSuperseded
+    public static final String SUPERSEDED = "superseded";
     
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final RequestScheduler scheduler = new RequestScheduler();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final HttpTransport transport;
+    private final String baseUrl;
     private final String sessionId;
+    private final String chatTag;
+    private volatile boolean compressRequests = false;
+    private volatile boolean batchUnsupported = false;
+
+    // Opt-in reply cache, keyed by the prompt plus the conversation so far
+    private volatile ResponseCache responseCache;
+    // Running hash of the turns the backend holds for this session; reset by /clear.
+    // Updated on the chat lane, which runs one turn at a time per session.
+    private static final long EMPTY_CONVERSATION = 0xcbf29ce484222325L;
+    private final AtomicLong conversationHash = new AtomicLong(EMPTY_CONVERSATION);
+
+    private final LatencyTracker latency = new LatencyTracker();
+    private final ExecutorService hedgeExecutor = Executors.newCachedThreadPool();
+    private final AtomicLong hedgesSent = new AtomicLong();
+    private volatile boolean hedging = false;
+
+    private final AtomicLong lastPrewarmAt = new AtomicLong(Long.MIN_VALUE / 2);
+    private final AtomicLong prewarmsSent = new AtomicLong();
+
+    // Main thread only
+    private final SingleFlight singleFlight = new SingleFlight();
+    // Identical sends coalesce only while nothing else was sent in between
+    private String lastSentMessage;
+    private long sendGeneration = 0;
+    private final List<String> debouncedMessages = new ArrayList<>();
+    private StreamCallback debouncedCallback;
+    private final Runnable debounceFlush = this::flushDebounced;
 
     public interface AICallback {
         void onSuccess(String response);
@@ -36,248 +89,926 @@ public class AIApiClient {
         void onError(String error);
     }
 
+    // Streaming callback - tokens arrive on the main thread as they are received
+    public interface StreamCallback {
+        void onToken(String token);
+        void onComplete(String reply);
+        // The backend answered with an error (HTTP status, error chunk, bad body)
+        void onError(String error);
+
+        // No answer at all (offline, DNS, refused, timeout) - worth retrying later
+        default void onUnreachable(String error) {
+            onError(error);
+        }
+
+        // Debounced send only: a later message took this one into its request,
+        // whose reply goes to the later callback. Nothing else follows.
+        default void onSuperseded() {
+            onError(SUPERSEDED);
+        }
+    }
+
+    // Per-message batch results on the main thread; onComplete comes last.
+    // unreachable: the message never got an answer, as opposed to being rejected
+    public interface BatchCallback {
+        void onReply(int index, String reply);
+        void onFailed(int index, String error, boolean unreachable);
+        void onComplete();
+    }
+
     public AIApiClient() {
+        this(new OkHttpTransport());
+    }
+
+    public AIApiClient(HttpTransport transport) {
+        this(transport, DEFAULT_BASE_URL);
+    }
+
+    // baseUrl lets a local stand-in backend replace Railway
+    public AIApiClient(HttpTransport transport, String baseUrl) {
+        this.transport = transport;
+        this.baseUrl = baseUrl;
         // Generate unique session ID for this device
         this.sessionId = "android_" + UUID.randomUUID().toString();
-        Log.d(TAG, "✅ Session ID: " + sessionId);
+        this.chatTag = "chat:" + sessionId;
+        RingLog.d(TAG, "✅ Session started");
     }
 
     /**
      * Send a message to Groq AI and get response (generic version)
      */
     public void sendMessage(String message, Callback<String> callback) {
-        executor.execute(() -> {
-            HttpURLConnection conn = null;
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            mainHandler.post(() -> sendMessage(message, callback));
+            return;
+        }
+
+        // Identical request already in flight - share its result
+        Callback<String> leader = singleFlight.joinReply(flightKey(message), callback);
+        if (leader == null) {
+            RingLog.d(TAG, "🔗 Joined identical in-flight request");
+            return;
+        }
+
+        scheduler.submitChat(sessionId, task -> {
             try {
-                Log.d(TAG, "📤 Sending message: " + message);
+                RingLog.d(TAG, "📤 Sending message, chars", message.length());
                 
-                // Create URL
-                URL url = new URL(BASE_URL + "/chat");
-                conn = (HttpURLConnection) url.openConnection();
+                // Keyed here, after the turns queued ahead of this one have landed
+                ResponseCache cache = responseCache;
+                String cacheKey = cache != null ? cacheKey(message) : null;
+                String aiMessage = cache != null ? cache.get(cacheKey) : null;
+                if (aiMessage == null) {
+                    aiMessage = requestReply(task, message, null, chatTag);
+                    recordTurn(message, aiMessage);
+                    if (cache != null) {
+                        cache.put(cacheKey, aiMessage);
+                    }
+                }
+                String reply = aiMessage;
                 
-                // Setup connection
-                conn.setRequestMethod("POST");
-                conn.setRequestProperty("Content-Type", "application/json");
-                conn.setDoOutput(true);
-                conn.setConnectTimeout(10000); // 10 seconds
-                conn.setReadTimeout(30000); // 30 seconds
+                RingLog.d(TAG, "✅ AI Response received, chars", reply.length());
                 
-                // Create JSON request
+                // Return on main thread
+                deliver(task, () -> leader.onSuccess(reply));
+                
+            } catch (Exception e) {
+                RingLog.e(TAG, "❌ Error calling AI API", e);
+                deliver(task, () -> 
+                    leader.onError("Connection failed: " + e.getMessage())
+                );
+            }
+        });
+    }
+
+    /**
+     * Send several messages (optionally after clearing the conversation) in one
+     * round trip to /batch. Replies come back in message order. Falls back to
+     * one request per message when the backend has no batch endpoint.
+     */
+    public void sendBatch(boolean clearFirst, List<String> messages, Callback<List<String>> callback) {
+        List<String> replies = new ArrayList<>(messages);
+        String[] firstError = new String[1];
+        sendBatch(clearFirst, messages, null, new BatchCallback() {
+            @Override
+            public void onReply(int index, String reply) {
+                replies.set(index, reply);
+            }
+
+            @Override
+            public void onFailed(int index, String error, boolean unreachable) {
+                if (firstError[0] == null) {
+                    firstError[0] = error;
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                if (firstError[0] != null) {
+                    callback.onError(firstError[0]);
+                } else {
+                    callback.onSuccess(replies);
+                }
+            }
+        });
+    }
+
+    /**
+     * Batch variant with a result per message and a client message id per
+     * message, sent as "messageId". A backend that honours the id can drop a
+     * message it already answered (a replay after a crash); one that ignores it
+     * answers the replay again.
+     *
+     * Without /batch the messages go out one by one in order and each reply is
+     * reported as soon as it arrives. A message the backend rejects is reported
+     * failed and the run goes on; when the backend cannot be reached the run
+     * stops and that message and the rest are reported unreachable.
+     */
+    public void sendBatch(boolean clearFirst, List<String> messages, List<String> messageIds,
+                          BatchCallback callback) {
+        // Batches carry queued messages the user already committed to - not cancellable
+        scheduler.submitChat(sessionId, false, task -> {
+            int next = 0;
+            try {
+                RingLog.d(TAG, "📦 Sending batch, messages", messages.size());
+
+                List<String> replies = batchUnsupported ? null : requestBatch(clearFirst, messages, messageIds);
+                if (replies != null) {
+                    for (int i = 0; i < replies.size(); i++) {
+                        int index = i;
+                        String reply = replies.get(i);
+                        recordTurn(messages.get(i), reply);
+                        deliver(task, () -> callback.onReply(index, reply));
+                    }
+                    next = replies.size();
+                } else {
+                    if (clearFirst) {
+                        int clearCode = executeHedged("/clear", this::requestClear);
+                        if (clearCode != 200) {
+                            throw new Exception("Failed to clear: " + clearCode);
+                        }
+                        conversationHash.set(EMPTY_CONVERSATION);
+                    }
+                    for (; next < messages.size(); next++) {
+                        int index = next;
+                        try {
+                            String reply = requestReply(task, messages.get(index), messageIds != null ? messageIds.get(index) : null, null);
+                            recordTurn(messages.get(index), reply);
+                            deliver(task, () -> callback.onReply(index, reply));
+                        } catch (Exception e) {
+                            if (isUnreachable(e)) {
+                                throw e;
+                            }
+                            RingLog.e(TAG, "❌ Batch message rejected", index);
+                            deliver(task, () -> callback.onFailed(index, "Error: " + e.getMessage(), false));
+                        }
+                    }
+                }
+                RingLog.d(TAG, "✅ Batch complete");
+
+            } catch (Exception e) {
+                RingLog.e(TAG, "❌ Batch stopped at message", next);
+                boolean unreachable = isUnreachable(e);
+                String error = (unreachable ? "Connection failed: " : "Error: ") + e.getMessage();
+                for (int i = next; i < messages.size(); i++) {
+                    int index = i;
+                    deliver(task, () -> callback.onFailed(index, error, unreachable));
+                }
+            }
+            deliver(task, callback::onComplete);
+        });
+    }
+
+    // Transport-level failure: the request got no HTTP answer at all.
+    // HTTP statuses, error chunks and unparseable bodies are answers.
+    private static boolean isUnreachable(Exception e) {
+        return e instanceof IOException
+                && !(e instanceof ResponseDecoder.FormatException)
+                && !(e instanceof MalformedJsonException);
+    }
+
+    // POST /chat and return the "reply" field
+    private String requestReply(RequestScheduler.Task task, String message, String messageId, Object tag) throws Exception {
+        HttpTransport.Response conn = null;
+        long start = SystemClock.elapsedRealtime();
+        int readTimeoutMs = chatReadTimeoutMs();
+        try {
+            // Create JSON request
+            JSONObject json = new JSONObject();
+            json.put("message", message);
+            json.put("sessionId", sessionId);
+            if (messageId != null) {
+                json.put("messageId", messageId);
+            }
+            
+            // Send request
+            conn = transport.execute(
+                jsonPost("/chat", json)
+                    .timeouts(chatConnectTimeoutMs(), readTimeoutMs)
+                    .tag(tag)
+            );
+            
+            // Check response code
+            int responseCode = conn.code();
+            RingLog.d(TAG, "📥 Response code", responseCode);
+            
+            if (responseCode != 200) {
+                throw new Exception("HTTP Error: " + responseCode);
+            }
+            
+            // Read and parse response in one pass
+            String reply = ResponseDecoder.readStringField(conn.body(), "reply");
+            latency.record("/chat", SystemClock.elapsedRealtime() - start);
+            return reply;
+        } catch (IOException e) {
+            recordUnanswered("/chat", e, task.isCancelled(), start, readTimeoutMs);
+            throw e;
+        } finally {
+            closeQuietly(conn);
+        }
+    }
+
+    // POST /clear and return the HTTP status - idempotent, so it may be hedged
+    private int requestClear(Object tag) throws Exception {
+        HttpTransport.Response conn = null;
+        try {
+            // Send session ID
+            JSONObject json = new JSONObject();
+            json.put("sessionId", sessionId);
+            
+            conn = transport.execute(
+                jsonPost("/clear", json)
+                    .timeouts(controlConnectTimeoutMs(), controlReadTimeoutMs("/clear"))
+                    .tag(tag)
+            );
+            return conn.code();
+        } finally {
+            closeQuietly(conn);
+        }
+    }
+
+    // POST /batch; returns null when the backend does not support batching
+    private List<String> requestBatch(boolean clearFirst, List<String> messages, List<String> messageIds) throws Exception {
+        HttpTransport.Response conn = null;
+        try {
+            JSONObject json = new JSONObject();
+            json.put("sessionId", sessionId);
+            json.put("clear", clearFirst);
+            json.put("messages", new JSONArray(messages));
+            if (messageIds != null) {
+                json.put("messageIds", new JSONArray(messageIds));
+            }
+
+            conn = transport.execute(
+                jsonPost("/batch", json)
+                    .timeouts(chatConnectTimeoutMs(), batchReadTimeoutMs(messages.size()))
+            );
+
+            int responseCode = conn.code();
+            if (responseCode == 404 || responseCode == 405 || responseCode == 501) {
+                RingLog.w(TAG, "⚠️ Backend has no /batch, falling back to single requests");
+                batchUnsupported = true;
+                return null;
+            }
+            if (responseCode != 200) {
+                throw new Exception("HTTP Error: " + responseCode);
+            }
+
+            List<String> replies = ResponseDecoder.readStringArrayField(conn.body(), "replies");
+            if (clearFirst) {
+                conversationHash.set(EMPTY_CONVERSATION);
+            }
+            if (replies.size() != messages.size()) {
+                throw new Exception("Batch returned " + replies.size() + " replies for " + messages.size() + " messages");
+            }
+            return replies;
+        } finally {
+            closeQuietly(conn);
+        }
+    }
+
+    /**
+     * JSON POST to the backend. Bodies above the threshold are gzip-compressed
+     * when request compression is enabled; response bodies are always
+     * negotiated and decoded transparently by the transport.
+     */
+    private HttpTransport.Request jsonPost(String path, JSONObject json) throws IOException {
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        if (compressRequests && body.length >= COMPRESSION_THRESHOLD_BYTES) {
+            return HttpTransport.Request.post(baseUrl + path, gzip(body))
+                .header("Content-Type", "application/json")
+                .header("Content-Encoding", "gzip");
+        }
+        return HttpTransport.Request.post(baseUrl + path, body)
+            .header("Content-Type", "application/json");
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 2);
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        gzip.write(body);
+        gzip.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Gzip request bodies above COMPRESSION_THRESHOLD_BYTES.
+     * Off by default - only enable against a backend that accepts Content-Encoding: gzip.
+     */
+    public void setRequestCompression(boolean enabled) {
+        compressRequests = enabled;
+    }
+
+    /**
+     * Send a message and receive the reply incrementally.
+     * Understands SSE ("data:" events) and NDJSON bodies; falls back to the
+     * plain JSON reply when the backend does not stream.
+     */
+    public void sendMessageStreaming(String message, StreamCallback callback) {
+        sendMessageStreaming(message, null, callback);
+    }
+
+    /**
+     * Streaming send carrying a client message id, so a later resend of the same
+     * message (e.g. from the offline queue) can be recognised by the backend.
+     */
+    public void sendMessageStreaming(String message, String messageId, StreamCallback callback) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            mainHandler.post(() -> sendMessageStreaming(message, messageId, callback));
+            return;
+        }
+
+        // Identical request already in flight - share its stream
+        StreamCallback leader = singleFlight.joinStream("stream:" + flightKey(message), callback);
+        if (leader == null) {
+            RingLog.d(TAG, "🔗 Joined identical in-flight stream");
+            return;
+        }
+
+        scheduler.submitChat(sessionId, task -> {
+            HttpTransport.Response conn = null;
+            long start = SystemClock.elapsedRealtime();
+            int readTimeoutMs = chatReadTimeoutMs();
+            try {
+                // Keyed here, after the turns queued ahead of this one have landed
+                ResponseCache cache = responseCache;
+                String cacheKey = cache != null ? cacheKey(message) : null;
+                String cached = cache != null ? cache.get(cacheKey) : null;
+                if (cached != null) {
+                    RingLog.d(TAG, "⚡ Cache hit, no request sent");
+                    deliver(task, () -> {
+                        leader.onToken(cached);
+                        leader.onComplete(cached);
+                    });
+                    return;
+                }
+
+                RingLog.d(TAG, "📤 Streaming message, chars", message.length());
+
                 JSONObject json = new JSONObject();
                 json.put("message", message);
                 json.put("sessionId", sessionId);
-                
-                // Send request
-                OutputStream os = conn.getOutputStream();
-                os.write(json.toString().getBytes("UTF-8"));
-                os.flush();
-                os.close();
-                
-                // Check response code
-                int responseCode = conn.getResponseCode();
-                Log.d(TAG, "📥 Response code: " + responseCode);
-                
+                if (messageId != null) {
+                    json.put("messageId", messageId);
+                }
+                json.put("stream", true);
+
+                start = SystemClock.elapsedRealtime();
+                conn = transport.execute(
+                    jsonPost("/chat", json)
+                        .header("Accept", "text/event-stream, application/x-ndjson, application/json")
+                        .timeouts(chatConnectTimeoutMs(), readTimeoutMs) // read timeout applies between chunks
+                        .tag(chatTag)
+                );
+
+                int responseCode = conn.code();
+                RingLog.d(TAG, "📥 Stream response code", responseCode);
+
                 if (responseCode != 200) {
                     throw new Exception("HTTP Error: " + responseCode);
                 }
-                
-                // Read response
-                BufferedReader br = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream(), "UTF-8")
-                );
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = br.readLine()) != null) {
-                    response.append(line);
+
+                String contentType = conn.header("Content-Type") != null ? conn.header("Content-Type") : "";
+                StringBuilder reply = new StringBuilder();
+
+                if (contentType.startsWith("text/event-stream") || contentType.startsWith("application/x-ndjson")) {
+                    BufferedReader br = new BufferedReader(
+                        new InputStreamReader(conn.body(), "UTF-8")
+                    );
+                    if (contentType.startsWith("text/event-stream")) {
+                        readEventStream(task, br, reply, leader);
+                    } else {
+                        readNdjsonStream(task, br, reply, leader);
+                    }
+                    br.close();
+                } else {
+                    // Backend answered with a regular JSON body
+                    String aiMessage = ResponseDecoder.readStringField(conn.body(), "reply");
+                    emitToken(task, aiMessage, reply, leader);
                 }
-                br.close();
-                
-                // Parse response
-                JSONObject jsonResponse = new JSONObject(response.toString());
-                String aiMessage = jsonResponse.getString("reply");
-                
-                Log.d(TAG, "✅ AI Response received");
-                
-                // Return on main thread
-                mainHandler.post(() -> callback.onSuccess(aiMessage));
-                
+
+                String aiMessage = reply.toString();
+                if (!task.isCancelled()) {
+                    // A stream cut short by cancel() is not a latency sample
+                    latency.record("/chat", SystemClock.elapsedRealtime() - start);
+                    recordTurn(message, aiMessage);
+                    if (cache != null) {
+                        cache.put(cacheKey, aiMessage);
+                    }
+                }
+                RingLog.d(TAG, "✅ AI stream complete");
+                deliver(task, () -> leader.onComplete(aiMessage));
+
             } catch (Exception e) {
-                Log.e(TAG, "❌ Error calling AI API", e);
-                mainHandler.post(() -> 
-                    callback.onError("Connection failed: " + e.getMessage())
-                );
-            } finally {
-                if (conn != null) {
-                    conn.disconnect();
+                RingLog.e(TAG, "❌ Error streaming AI response", e);
+                recordUnanswered("/chat", e, task.isCancelled(), start, readTimeoutMs);
+                if (isUnreachable(e)) {
+                    deliver(task, () ->
+                        leader.onUnreachable("Connection failed: " + e.getMessage())
+                    );
+                } else {
+                    deliver(task, () ->
+                        leader.onError("Error: " + e.getMessage())
+                    );
                 }
+            } finally {
+                closeQuietly(conn);
             }
         });
     }
 
+    /**
+     * Debounced send: messages arriving within windowMs of each other are joined
+     * into a single streamed request. Only the callback of the last message in a
+     * burst gets the reply; earlier ones receive onSuperseded.
+     */
+    public void sendMessageDebounced(String message, long windowMs, StreamCallback callback) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            mainHandler.post(() -> sendMessageDebounced(message, windowMs, callback));
+            return;
+        }
+
+        StreamCallback superseded = debouncedCallback;
+        debouncedMessages.add(message);
+        debouncedCallback = callback;
+        if (superseded != null && superseded != callback) {
+            superseded.onSuperseded();
+        }
+        mainHandler.removeCallbacks(debounceFlush);
+        mainHandler.postDelayed(debounceFlush, windowMs);
+    }
+
+    private void flushDebounced() {
+        if (debouncedMessages.isEmpty() || debouncedCallback == null) {
+            return;
+        }
+        String joined = TextUtils.join("\n", debouncedMessages);
+        StreamCallback callback = debouncedCallback;
+        RingLog.d(TAG, "⏱️ Debounced messages into one request", debouncedMessages.size());
+        debouncedMessages.clear();
+        debouncedCallback = null;
+        sendMessageStreaming(joined, callback);
+    }
+
+    // SSE: an event is one or more "data:" lines terminated by a blank line
+    private void readEventStream(RequestScheduler.Task task, BufferedReader br, StringBuilder reply, StreamCallback callback) throws Exception {
+        StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = br.readLine()) != null) {
+            if (line.isEmpty()) {
+                if (data.length() > 0) {
+                    if (!dispatchChunk(task, data.toString(), reply, callback)) {
+                        return;
+                    }
+                    data.setLength(0);
+                }
+            } else if (line.startsWith("data:")) {
+                if (data.length() > 0) {
+                    data.append('\n');
+                }
+                data.append(line.startsWith("data: ") ? line.substring(6) : line.substring(5));
+            }
+            // "event:", "id:", "retry:" and ":" comments are ignored
+        }
+        if (data.length() > 0) {
+            dispatchChunk(task, data.toString(), reply, callback);
+        }
+    }
+
+    // NDJSON: one JSON object per line
+    private void readNdjsonStream(RequestScheduler.Task task, BufferedReader br, StringBuilder reply, StreamCallback callback) throws Exception {
+        String line;
+        while ((line = br.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            if (!dispatchChunk(task, line, reply, callback)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Handle one stream chunk. Returns false once the server signals the end.
+     */
+    private boolean dispatchChunk(RequestScheduler.Task task, String payload, StringBuilder reply, StreamCallback callback) throws Exception {
+        if (task.isCancelled() || "[DONE]".equals(payload)) {
+            return false;
+        }
+        if (!payload.startsWith("{")) {
+            emitToken(task, payload, reply, callback);
+            return true;
+        }
+
+        ResponseDecoder.Chunk chunk = ResponseDecoder.readChunk(payload);
+        if (chunk.error != null) {
+            throw new Exception(chunk.error);
+        }
+        if (chunk.token != null && !chunk.token.isEmpty()) {
+            emitToken(task, chunk.token, reply, callback);
+        }
+        return !chunk.done;
+    }
+
+    private void emitToken(RequestScheduler.Task task, String token, StringBuilder reply, StreamCallback callback) {
+        reply.append(token);
+        deliver(task, () -> callback.onToken(token));
+    }
+
     /**
      * Health check / Ping backend
      */
     public void pingBackend(Callback<String> callback) {
-        executor.execute(() -> {
-            HttpURLConnection conn = null;
+        scheduler.submitControl(task -> {
             try {
-                Log.d(TAG, "🏓 Ping backend...");
+                RingLog.d(TAG, "🏓 Ping backend...");
                 
-                URL url = new URL(BASE_URL + "/");
-                conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("GET");
-                conn.setConnectTimeout(5000);
-                conn.setReadTimeout(5000);
+                StatusReply reply = executeHedged("/", this::requestStatus);
                 
-                int responseCode = conn.getResponseCode();
-                
-                if (responseCode == 200) {
-                    BufferedReader br = new BufferedReader(
-                        new InputStreamReader(conn.getInputStream(), "UTF-8")
-                    );
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = br.readLine()) != null) {
-                        response.append(line);
-                    }
-                    br.close();
-                    
-                    JSONObject json = new JSONObject(response.toString());
-                    String status = json.getString("status");
-                    
-                    Log.d(TAG, "✅ Backend reachable: " + status);
-                    mainHandler.post(() -> callback.onSuccess(status));
+                if (reply.code == 200) {
+                    RingLog.d(TAG, "✅ Backend reachable");
+                    deliver(task, () -> callback.onSuccess(reply.status));
                 } else {
-                    Log.e(TAG, "❌ Backend returned: " + responseCode);
-                    mainHandler.post(() -> 
-                        callback.onError("Backend returned: " + responseCode)
+                    RingLog.e(TAG, "❌ Backend returned", reply.code);
+                    deliver(task, () -> 
+                        callback.onError("Backend returned: " + reply.code)
                     );
                 }
                 
             } catch (Exception e) {
-                Log.e(TAG, "❌ Ping failed", e);
-                mainHandler.post(() -> 
-                    callback.onError("Cannot reach backend at " + BASE_URL)
+                RingLog.e(TAG, "❌ Ping failed", e);
+                deliver(task, () -> 
+                    callback.onError("Cannot reach backend at " + baseUrl)
                 );
-            } finally {
-                if (conn != null) {
-                    conn.disconnect();
-                }
             }
         });
     }
 
     public void healthCheck(AICallback callback) {
-        executor.execute(() -> {
-            HttpURLConnection conn = null;
+        scheduler.submitControl(task -> {
             try {
-                Log.d(TAG, "🏥 Health check...");
-                
-                URL url = new URL(BASE_URL + "/");
-                conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("GET");
-                conn.setConnectTimeout(5000);
-                conn.setReadTimeout(5000);
+                RingLog.d(TAG, "🏥 Health check...");
                 
-                int responseCode = conn.getResponseCode();
+                StatusReply reply = executeHedged("/", this::requestStatus);
                 
-                if (responseCode == 200) {
-                    // Read response
-                    BufferedReader br = new BufferedReader(
-                        new InputStreamReader(conn.getInputStream(), "UTF-8")
-                    );
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = br.readLine()) != null) {
-                        response.append(line);
-                    }
-                    br.close();
-                    
-                    JSONObject json = new JSONObject(response.toString());
-                    String status = json.getString("status");
-                    
-                    Log.d(TAG, "✅ Backend healthy: " + status);
-                    mainHandler.post(() -> callback.onSuccess(status));
+                if (reply.code == 200) {
+                    RingLog.d(TAG, "✅ Backend healthy");
+                    deliver(task, () -> callback.onSuccess(reply.status));
                 } else {
-                    Log.e(TAG, "❌ Backend unhealthy: " + responseCode);
-                    mainHandler.post(() -> 
-                        callback.onError("Backend returned: " + responseCode)
+                    RingLog.e(TAG, "❌ Backend unhealthy", reply.code);
+                    deliver(task, () -> 
+                        callback.onError("Backend returned: " + reply.code)
                     );
                 }
                 
             } catch (Exception e) {
-                Log.e(TAG, "❌ Health check failed", e);
-                mainHandler.post(() -> 
-                    callback.onError("Cannot reach backend at " + BASE_URL)
+                RingLog.e(TAG, "❌ Health check failed", e);
+                deliver(task, () -> 
+                    callback.onError("Cannot reach backend at " + baseUrl)
                 );
-            } finally {
-                if (conn != null) {
-                    conn.disconnect();
-                }
             }
         });
     }
 
+    /**
+     * Open a pooled connection to the backend ahead of the first /chat, so DNS,
+     * TCP and the TLS handshake are paid while the user is still opening the
+     * overlay or typing. Connections opened later resume the TLS session from
+     * the platform session cache. Cheap to call on every touch: at most one
+     * warm-up request per PREWARM_INTERVAL_MS.
+     */
+    public void prewarm() {
+        long now = SystemClock.elapsedRealtime();
+        long last = lastPrewarmAt.get();
+        if (now - last < PREWARM_INTERVAL_MS || !lastPrewarmAt.compareAndSet(last, now)) {
+            return;
+        }
+        prewarmsSent.incrementAndGet();
+        scheduler.submitControl(task -> {
+            try {
+                StatusReply reply = requestStatus(null);
+                RingLog.d(TAG, "🔥 Connection warmed", reply.code);
+            } catch (Exception e) {
+                // Let the next touch try again
+                lastPrewarmAt.compareAndSet(now, Long.MIN_VALUE / 2);
+                RingLog.w(TAG, "⚠️ Warm-up failed", e);
+            }
+        });
+    }
+
+    public long getPrewarmsSent() {
+        return prewarmsSent.get();
+    }
+
+    // GET / - idempotent, so it may be hedged
+    private StatusReply requestStatus(Object tag) throws Exception {
+        HttpTransport.Response conn = null;
+        try {
+            conn = transport.execute(
+                HttpTransport.Request.get(baseUrl + "/")
+                    .timeouts(controlConnectTimeoutMs(), controlReadTimeoutMs("/"))
+                    .tag(tag)
+            );
+            int responseCode = conn.code();
+            if (responseCode != 200) {
+                return new StatusReply(responseCode, null);
+            }
+            return new StatusReply(200, ResponseDecoder.readStringField(conn.body(), "status"));
+        } finally {
+            closeQuietly(conn);
+        }
+    }
+
+    private static final class StatusReply {
+        final int code;
+        final String status;
+
+        StatusReply(int code, String status) {
+            this.code = code;
+            this.status = status;
+        }
+    }
+
     /**
      * Clear conversation history for this session
      */
     public void clearConversation(AICallback callback) {
-        executor.execute(() -> {
-            HttpURLConnection conn = null;
+        scheduler.submitControl(task -> {
             try {
-                Log.d(TAG, "🗑️ Clearing conversation...");
+                RingLog.d(TAG, "🗑️ Clearing conversation...");
                 
-                URL url = new URL(BASE_URL + "/clear");
-                conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("POST");
-                conn.setRequestProperty("Content-Type", "application/json");
-                conn.setDoOutput(true);
-                conn.setConnectTimeout(5000);
-                conn.setReadTimeout(5000);
-                
-                // Send session ID
-                JSONObject json = new JSONObject();
-                json.put("sessionId", sessionId);
-                
-                OutputStream os = conn.getOutputStream();
-                os.write(json.toString().getBytes("UTF-8"));
-                os.flush();
-                os.close();
-                
-                int responseCode = conn.getResponseCode();
+                int responseCode = executeHedged("/clear", this::requestClear);
                 
                 if (responseCode == 200) {
-                    Log.d(TAG, "✅ Conversation cleared");
-                    mainHandler.post(() -> callback.onSuccess("Conversation cleared"));
+                    conversationHash.set(EMPTY_CONVERSATION);
+                    RingLog.d(TAG, "✅ Conversation cleared");
+                    deliver(task, () -> callback.onSuccess("Conversation cleared"));
                 } else {
-                    Log.e(TAG, "❌ Clear failed: " + responseCode);
-                    mainHandler.post(() -> 
+                    RingLog.e(TAG, "❌ Clear failed", responseCode);
+                    deliver(task, () -> 
                         callback.onError("Failed to clear: " + responseCode)
                     );
                 }
                 
             } catch (Exception e) {
-                Log.e(TAG, "❌ Error clearing conversation", e);
-                mainHandler.post(() -> 
+                RingLog.e(TAG, "❌ Error clearing conversation", e);
+                deliver(task, () -> 
                     callback.onError("Error: " + e.getMessage())
                 );
-            } finally {
-                if (conn != null) {
-                    conn.disconnect();
-                }
             }
         });
     }
 
     /**
-     * Shutdown the executor service
+     * Enable (or with null, disable) the reply cache. Hits are answered without a request.
+     */
+    public void setResponseCache(ResponseCache cache) {
+        responseCache = cache;
+    }
+
+    /**
+     * Hit/miss/eviction counters, or null when no cache is set
+     */
+    public ResponseCache.Stats getCacheStats() {
+        ResponseCache cache = responseCache;
+        return cache != null ? cache.getStats() : null;
+    }
+
+    // Same prompt after the same turns maps to the same key - across sessions and
+    // restarts too, so a fresh conversation can reuse the disk tier. Chat lane only.
+    private String cacheKey(String message) {
+        return ResponseCache.key(message, Long.toHexString(conversationHash.get()));
+    }
+
+    // Fold a turn the backend answered into the conversation hash (FNV-1a).
+    // Cache hits are not folded: the backend never saw them.
+    private void recordTurn(String message, String reply) {
+        long hash = conversationHash.get();
+        hash = fnv1a(hash, message);
+        hash = fnv1a(hash, reply);
+        conversationHash.set(hash);
+    }
+
+    private static long fnv1a(long hash, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        // Separator, so ("ab", "c") and ("a", "bc") differ
+        hash ^= 0xffff;
+        return hash * 0x100000001b3L;
+    }
+
+    // Main thread. A send joins an identical in-flight one only if no other
+    // message was sent in between; otherwise it is a new turn.
+    private String flightKey(String message) {
+        if (!message.equals(lastSentMessage)) {
+            lastSentMessage = message;
+            sendGeneration++;
+        }
+        return sendGeneration + ":" + message;
+    }
+
+    // ========== ADAPTIVE TIMEOUTS & HEDGING ==========
+    // Static values are the defaults until enough latency samples exist
+
+    private int chatConnectTimeoutMs() {
+        return latency.connectTimeoutMs(transport.getMetrics(), 10000, 3000, 15000);
+    }
+
+    private int chatReadTimeoutMs() {
+        return latency.readTimeoutMs("/chat", 30000, 15000, 60000);
+    }
+
+    // One /chat read timeout per message, in long so large batches cannot overflow
+    private int batchReadTimeoutMs(int messages) {
+        return (int) Math.min(MAX_BATCH_READ_TIMEOUT_MS, (long) chatReadTimeoutMs() * messages);
+    }
+
+    // Connect times are per host, so every control call shares one timeout
+    private int controlConnectTimeoutMs() {
+        return latency.connectTimeoutMs(transport.getMetrics(), 5000, 2000, 10000);
+    }
+
+    private int controlReadTimeoutMs(String endpoint) {
+        return latency.readTimeoutMs(endpoint, 5000, 2000, 15000);
+    }
+
+    private interface Attempt<T> {
+        T run(Object tag) throws Exception;
+    }
+
+    /**
+     * Run an idempotent call. With hedging on, a duplicate is sent once the first
+     * attempt outlives the endpoint's p95; the first attempt to finish wins and the
+     * other one is cancelled.
+     */
+    private <T> T executeHedged(String endpoint, Attempt<T> attempt) throws Exception {
+        long hedgeAfterMs = hedging ? latency.p95Ms(endpoint) : -1;
+        if (hedgeAfterMs < 0) {
+            return timed(endpoint, attempt, null, new AtomicBoolean());
+        }
+
+        Object primaryTag = new Object();
+        Object hedgeTag = new Object();
+        // Set once a winner is in, so the cancelled loser is not recorded as a failure
+        AtomicBoolean settled = new AtomicBoolean();
+        ExecutorCompletionService<T> race = new ExecutorCompletionService<>(hedgeExecutor);
+        race.submit(() -> timed(endpoint, attempt, primaryTag, settled));
+
+        Future<T> first = race.poll(hedgeAfterMs, TimeUnit.MILLISECONDS);
+        if (first != null) {
+            settled.set(true);
+            return unwrap(first);
+        }
+
+        hedgesSent.incrementAndGet();
+        RingLog.d(TAG, "🏁 Hedging after ms", hedgeAfterMs);
+        race.submit(() -> timed(endpoint, attempt, hedgeTag, settled));
+
+        Exception failure = null;
+        for (int outstanding = 2; outstanding > 0; outstanding--) {
+            try {
+                T result = unwrap(race.take());
+                settled.set(true);
+                transport.cancel(primaryTag);
+                transport.cancel(hedgeTag);
+                return result;
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    private <T> T timed(String endpoint, Attempt<T> attempt, Object tag, AtomicBoolean settled) throws Exception {
+        long start = SystemClock.elapsedRealtime();
+        try {
+            T result = attempt.run(tag);
+            latency.record(endpoint, SystemClock.elapsedRealtime() - start);
+            return result;
+        } catch (Exception e) {
+            recordUnanswered(endpoint, e, settled.get(), start, controlReadTimeoutMs(endpoint));
+            throw e;
+        }
+    }
+
+    // A call that got no answer took at least its timeout: record it there (a
+    // censored sample) so the window is not built from successes alone.
+    // Cancelled calls say nothing about the backend and are skipped.
+    private void recordUnanswered(String endpoint, Exception e, boolean cancelled, long start, int timeoutMs) {
+        if (!cancelled && isUnreachable(e)) {
+            latency.record(endpoint, Math.max(timeoutMs, SystemClock.elapsedRealtime() - start));
+        }
+    }
+
+    private static <T> T unwrap(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Send hedged duplicates of slow idempotent calls (health, /clear). Off by default.
+     */
+    public void setHedging(boolean enabled) {
+        hedging = enabled;
+    }
+
+    /**
+     * Rolling p50/p95 per endpoint, as used for timeouts and hedging
+     */
+    public List<LatencyTracker.Snapshot> getLatencyStats() {
+        return latency.snapshots();
+    }
+
+    public long getHedgesSent() {
+        return hedgesSent.get();
+    }
+
+    /**
+     * Cancel queued and in-flight /chat requests, e.g. when the overlay is hidden.
+     * Their callbacks are never invoked.
+     */
+    public void cancelChatRequests() {
+        scheduler.cancelChat(sessionId);
+        transport.cancel(chatTag);
+        mainHandler.post(() -> {
+            singleFlight.clear();
+            mainHandler.removeCallbacks(debounceFlush);
+            debouncedMessages.clear();
+            debouncedCallback = null;
+        });
+        RingLog.d(TAG, "🛑 Chat requests cancelled");
+    }
+
+    // Post a result to the main thread unless the request was cancelled meanwhile
+    private void deliver(RequestScheduler.Task task, Runnable result) {
+        mainHandler.post(() -> {
+            if (!task.isCancelled()) {
+                result.run();
+            }
+        });
+    }
+
+    /**
+     * Connection reuse and bytes-on-the-wire counters of the underlying transport
+     */
+    public HttpTransport.Stats getConnectionStats() {
+        return transport.getStats();
+    }
+
+    /**
+     * DNS / connect / TLS / TTFB / body timings and error counts per endpoint
+     */
+    public NetworkMetrics getNetworkMetrics() {
+        return transport.getMetrics();
+    }
+
+    // Closing returns the connection to the pool instead of tearing it down
+    private static void closeQuietly(HttpTransport.Response response) {
+        if (response == null) {
+            return;
+        }
+        try {
+            response.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    /**
+     * Shutdown the request scheduler and transport
      */
     public void shutdown() {
         try {
-            executor.shutdown();
-            Log.d(TAG, "✅ API client shutdown");
+            scheduler.shutdown();
+            hedgeExecutor.shutdownNow();
+            transport.shutdown();
+            RingLog.d(TAG, "✅ API client shutdown");
         } catch (Exception e) {
-            Log.e(TAG, "❌ Error shutting down", e);
+            RingLog.e(TAG, "❌ Error shutting down", e);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,714 @@
+package com.smrutipanchsoft.zeni;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * On-device chat history: the overlay's conversations and the in-app chats.
+ * The overlay only keeps a recent window of messages in memory and pages older
+ * ones back in from here. One instance per process: OverlayService (":overlay")
+ * and OverlayModule (app process) each open the same database file, which
+ * SQLite's locking keeps consistent. When the overlay opens the app only the
+ * conversation id is handed over and the React side pages the messages
+ * straight from here.
+ *
+ * It is also the app's offline chat store: in-app chats are a row in chats
+ * plus their messages, so sending a message is one indexed insert instead of
+ * rewriting every chat, and a chat is read back by id without touching the
+ * others. In-app messages carry the app's message id and a synced flag:
+ * recorded messages are pending until the server has them, and replaceChat
+ * brings a chat in line with the server's copy without losing pending ones.
+ *
+ * Message text is indexed in an external-content FTS4 table kept in sync by
+ * triggers, so search never scans the log. Nothing is deleted behind the
+ * user's back: messages only go when their chat or conversation is deleted.
+ * Writes land in the WAL; every CHECKPOINT_EVERY_WRITES writes it is folded
+ * back into the database and truncated so it cannot grow without bound.
+ *
+ * Messages are keyed by conversation id and a per-conversation sequence number
+ * chosen by the caller, so ids are known before the row is written. All
+ * database work runs in order on one background thread - a page read always
+ * sees every write queued before it. Results are delivered on the main thread.
+ */
+public class ConversationStore {
+
+    private static final String TAG = "ConversationStore";
+    private static final String DB_NAME = "conversations.db";
+    private static final int DB_VERSION = 4;
+    private static final int CHECKPOINT_EVERY_WRITES = 1000;
+
+    // Where a message was written
+    public static final String SOURCE_OVERLAY = "overlay";
+    public static final String SOURCE_APP = "app";
+
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    public static class Record {
+        // Ignored by importChats and replaceChat, which pick the seq themselves
+        public final long seq;
+        // The app's id for in-app messages; null for overlay messages
+        public final String messageId;
+        public final boolean isUser;
+        public final String text;
+        public final String timestamp;
+
+        Record(long seq, String messageId, boolean isUser, String text, String timestamp) {
+            this.seq = seq;
+            this.messageId = messageId;
+            this.isUser = isUser;
+            this.text = text;
+            this.timestamp = timestamp;
+        }
+    }
+
+    public static class Hit {
+        public final String conversationId;
+        public final long seq;
+        public final String source;
+        public final boolean isUser;
+        public final String text;
+        public final String timestamp;
+        // Matched terms wrapped in [ ]
+        public final String snippet;
+
+        Hit(String conversationId, long seq, String source, boolean isUser,
+            String text, String timestamp, String snippet) {
+            this.conversationId = conversationId;
+            this.seq = seq;
+            this.source = source;
+            this.isUser = isUser;
+            this.text = text;
+            this.timestamp = timestamp;
+            this.snippet = snippet;
+        }
+    }
+
+    public static class Chat {
+        public final String id;
+        public final String title;
+        public final String createdAt;
+        // Oldest first; only the newest page from listChats
+        public final List<Record> messages;
+        public final boolean hasOlder;
+
+        Chat(String id, String title, String createdAt, List<Record> messages, boolean hasOlder) {
+            this.id = id;
+            this.title = title;
+            this.createdAt = createdAt;
+            this.messages = messages;
+            this.hasOlder = hasOlder;
+        }
+    }
+
+    // What replaceChat would compare against: the chat row and its synced messages
+    public static class Summary {
+        public final String id;
+        public final String title;
+        public final String createdAt;
+        public final int syncedCount;
+        // Null when nothing is synced or the newest synced message predates ids
+        public final String lastSyncedId;
+
+        Summary(String id, String title, String createdAt, int syncedCount, String lastSyncedId) {
+            this.id = id;
+            this.title = title;
+            this.createdAt = createdAt;
+            this.syncedCount = syncedCount;
+            this.lastSyncedId = lastSyncedId;
+        }
+    }
+
+    private static class Helper extends SQLiteOpenHelper {
+
+        Helper(Context context, String name) {
+            super(context, name, null, DB_VERSION);
+        }
+
+        @Override
+        public void onConfigure(SQLiteDatabase db) {
+            db.enableWriteAheadLogging();
+            // With WAL this only risks the last commits on power loss, not corruption
+            db.execSQL("PRAGMA synchronous = NORMAL");
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE messages ("
+                    + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "conversation_id TEXT NOT NULL, "
+                    + "seq INTEGER NOT NULL, "
+                    + "is_user INTEGER NOT NULL, "
+                    + "text TEXT NOT NULL, "
+                    + "timestamp TEXT, "
+                    + "source TEXT NOT NULL DEFAULT '" + SOURCE_OVERLAY + "', "
+                    + "message_id TEXT, "
+                    + "synced INTEGER NOT NULL DEFAULT 1, "
+                    + "UNIQUE (conversation_id, seq))");
+            createSearchIndex(db);
+            createChats(db);
+            createMessageIdIndex(db);
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            if (oldVersion < 2) {
+                db.execSQL("ALTER TABLE messages ADD COLUMN source TEXT NOT NULL DEFAULT '"
+                        + SOURCE_OVERLAY + "'");
+                createSearchIndex(db);
+                db.execSQL("INSERT INTO messages_fts(messages_fts) VALUES ('rebuild')");
+            }
+            if (oldVersion < 3) {
+                createChats(db);
+            }
+            if (oldVersion < 4) {
+                // Earlier in-app messages have no id and count as on the server
+                db.execSQL("ALTER TABLE messages ADD COLUMN message_id TEXT");
+                db.execSQL("ALTER TABLE messages ADD COLUMN synced INTEGER NOT NULL DEFAULT 1");
+                createMessageIdIndex(db);
+            }
+        }
+
+        // NULL ids (overlay messages) never collide
+        private static void createMessageIdIndex(SQLiteDatabase db) {
+            db.execSQL("CREATE UNIQUE INDEX messages_message_id ON messages (conversation_id, message_id)");
+        }
+
+        private static void createChats(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE chats ("
+                    + "id TEXT PRIMARY KEY, "
+                    + "title TEXT, "
+                    + "created_at TEXT)");
+        }
+
+        private static void createSearchIndex(SQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE messages_fts USING fts4("
+                    + "content=\"messages\", text, tokenize=unicode61)");
+            db.execSQL("CREATE TRIGGER messages_ai AFTER INSERT ON messages BEGIN "
+                    + "INSERT INTO messages_fts(docid, text) VALUES (new.id, new.text); END");
+            db.execSQL("CREATE TRIGGER messages_bd BEFORE DELETE ON messages BEGIN "
+                    + "DELETE FROM messages_fts WHERE docid = old.id; END");
+            db.execSQL("CREATE TRIGGER messages_bu BEFORE UPDATE ON messages BEGIN "
+                    + "DELETE FROM messages_fts WHERE docid = old.id; END");
+            db.execSQL("CREATE TRIGGER messages_au AFTER UPDATE ON messages BEGIN "
+                    + "INSERT INTO messages_fts(docid, text) VALUES (new.id, new.text); END");
+        }
+    }
+
+    private static ConversationStore instance;
+
+    private final Helper helper;
+    private final HandlerThread dbThread = new HandlerThread("ConversationStore");
+    private final Handler dbHandler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // dbThread only
+    private int writesSinceCheckpoint = 0;
+
+    public static synchronized ConversationStore get(Context context) {
+        if (instance == null) {
+            instance = new ConversationStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ConversationStore(Context context) {
+        this(context, DB_NAME);
+    }
+
+    // A separate database, for tests and benchmarks
+    ConversationStore(Context context, String dbName) {
+        helper = new Helper(context, dbName);
+        dbThread.start();
+        dbHandler = new Handler(dbThread.getLooper());
+    }
+
+    public String newConversation() {
+        return UUID.randomUUID().toString();
+    }
+
+    public void append(String conversationId, long seq, boolean isUser, String text, String timestamp) {
+        dbHandler.post(() -> {
+            try {
+                ContentValues values = new ContentValues();
+                values.put("conversation_id", conversationId);
+                values.put("seq", seq);
+                values.put("is_user", isUser ? 1 : 0);
+                values.put("text", text);
+                values.put("timestamp", timestamp);
+                values.put("source", SOURCE_OVERLAY);
+                SQLiteDatabase db = helper.getWritableDatabase();
+                // Not REPLACE: its implicit delete skips the FTS delete trigger
+                // and would leave the old text searchable
+                if (db.insertWithOnConflict("messages", null, values, SQLiteDatabase.CONFLICT_IGNORE) == -1) {
+                    db.update("messages", values, "conversation_id = ? AND seq = ?",
+                            new String[]{conversationId, Long.toString(seq)});
+                }
+                onWrite();
+            } catch (Exception e) {
+                RingLog.e(TAG, "❌ Could not store message", e);
+            }
+        });
+    }
+
+    /**
+     * Append after the newest message of a conversation, for callers that do not
+     * track sequence numbers themselves (the in-app chats). The message is
+     * pending until markSynced.
+     */
+    public void appendNext(String conversationId, String messageId, String source,
+                           boolean isUser, String text, String timestamp) {
+        dbHandler.post(() -> {
+            try {
+                insertNext(helper.getWritableDatabase(), conversationId, messageId, source, isUser, text, timestamp);
+                onWrite();
+            } catch (Exception e) {
+                RingLog.e(TAG, "❌ Could not store message", e);
+            }
+        });
+    }
+
+    // dbThread - a pending message after the newest one; ignored if its id is already there
+    private static void insertNext(SQLiteDatabase db, String conversationId, String messageId, String source,
+                                   boolean isUser, String text, String timestamp) {
+        db.execSQL("INSERT OR IGNORE INTO messages "
+                + "(conversation_id, seq, message_id, is_user, text, timestamp, source, synced) "
+                + "SELECT ?, COALESCE(MAX(seq), -1) + 1, ?, ?, ?, ?, ?, 0 "
+                + "FROM messages WHERE conversation_id = ?",
+                new Object[]{conversationId, messageId, isUser ? 1 : 0, text, timestamp, source, conversationId});
+    }
+
+    /**
+     * The server has this message now.
+     */
+    public void markSynced(String conversationId, String messageId) {
+        dbHandler.post(() -> {
+            try {
+                ContentValues values = new ContentValues();
+                values.put("synced", 1);
+                helper.getWritableDatabase().update("messages", values,
+                        "conversation_id = ? AND message_id = ?",
+                        new String[]{conversationId, messageId});
+                onWrite();
+            } catch (Exception e) {
+                RingLog.e(TAG, "❌ Could not mark message synced", e);
+            }
+        });
+    }
+
+    /**
+     * Replace the text of a stored message, e.g. once a streamed reply is complete.
+     */
+    public void updateText(String conversationId, long seq, String text) {
+        dbHandler.post(() -> {
+            try {
+                ContentValues values = new ContentValues();
+                values.put("text", text);
+                helper.getWritableDatabase().update("messages", values,
+                        "conversation_id = ? AND seq = ?",
+                        new String[]{conversationId, Long.toString(seq)});
+                onWrite();
+            } catch (Exception e) {
+                RingLog.e(TAG, "❌ Could not update message", e);
+            }
+        });
+    }
+
+    /**
+     * Up to limit messages older than beforeSeq, oldest first.
+     */
+    public void loadBefore(String conversationId, long beforeSeq, int limit, Callback<List<Record>> callback) {
+        dbHandler.post(() -> {
+            List<Record> page = queryBefore(conversationId, beforeSeq, limit);
+            mainHandler.post(() -> callback.onResult(page));
+        });
+    }
+
+    // dbThread - walks the (conversation_id, seq) index backwards from beforeSeq
+    private List<Record> queryBefore(String conversationId, long beforeSeq, int limit) {
+        List<Record> page = new ArrayList<>();
+        try (Cursor cursor = helper.getReadableDatabase().query("messages",
+                RECORD_COLUMNS,
+                "conversation_id = ? AND seq < ?",
+                new String[]{conversationId, Long.toString(beforeSeq)},
+                null, null, "seq DESC", Integer.toString(limit))) {
+            while (cursor.moveToNext()) {
+                page.add(toRecord(cursor, 0));
+            }
+        } catch (Exception e) {
+            RingLog.e(TAG, "❌ Could not load messages", e);
+        }
+        Collections.reverse(page);
+        return page;
+    }
+
+    private static final String[] RECORD_COLUMNS = {"seq", "message_id", "is_user", "text", "timestamp"};
+
+    // RECORD_COLUMNS, starting at column from
+    private static Record toRecord(Cursor cursor, int from) {
+        return new Record(cursor.getLong(from), cursor.getString(from + 1), cursor.getInt(from + 2) != 0,
+                cursor.getString(from + 3), cursor.getString(from + 4));
+    }
+
+    /**
+     * Create or rename an in-app chat.
+     */
+    public void saveChat(String id, String title, String createdAt) {
+        dbHandler.post(() -> {
+            try {
+                putChat(helper.getWritableDatabase(), id, title, createdAt, SQLiteDatabase.CONFLICT_REPLACE);
+                onWrite();
+            } catch (Exception e) {
+                RingLog.e(TAG, "❌ Could not store chat", e);
+            }
+        });
+    }
+
+    // dbThread
+    private static void putChat(SQLiteDatabase db, String id, String title, String createdAt, int conflict) {
+        ContentValues values = new ContentValues();
+        values.put("id", id);
+        values.put("title", title);
+        values.put("created_at", createdAt);
+        db.insertWithOnConflict("chats", null, values, conflict);
+    }
+
+    /**
+     * Every in-app chat, oldest first, each with its newest messagesPerChat
+     * messages; hasOlder says whether loadBefore has more. One query.
+     */
+    public void listChats(int messagesPerChat, Callback<List<Chat>> callback) {
+        // The seq one past the page (one extra row tells whether older messages
+        // exist); a shorter chat has none and is read whole, from seq 0
+        queryChats("m.seq >= COALESCE((SELECT s.seq FROM messages s WHERE s.conversation_id = c.id "
+                + "ORDER BY s.seq DESC LIMIT 1 OFFSET " + messagesPerChat + "), 0)", messagesPerChat, callback);
+    }
+
+    /**
+     * Every in-app chat, oldest first, each with all of its messages - the
+     * full copy, for uploading it. One query.
+     */
+    public void exportChats(Callback<List<Chat>> callback) {
+        queryChats("1", Integer.MAX_VALUE, callback);
+    }
+
+    private void queryChats(String messageFilter, int messagesPerChat, Callback<List<Chat>> callback) {
+        dbHandler.post(() -> {
+            List<Chat> chats = new ArrayList<>();
+            try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                    "SELECT c.id, c.title, c.created_at, m.seq, m.message_id, m.is_user, m.text, m.timestamp "
+                            + "FROM chats c LEFT JOIN messages m ON m.conversation_id = c.id AND " + messageFilter
+                            + " ORDER BY c.created_at, c.id, m.seq", null)) {
+                String id = null;
+                String title = null;
+                String createdAt = null;
+                List<Record> messages = null;
+                while (cursor.moveToNext()) {
+                    if (!cursor.getString(0).equals(id)) {
+                        if (id != null) {
+                            chats.add(toChat(id, title, createdAt, messages, messagesPerChat));
+                        }
+                        id = cursor.getString(0);
+                        title = cursor.getString(1);
+                        createdAt = cursor.getString(2);
+                        messages = new ArrayList<>();
+                    }
+                    // A chat without messages joins to one all-NULL row
+                    if (!cursor.isNull(3)) {
+                        messages.add(toRecord(cursor, 3));
+                    }
+                }
+                if (id != null) {
+                    chats.add(toChat(id, title, createdAt, messages, messagesPerChat));
+                }
+            } catch (Exception e) {
+                RingLog.e(TAG, "❌ Could not load chats", e);
+            }
+            mainHandler.post(() -> callback.onResult(chats));
+        });
+    }
+
+    private static Chat toChat(String id, String title, String createdAt, List<Record> messages, int limit) {
+        boolean hasOlder = messages.size() > limit;
+        if (hasOlder) {
+            messages.remove(0);
+        }
+        return new Chat(id, title, createdAt, messages, hasOlder);
+    }
+
+    /**
+     * Per chat, how many messages are synced and the id of the newest one, so
+     * the server's copy can be compared without reading any messages.
+     */
+    public void chatSummaries(Callback<List<Summary>> callback) {
+        dbHandler.post(() -> {
+            List<Summary> summaries = new ArrayList<>();
+            try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                    "SELECT c.id, c.title, c.created_at, "
+                            + "(SELECT COUNT(*) FROM messages WHERE conversation_id = c.id AND synced = 1), "
+                            + "(SELECT message_id FROM messages WHERE conversation_id = c.id AND synced = 1 "
+                            + "ORDER BY seq DESC LIMIT 1) "
+                            + "FROM chats c", null)) {
+                while (cursor.moveToNext()) {
+                    summaries.add(new Summary(cursor.getString(0), cursor.getString(1), cursor.getString(2),
+                            cursor.getInt(3), cursor.getString(4)));
+                }
+            } catch (Exception e) {
+                RingLog.e(TAG, "❌ Could not summarize chats", e);
+            }
+            mainHandler.post(() -> callback.onResult(summaries));
+        });
+    }
+
+    /**
+     * Bring one chat in line with the server's copy in a single transaction:
+     * leading rows that already match the server are kept, the other synced
+     * rows are replaced by the server's messages, and pending messages the
+     * server does not have yet stay, after them. Reports false on failure.
+     */
+    public void replaceChat(String id, String title, String createdAt, List<Record> messages,
+                            Callback<Boolean> callback) {
+        dbHandler.post(() -> {
+            boolean ok = false;
+            SQLiteDatabase db = helper.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                putChat(db, id, title, createdAt, SQLiteDatabase.CONFLICT_REPLACE);
+
+                int prefix = 0;
+                long lastPrefixSeq = -1;
+                try (Cursor cursor = db.query("messages", new String[]{"seq", "message_id", "synced"},
+                        "conversation_id = ?", new String[]{id}, null, null, "seq")) {
+                    while (cursor.moveToNext() && prefix < messages.size()
+                            && cursor.getInt(2) != 0
+                            && cursor.getString(1) != null
+                            && cursor.getString(1).equals(messages.get(prefix).messageId)) {
+                        lastPrefixSeq = cursor.getLong(0);
+                        prefix++;
+                    }
+                }
+                db.delete("messages", "conversation_id = ? AND synced = 1 AND seq > ?",
+                        new String[]{id, Long.toString(lastPrefixSeq)});
+
+                Set<String> serverIds = new HashSet<>();
+                for (Record message : messages) {
+                    serverIds.add(message.messageId);
+                }
+                List<Long> pending = new ArrayList<>();
+                try (Cursor cursor = db.query("messages", new String[]{"id", "message_id"},
+                        "conversation_id = ? AND synced = 0", new String[]{id}, null, null, "seq")) {
+                    while (cursor.moveToNext()) {
+                        if (serverIds.contains(cursor.getString(1))) {
+                            db.delete("messages", "id = ?", new String[]{Long.toString(cursor.getLong(0))});
+                        } else {
+                            pending.add(cursor.getLong(0));
+                        }
+                    }
+                }
+
+                // Pending messages move behind the server's; negative first so no two rows share a seq
+                long nextSeq = lastPrefixSeq + 1 + messages.size() - prefix;
+                if (!pending.isEmpty()) {
+                    db.execSQL("UPDATE messages SET seq = -1 - seq WHERE conversation_id = ? AND synced = 0",
+                            new Object[]{id});
+                    for (int i = 0; i < pending.size(); i++) {
+                        db.execSQL("UPDATE messages SET seq = ? WHERE id = ?",
+                                new Object[]{nextSeq + i, pending.get(i)});
+                    }
+                }
+
+                for (int i = prefix; i < messages.size(); i++) {
+                    Record message = messages.get(i);
+                    ContentValues values = new ContentValues();
+                    values.put("conversation_id", id);
+                    values.put("seq", lastPrefixSeq + 1 + i - prefix);
+                    values.put("message_id", message.messageId);
+                    values.put("is_user", message.isUser ? 1 : 0);
+                    values.put("text", message.text);
+                    values.put("timestamp", message.timestamp);
+                    values.put("source", SOURCE_APP);
+                    values.put("synced", 1);
+                    db.insertWithOnConflict("messages", null, values, SQLiteDatabase.CONFLICT_IGNORE);
+                }
+                db.setTransactionSuccessful();
+                ok = true;
+            } catch (Exception e) {
+                RingLog.e(TAG, "❌ Could not replace chat", e);
+            } finally {
+                db.endTransaction();
+            }
+            onWrite();
+            boolean result = ok;
+            mainHandler.post(() -> callback.onResult(result));
+        });
+    }
+
+    /**
+     * Bulk-insert chats with their own message ids, as pending messages after
+     * whatever is stored already. Messages whose id is already there are
+     * skipped, so importing the same chats twice is harmless. One transaction;
+     * reports false on failure.
+     */
+    public void importChats(List<Chat> chats, Callback<Boolean> callback) {
+        dbHandler.post(() -> {
+            boolean ok = false;
+            SQLiteDatabase db = helper.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (Chat chat : chats) {
+                    putChat(db, chat.id, chat.title, chat.createdAt, SQLiteDatabase.CONFLICT_IGNORE);
+                    for (Record message : chat.messages) {
+                        insertNext(db, chat.id, message.messageId, SOURCE_APP,
+                                message.isUser, message.text, message.timestamp);
+                    }
+                }
+                db.setTransactionSuccessful();
+                ok = true;
+            } catch (Exception e) {
+                RingLog.e(TAG, "❌ Could not import chats", e);
+            } finally {
+                db.endTransaction();
+            }
+            onWrite();
+            boolean result = ok;
+            mainHandler.post(() -> callback.onResult(result));
+        });
+    }
+
+    /**
+     * Full-text search over all conversations, newest match first. Every word of
+     * the query must match, the last one as a prefix so results follow typing.
+     */
+    public void search(String query, int limit, int offset, Callback<List<Hit>> callback) {
+        String match = toMatchQuery(query);
+        dbHandler.post(() -> {
+            List<Hit> hits = new ArrayList<>();
+            if (match != null) {
+                try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                        "SELECT m.conversation_id, m.seq, m.source, m.is_user, m.text, m.timestamp, "
+                                + "snippet(messages_fts, '[', ']', '…', -1, 12) "
+                                + "FROM messages_fts JOIN messages m ON m.id = messages_fts.docid "
+                                + "WHERE messages_fts MATCH ? ORDER BY m.id DESC LIMIT ? OFFSET ?",
+                        new String[]{match, Integer.toString(limit), Integer.toString(offset)})) {
+                    while (cursor.moveToNext()) {
+                        hits.add(new Hit(cursor.getString(0), cursor.getLong(1), cursor.getString(2),
+                                cursor.getInt(3) != 0, cursor.getString(4), cursor.getString(5),
+                                cursor.getString(6)));
+                    }
+                } catch (Exception e) {
+                    RingLog.e(TAG, "❌ Could not search history", e);
+                }
+            }
+            mainHandler.post(() -> callback.onResult(hits));
+        });
+    }
+
+    // Letters and digits only, lower-cased so AND/OR/NOT/NEAR stay plain words; null when nothing is left
+    static String toMatchQuery(String query) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        int i = 0;
+        int length = query.length();
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(query.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(query.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                match.append(query.substring(start, i).toLowerCase(Locale.ROOT));
+            }
+        }
+        if (match.length() == 0) {
+            return null;
+        }
+        // Prefix match on the last word only
+        return match.append('*').toString();
+    }
+
+    /**
+     * Finish queued work and close the database. Only for stores opened with a
+     * name of their own; the shared instance lives as long as its process.
+     */
+    void close() {
+        dbHandler.post(() -> {
+            helper.close();
+            dbThread.quit();
+        });
+        try {
+            dbThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Drop every in-app chat and its messages, in one transaction. Overlay
+     * conversations stay.
+     */
+    public void deleteAllChats() {
+        dbHandler.post(() -> {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                // By source too: messages recorded for a chat that never got a row
+                db.delete("messages", "source = ? OR conversation_id IN (SELECT id FROM chats)",
+                        new String[]{SOURCE_APP});
+                db.delete("chats", null, null);
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                RingLog.e(TAG, "❌ Could not delete chats", e);
+            } finally {
+                db.endTransaction();
+            }
+            onWrite();
+        });
+    }
+
+    public void delete(String conversationId) {
+        dbHandler.post(() -> {
+            try {
+                SQLiteDatabase db = helper.getWritableDatabase();
+                db.delete("messages", "conversation_id = ?", new String[]{conversationId});
+                db.delete("chats", "id = ?", new String[]{conversationId});
+                onWrite();
+            } catch (Exception e) {
+                RingLog.e(TAG, "❌ Could not delete conversation", e);
+            }
+        });
+    }
+
+    // dbThread - fold the WAL back into the database every so many writes
+    private void onWrite() {
+        if (++writesSinceCheckpoint < CHECKPOINT_EVERY_WRITES) {
+            return;
+        }
+        writesSinceCheckpoint = 0;
+        try (Cursor cursor = helper.getWritableDatabase().rawQuery("PRAGMA wal_checkpoint(TRUNCATE)", null)) {
+            cursor.moveToFirst();
+        } catch (Exception e) {
+            RingLog.e(TAG, "❌ Could not checkpoint history", e);
+        }
+    }
+}
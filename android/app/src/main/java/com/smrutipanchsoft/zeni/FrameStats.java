@@ -0,0 +1,66 @@
+package com.smrutipanchsoft.zeni;
+
+import android.view.Choreographer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Frame durations of a view while it is being scrolled or animated.
+ *
+ * Recording is driven by Choreographer and only runs between start() and
+ * stop(), so an idle overlay costs nothing. Durations go into a fixed-memory
+ * LatencyHistogram; frames longer than 1.5 vsync intervals count as janky.
+ * Main thread only, snapshots may be read from any thread.
+ */
+public class FrameStats implements Choreographer.FrameCallback {
+
+    private final long jankThresholdNanos;
+    private final LatencyHistogram frames = new LatencyHistogram();
+    private final AtomicLong janky = new AtomicLong();
+
+    private boolean running = false;
+    private long lastFrameNanos = 0;
+
+    public FrameStats(float refreshRate) {
+        float rate = refreshRate > 0 ? refreshRate : 60f;
+        jankThresholdNanos = (long) (1.5 * 1_000_000_000L / rate);
+    }
+
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        lastFrameNanos = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    public void stop() {
+        running = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+        if (lastFrameNanos != 0) {
+            long duration = frameTimeNanos - lastFrameNanos;
+            frames.record(duration / 1_000_000);
+            if (duration > jankThresholdNanos) {
+                janky.incrementAndGet();
+            }
+        }
+        lastFrameNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    public long jankyFrames() {
+        return janky.get();
+    }
+
+    public LatencyHistogram histogram() {
+        return frames;
+    }
+}
@@ -0,0 +1,106 @@
+package com.smrutipanchsoft.zeni;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Transport used by AIApiClient to talk to the backend.
+ * Implementations own connection reuse; callers must close every Response.
+ */
+public interface HttpTransport {
+
+    Response execute(Request request) throws IOException;
+
+    // Abort every queued or running call that was sent with this tag
+    void cancel(Object tag);
+
+    Stats getStats();
+
+    // Per-endpoint phase timings and error counts
+    NetworkMetrics getMetrics();
+
+    void shutdown();
+
+    // Outgoing request - built with the fluent setters below
+    final class Request {
+        final String method;
+        final String url;
+        final Map<String, String> headers = new LinkedHashMap<>();
+        final byte[] body;
+        int connectTimeoutMs = 10000;
+        int readTimeoutMs = 30000;
+        Object tag;
+
+        private Request(String method, String url, byte[] body) {
+            this.method = method;
+            this.url = url;
+            this.body = body;
+        }
+
+        public static Request get(String url) {
+            return new Request("GET", url, null);
+        }
+
+        public static Request post(String url, byte[] body) {
+            return new Request("POST", url, body);
+        }
+
+        public Request header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+
+        public Request tag(Object tag) {
+            this.tag = tag;
+            return this;
+        }
+
+        public Request timeouts(int connectTimeoutMs, int readTimeoutMs) {
+            this.connectTimeoutMs = connectTimeoutMs;
+            this.readTimeoutMs = readTimeoutMs;
+            return this;
+        }
+    }
+
+    interface Response extends Closeable {
+        int code();
+
+        String header(String name);
+
+        InputStream body() throws IOException;
+    }
+
+    // Connection reuse counters, snapshot at the time of the call
+    final class Stats {
+        public final long requests;
+        public final long connectionsOpened;
+        public final long connectionsReused;
+        public final long http2Requests;
+        // Body bytes as sent/received on the wire, i.e. before gzip decoding
+        public final long requestBodyBytes;
+        public final long responseBodyBytes;
+
+        public Stats(long requests, long connectionsOpened, long connectionsReused, long http2Requests,
+                     long requestBodyBytes, long responseBodyBytes) {
+            this.requests = requests;
+            this.connectionsOpened = connectionsOpened;
+            this.connectionsReused = connectionsReused;
+            this.http2Requests = http2Requests;
+            this.requestBodyBytes = requestBodyBytes;
+            this.responseBodyBytes = responseBodyBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "requests=" + requests
+                    + " opened=" + connectionsOpened
+                    + " reused=" + connectionsReused
+                    + " h2=" + http2Requests
+                    + " sent=" + requestBodyBytes + "B"
+                    + " received=" + responseBodyBytes + "B";
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.smrutipanchsoft.zeni;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory millisecond histogram in the HDR style: exact below 16 ms, then
+ * 16 linear sub-buckets per power of two, so every bucket is within 6.25% of
+ * the true value. Covers 0 ms to ~262 s in 240 counters; larger values land in
+ * the last bucket. Recording is lock-free.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 17;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long millis) {
+        if (millis < 0) {
+            return;
+        }
+        counts.incrementAndGet(indexOf(millis));
+        total.incrementAndGet();
+        sum.addAndGet(millis);
+        long previous;
+        while (millis > (previous = max.get()) && !max.compareAndSet(previous, millis)) {
+            // Lost a race with another writer - re-read and retry
+        }
+    }
+
+    public long count() {
+        return total.get();
+    }
+
+    public long maxMs() {
+        return max.get();
+    }
+
+    public long meanMs() {
+        long n = total.get();
+        return n == 0 ? -1 : sum.get() / n;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile (0-100), or -1 when empty.
+     */
+    public long percentileMs(double percentile) {
+        long n = total.get();
+        if (n == 0) {
+            return -1;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (value >> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+    }
+}
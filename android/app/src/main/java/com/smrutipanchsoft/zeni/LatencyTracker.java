@@ -0,0 +1,116 @@
+package com.smrutipanchsoft.zeni;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rolling latency window per endpoint (last WINDOW calls) and the
+ * timeout/hedging policy derived from it. A call that got no answer is
+ * recorded at its timeout (a censored sample: it took at least that long), so
+ * the window does not drift low on a bad network. Until MIN_SAMPLES calls have
+ * been seen, callers get their static defaults.
+ */
+public class LatencyTracker {
+
+    private static final int WINDOW = 64;
+    private static final int MIN_SAMPLES = 8;
+
+    // Timeouts are a multiple of the observed tail, clamped by the caller's bounds
+    private static final int CONNECT_TIMEOUT_FACTOR = 2;
+    private static final int READ_TIMEOUT_FACTOR = 3;
+
+    public static class Snapshot {
+        public final String endpoint;
+        public final int samples;
+        public final long p50Ms;
+        public final long p95Ms;
+
+        Snapshot(String endpoint, int samples, long p50Ms, long p95Ms) {
+            this.endpoint = endpoint;
+            this.samples = samples;
+            this.p50Ms = p50Ms;
+            this.p95Ms = p95Ms;
+        }
+
+        @Override
+        public String toString() {
+            return endpoint + " n=" + samples + " p50=" + p50Ms + "ms p95=" + p95Ms + "ms";
+        }
+    }
+
+    private static class Window {
+        final long[] samples = new long[WINDOW];
+        int count = 0;
+        int next = 0;
+    }
+
+    // Guarded by "this"
+    private final Map<String, Window> windows = new HashMap<>();
+
+    public synchronized void record(String endpoint, long millis) {
+        Window window = windows.get(endpoint);
+        if (window == null) {
+            window = new Window();
+            windows.put(endpoint, window);
+        }
+        window.samples[window.next] = millis;
+        window.next = (window.next + 1) % WINDOW;
+        window.count = Math.min(window.count + 1, WINDOW);
+    }
+
+    public synchronized Snapshot snapshot(String endpoint) {
+        Window window = windows.get(endpoint);
+        if (window == null || window.count == 0) {
+            return new Snapshot(endpoint, 0, -1, -1);
+        }
+        long[] sorted = Arrays.copyOf(window.samples, window.count);
+        Arrays.sort(sorted);
+        return new Snapshot(endpoint, window.count, percentile(sorted, 0.50), percentile(sorted, 0.95));
+    }
+
+    public synchronized List<Snapshot> snapshots() {
+        List<Snapshot> all = new ArrayList<>();
+        for (String endpoint : windows.keySet()) {
+            all.add(snapshot(endpoint));
+        }
+        return all;
+    }
+
+    /**
+     * p95 of the endpoint, or -1 while there are not enough samples to trust it.
+     */
+    public long p95Ms(String endpoint) {
+        Snapshot snapshot = snapshot(endpoint);
+        return snapshot.samples >= MIN_SAMPLES ? snapshot.p95Ms : -1;
+    }
+
+    /**
+     * Connect timeout from the transport's host-wide connect phase (TCP plus TLS,
+     * failed attempts included) - not from whole-call latency, which is mostly
+     * server time.
+     */
+    public int connectTimeoutMs(NetworkMetrics metrics, int fallback, int min, int max) {
+        long p95 = metrics.connectCount() >= MIN_SAMPLES ? metrics.connectPercentileMs(95) : -1;
+        return derive(p95, CONNECT_TIMEOUT_FACTOR, fallback, min, max);
+    }
+
+    public int readTimeoutMs(String endpoint, int fallback, int min, int max) {
+        return derive(p95Ms(endpoint), READ_TIMEOUT_FACTOR, fallback, min, max);
+    }
+
+    private static int derive(long p95, int factor, int fallback, int min, int max) {
+        if (p95 < 0) {
+            return fallback;
+        }
+        return (int) Math.max(min, Math.min(max, p95 * factor));
+    }
+
+    // Nearest-rank percentile of an ascending array
+    private static long percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+}
@@ -1,5 +1,6 @@
 package com.smrutipanchsoft.zeni
 
+import android.content.Intent
 import android.os.Build
 import android.os.Bundle
 
@@ -17,6 +18,15 @@ class MainActivity : ReactActivity() {
     super.onCreate(null)
   }
 
+  /**
+   * Keep the newest intent so OverlayModule sees the overlay's conversation id
+   * when an already running activity is brought to front.
+   */
+  override fun onNewIntent(intent: Intent) {
+    super.onNewIntent(intent)
+    setIntent(intent)
+  }
+
   /**
    * Returns the name of the main component registered from JavaScript.
    */
@@ -1,6 +1,7 @@
 package com.smrutipanchsoft.zeni
 
 import android.app.Application
+import android.os.Build
 import com.facebook.react.PackageList
 import com.facebook.react.ReactApplication
 import com.facebook.react.ReactHost
@@ -13,36 +14,58 @@ import com.facebook.react.soloader.OpenSourceMergedSoMapping
 import com.facebook.soloader.SoLoader
 import expo.modules.ApplicationLifecycleDispatcher
 import expo.modules.ReactNativeHostWrapper
+import java.io.File
 import com.smrutipanchsoft.zeni.OverlayPackage
 
 class MainApplication : Application(), ReactApplication {
 
-  override val reactNativeHost: ReactNativeHost = ReactNativeHostWrapper(
-    this,
-    object : DefaultReactNativeHost(this) {
-      override fun getPackages(): List<ReactPackage> =
-        PackageList(this).packages.apply {
-          // ========== ADD THIS LINE ========== 
-          add(OverlayPackage())
-        }
+  // Lazy: the overlay process never creates it
+  override val reactNativeHost: ReactNativeHost by lazy {
+    ReactNativeHostWrapper(
+      this,
+      object : DefaultReactNativeHost(this) {
+        override fun getPackages(): List<ReactPackage> =
+          PackageList(this).packages.apply {
+            // ========== ADD THIS LINE ========== 
+            add(OverlayPackage())
+          }
 
-      override fun getJSMainModuleName(): String = ".expo/.virtual-metro-entry"
+        override fun getJSMainModuleName(): String = ".expo/.virtual-metro-entry"
 
-      override fun getUseDeveloperSupport(): Boolean = BuildConfig.DEBUG
+        override fun getUseDeveloperSupport(): Boolean = BuildConfig.DEBUG
 
-      override val isNewArchEnabled: Boolean = BuildConfig.IS_NEW_ARCHITECTURE_ENABLED
-      override val isHermesEnabled: Boolean = BuildConfig.IS_HERMES_ENABLED
-  })
+        override val isNewArchEnabled: Boolean = BuildConfig.IS_NEW_ARCHITECTURE_ENABLED
+        override val isHermesEnabled: Boolean = BuildConfig.IS_HERMES_ENABLED
+    })
+  }
 
   override val reactHost: ReactHost
     get() = getDefaultReactHost(applicationContext, reactNativeHost)
 
   override fun onCreate() {
     super.onCreate()
+    // OverlayService runs in ":overlay" and is plain Java - keep React Native and Hermes out of it
+    if (isOverlayProcess()) {
+      return
+    }
     SoLoader.init(this, OpenSourceMergedSoMapping)
     if (BuildConfig.IS_NEW_ARCHITECTURE_ENABLED) {
       load()
     }
     ApplicationLifecycleDispatcher.onApplicationCreate(this)
   }
-}
\ No newline at end of file
+
+  private fun isOverlayProcess(): Boolean {
+    val processName = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+      Application.getProcessName()
+    } else {
+      File("/proc/self/cmdline").readText().trim('\u0000')
+    }
+    return processName.endsWith(OVERLAY_PROCESS_SUFFIX)
+  }
+
+  companion object {
+    // Must match android:process of OverlayService in the manifest
+    private const val OVERLAY_PROCESS_SUFFIX = ":overlay"
+  }
+}
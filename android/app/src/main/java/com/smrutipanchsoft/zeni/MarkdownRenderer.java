@@ -0,0 +1,250 @@
+package com.smrutipanchsoft.zeni;
+
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.SpannedString;
+import android.text.style.BackgroundColorSpan;
+import android.text.style.StyleSpan;
+import android.text.style.TypefaceSpan;
+import android.text.style.URLSpan;
+
+/**
+ * Single-pass Markdown to Spanned renderer for AI replies.
+ * Handles **bold**, *italic*, `inline code`, ``` code blocks, [links](url),
+ * bullet ("• ", "- ", "* ") and numbered ("1. ") lists.
+ *
+ * Rendering is incremental: every complete line is rendered once and kept,
+ * only the trailing partial line is re-rendered as streamed tokens arrive.
+ * The rendered text is cached until the source changes, so rebinding a row
+ * while scrolling costs nothing. Main thread only.
+ */
+public class MarkdownRenderer {
+
+    private static final String FENCE = "```";
+    private static final String BULLET = "• ";
+    private static final int CODE_BACKGROUND = Color.parseColor("#1A000000");
+
+    private final StringBuilder source = new StringBuilder();
+    private final SpannableStringBuilder output = new SpannableStringBuilder();
+
+    // Everything before these offsets is complete lines and never re-rendered
+    private int committedSource = 0;
+    private int committedOutput = 0;
+    private boolean inCodeBlock = false;
+    private boolean hasLines = false;
+
+    private Spanned snapshot;
+
+    public MarkdownRenderer() {
+    }
+
+    public MarkdownRenderer(String text) {
+        append(text);
+    }
+
+    public void append(String text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        source.append(text);
+        render();
+    }
+
+    /**
+     * Replace the source. When the new text extends the current one (the final
+     * reply of a stream) only the new suffix is rendered.
+     */
+    public void setText(String text) {
+        if (text == null) {
+            text = "";
+        }
+        if (text.length() >= source.length() && text.startsWith(source.toString())) {
+            append(text.substring(source.length()));
+            return;
+        }
+        source.setLength(0);
+        output.clear();
+        output.clearSpans();
+        committedSource = 0;
+        committedOutput = 0;
+        inCodeBlock = false;
+        hasLines = false;
+        snapshot = null;
+        append(text);
+    }
+
+    public String getSource() {
+        return source.toString();
+    }
+
+    public Spanned getSpanned() {
+        if (snapshot == null) {
+            snapshot = new SpannedString(output);
+        }
+        return snapshot;
+    }
+
+    private void render() {
+        snapshot = null;
+        dropTail();
+
+        int start = committedSource;
+        int newline;
+        while ((newline = source.indexOf("\n", start)) >= 0) {
+            renderLine(start, newline);
+            start = newline + 1;
+            committedSource = start;
+            committedOutput = output.length();
+        }
+
+        // Provisional tail - replaced on the next append
+        if (start < source.length()) {
+            boolean codeState = inCodeBlock;
+            boolean linesState = hasLines;
+            renderLine(start, source.length());
+            inCodeBlock = codeState;
+            hasLines = linesState;
+        }
+    }
+
+    private void dropTail() {
+        if (output.length() == committedOutput) {
+            return;
+        }
+        for (Object span : output.getSpans(committedOutput, output.length(), Object.class)) {
+            if (output.getSpanStart(span) >= committedOutput) {
+                output.removeSpan(span);
+            }
+        }
+        output.delete(committedOutput, output.length());
+    }
+
+    private void renderLine(int start, int end) {
+        if (startsWith(start, end, FENCE)) {
+            inCodeBlock = !inCodeBlock;
+            return;
+        }
+
+        if (hasLines) {
+            output.append('\n');
+        }
+        hasLines = true;
+
+        if (inCodeBlock) {
+            int from = output.length();
+            output.append(source, start, end);
+            setSpan(new TypefaceSpan("monospace"), from);
+            setSpan(new BackgroundColorSpan(CODE_BACKGROUND), from);
+            return;
+        }
+
+        if (startsWith(start, end, BULLET) || startsWith(start, end, "- ") || startsWith(start, end, "* ")) {
+            output.append(BULLET);
+            renderInline(start + 2, end);
+            return;
+        }
+
+        int digits = start;
+        while (digits < end && Character.isDigit(source.charAt(digits))) {
+            digits++;
+        }
+        if (digits > start && startsWith(digits, end, ". ")) {
+            int from = output.length();
+            output.append(source, start, digits + 1);
+            setSpan(new StyleSpan(Typeface.BOLD), from);
+            output.append(' ');
+            renderInline(digits + 2, end);
+            return;
+        }
+
+        renderInline(start, end);
+    }
+
+    private void renderInline(int start, int end) {
+        int plain = start;
+        int i = start;
+        while (i < end) {
+            char c = source.charAt(i);
+            int next = -1;
+
+            if (c == '*' && i + 1 < end && source.charAt(i + 1) == '*') {
+                int close = find("**", i + 2, end);
+                if (close > i + 2) {
+                    flush(plain, i);
+                    int from = output.length();
+                    renderInline(i + 2, close);
+                    setSpan(new StyleSpan(Typeface.BOLD), from);
+                    next = close + 2;
+                }
+            } else if (c == '*' && i + 1 < end && source.charAt(i + 1) != ' ') {
+                int close = find("*", i + 1, end);
+                if (close > i + 1) {
+                    flush(plain, i);
+                    int from = output.length();
+                    renderInline(i + 1, close);
+                    setSpan(new StyleSpan(Typeface.ITALIC), from);
+                    next = close + 1;
+                }
+            } else if (c == '`') {
+                int close = find("`", i + 1, end);
+                if (close > i + 1) {
+                    flush(plain, i);
+                    int from = output.length();
+                    output.append(source, i + 1, close);
+                    setSpan(new TypefaceSpan("monospace"), from);
+                    setSpan(new BackgroundColorSpan(CODE_BACKGROUND), from);
+                    next = close + 1;
+                }
+            } else if (c == '[') {
+                int label = find("](", i + 1, end);
+                int close = label < 0 ? -1 : find(")", label + 2, end);
+                if (label > i + 1 && close > label + 2) {
+                    flush(plain, i);
+                    int from = output.length();
+                    renderInline(i + 1, label);
+                    setSpan(new URLSpan(source.substring(label + 2, close)), from);
+                    next = close + 1;
+                }
+            }
+
+            if (next < 0) {
+                i++;
+            } else {
+                i = next;
+                plain = next;
+            }
+        }
+        flush(plain, end);
+    }
+
+    private void flush(int start, int end) {
+        if (end > start) {
+            output.append(source, start, end);
+        }
+    }
+
+    private void setSpan(Object span, int from) {
+        if (output.length() > from) {
+            output.setSpan(span, from, output.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+    }
+
+    private boolean startsWith(int start, int end, String prefix) {
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int k = 0; k < prefix.length(); k++) {
+            if (source.charAt(start + k) != prefix.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int find(String needle, int from, int end) {
+        int index = source.indexOf(needle, from);
+        return index >= 0 && index + needle.length() <= end ? index : -1;
+    }
+}
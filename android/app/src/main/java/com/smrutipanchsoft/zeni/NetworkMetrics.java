@@ -0,0 +1,140 @@
+package com.smrutipanchsoft.zeni;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-endpoint request timings split into phases, plus error counters by HTTP
+ * code. Fed by the transport's call events; every recorder is a fixed-size,
+ * lock-free LatencyHistogram, so this stays on in release builds.
+ */
+public class NetworkMetrics {
+
+    // Phase names as reported to JS
+    public static final String DNS = "dns";
+    public static final String CONNECT = "connect";
+    public static final String TLS = "tls";
+    public static final String TTFB = "ttfb";
+    public static final String BODY = "body";
+    public static final String TOTAL = "total";
+    // TOTAL split by whether the call had to open its connection - shows what warm-up saves
+    public static final String TOTAL_NEW_CONNECTION = "totalNewConnection";
+    public static final String TOTAL_POOLED = "totalPooled";
+
+    private static final String[] PHASES = {
+            DNS, CONNECT, TLS, TTFB, BODY, TOTAL, TOTAL_NEW_CONNECTION, TOTAL_POOLED};
+
+    // Key used for calls that failed without an HTTP status (timeouts, resets)
+    public static final String IO_ERROR = "io";
+    // Calls we cancelled ourselves (hidden overlay, hedge losers) - not backend failures
+    public static final String CANCELED = "canceled";
+
+    private static class Endpoint {
+        final Map<String, LatencyHistogram> phases = new LinkedHashMap<>();
+        final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+
+        Endpoint() {
+            for (String phase : PHASES) {
+                phases.put(phase, new LatencyHistogram());
+            }
+        }
+    }
+
+    public static class Phase {
+        public final long count;
+        public final long meanMs;
+        public final long p50Ms;
+        public final long p95Ms;
+        public final long p99Ms;
+        public final long maxMs;
+
+        Phase(LatencyHistogram histogram) {
+            count = histogram.count();
+            meanMs = histogram.meanMs();
+            p50Ms = histogram.percentileMs(50);
+            p95Ms = histogram.percentileMs(95);
+            p99Ms = histogram.percentileMs(99);
+            maxMs = histogram.maxMs();
+        }
+    }
+
+    public static class Snapshot {
+        public final String endpoint;
+        public final Map<String, Phase> phases = new LinkedHashMap<>();
+        public final Map<String, Long> errors = new LinkedHashMap<>();
+
+        Snapshot(String endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    // Connections are per host, not per endpoint: one histogram of every connect
+    // attempt, successful or not, for the connect timeout
+    private final LatencyHistogram connects = new LatencyHistogram();
+
+    public void recordPhase(String endpoint, String phase, long millis) {
+        LatencyHistogram histogram = endpoint(endpoint).phases.get(phase);
+        if (histogram != null) {
+            histogram.record(millis);
+        }
+    }
+
+    /**
+     * Time of one connect attempt (TCP plus TLS). A failed attempt is recorded
+     * with the time it took to fail, so connect timeouts count at their limit.
+     */
+    public void recordConnect(long millis) {
+        connects.record(millis);
+    }
+
+    public long connectCount() {
+        return connects.count();
+    }
+
+    public long connectPercentileMs(double percentile) {
+        return connects.percentileMs(percentile);
+    }
+
+    /**
+     * Count a failed call: the HTTP code for non-2xx responses, CANCELED for calls
+     * we cancelled, IO_ERROR otherwise.
+     */
+    public void recordError(String endpoint, String code) {
+        Map<String, AtomicLong> errors = endpoint(endpoint).errors;
+        AtomicLong counter = errors.get(code);
+        if (counter == null) {
+            errors.putIfAbsent(code, new AtomicLong());
+            counter = errors.get(code);
+        }
+        counter.incrementAndGet();
+    }
+
+    public List<Snapshot> snapshots() {
+        List<Snapshot> all = new ArrayList<>();
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            Snapshot snapshot = new Snapshot(entry.getKey());
+            for (Map.Entry<String, LatencyHistogram> phase : entry.getValue().phases.entrySet()) {
+                snapshot.phases.put(phase.getKey(), new Phase(phase.getValue()));
+            }
+            for (Map.Entry<String, AtomicLong> error : entry.getValue().errors.entrySet()) {
+                snapshot.errors.put(error.getKey(), error.getValue().get());
+            }
+            all.add(snapshot);
+        }
+        return all;
+    }
+
+    private Endpoint endpoint(String endpoint) {
+        Endpoint metrics = endpoints.get(endpoint);
+        if (metrics == null) {
+            endpoints.putIfAbsent(endpoint, new Endpoint());
+            metrics = endpoints.get(endpoint);
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,308 @@
+package com.smrutipanchsoft.zeni;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+
+/**
+ * Pooled transport: one shared connection pool and dispatcher for every call,
+ * HTTP/2 when the server negotiates it via ALPN, keep-alive otherwise.
+ * OkHttp adds "Accept-Encoding: gzip" and decodes gzip responses transparently
+ * as long as callers do not set Accept-Encoding themselves.
+ */
+public class OkHttpTransport implements HttpTransport {
+
+    private static final int MAX_IDLE_CONNECTIONS = 4;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private final OkHttpClient client;
+    // Calls whose response is still open. The dispatcher forgets a call once its
+    // headers are in, so cancel() needs these to stop a body mid-stream.
+    private final Set<Call> openCalls = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong connectionsReused = new AtomicLong();
+    private final AtomicLong http2Requests = new AtomicLong();
+    private final AtomicLong requestBodyBytes = new AtomicLong();
+    private final AtomicLong responseBodyBytes = new AtomicLong();
+    private final NetworkMetrics metrics = new NetworkMetrics();
+
+    public OkHttpTransport() {
+        this(new OkHttpClient.Builder());
+    }
+
+    // Tests pass a builder that already trusts their local TLS server
+    OkHttpTransport(OkHttpClient.Builder builder) {
+        client = builder
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .retryOnConnectionFailure(true)
+                .eventListenerFactory(call -> new CallListener())
+                .addInterceptor(OkHttpTransport::applyTimeouts)
+                .build();
+    }
+
+    // Each request's own timeouts, carried as a tag; one client serves them all
+    private static final class Timeouts {
+        final int connectMs;
+        final int readMs;
+
+        Timeouts(int connectMs, int readMs) {
+            this.connectMs = connectMs;
+            this.readMs = readMs;
+        }
+    }
+
+    private static okhttp3.Response applyTimeouts(Interceptor.Chain chain) throws IOException {
+        Timeouts timeouts = chain.request().tag(Timeouts.class);
+        if (timeouts == null) {
+            return chain.proceed(chain.request());
+        }
+        return chain
+                .withConnectTimeout(timeouts.connectMs, TimeUnit.MILLISECONDS)
+                .withReadTimeout(timeouts.readMs, TimeUnit.MILLISECONDS)
+                .withWriteTimeout(timeouts.readMs, TimeUnit.MILLISECONDS)
+                .proceed(chain.request());
+    }
+
+    @Override
+    public Response execute(HttpTransport.Request request) throws IOException {
+        okhttp3.Request.Builder builder = new okhttp3.Request.Builder().url(request.url);
+        if (request.tag != null) {
+            builder.tag(request.tag);
+        }
+        builder.tag(Timeouts.class, new Timeouts(request.connectTimeoutMs, request.readTimeoutMs));
+        for (Map.Entry<String, String> header : request.headers.entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+
+        if (request.body != null) {
+            String contentType = request.headers.get("Content-Type");
+            MediaType mediaType = contentType != null ? MediaType.parse(contentType) : null;
+            builder.method(request.method, RequestBody.create(request.body, mediaType));
+        } else {
+            builder.method(request.method, null);
+        }
+
+        requests.incrementAndGet();
+        Call call = client.newCall(builder.build());
+        openCalls.add(call);
+        try {
+            return new PooledResponse(call, call.execute());
+        } catch (IOException | RuntimeException e) {
+            openCalls.remove(call);
+            throw e;
+        }
+    }
+
+    @Override
+    public void cancel(Object tag) {
+        // Calls are synchronous, so openCalls holds every one in flight
+        for (Call call : openCalls) {
+            if (tag.equals(call.request().tag())) {
+                call.cancel();
+            }
+        }
+    }
+
+    @Override
+    public Stats getStats() {
+        return new Stats(
+                requests.get(),
+                connectionsOpened.get(),
+                connectionsReused.get(),
+                http2Requests.get(),
+                requestBodyBytes.get(),
+                responseBodyBytes.get());
+    }
+
+    @Override
+    public NetworkMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void shutdown() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    // One listener per call - tells a fresh connection apart from a pooled one
+    // and times each phase of the call
+    private class CallListener extends EventListener {
+        private boolean connected = false;
+        private long callStart;
+        private long dnsStart;
+        private long connectStart;
+        private long tlsStart;
+        private long requestStart;
+        private long bodyStart;
+
+        @Override
+        public void callStart(Call call) {
+            callStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> addresses) {
+            metrics.recordPhase(endpoint(call), NetworkMetrics.DNS, millisSince(dnsStart));
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+            connected = true;
+            connectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            tlsStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            metrics.recordPhase(endpoint(call), NetworkMetrics.TLS, millisSince(tlsStart));
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol) {
+            // TCP plus TLS, as seen by the caller
+            long connectMs = millisSince(connectStart);
+            metrics.recordPhase(endpoint(call), NetworkMetrics.CONNECT, connectMs);
+            metrics.recordConnect(connectMs);
+        }
+
+        @Override
+        public void connectFailed(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol, IOException ioe) {
+            metrics.recordConnect(millisSince(connectStart));
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            if (connected) {
+                connectionsOpened.incrementAndGet();
+            } else {
+                connectionsReused.incrementAndGet();
+            }
+            if (connection.protocol() == Protocol.HTTP_2) {
+                http2Requests.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void requestHeadersStart(Call call) {
+            requestStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            metrics.recordPhase(endpoint(call), NetworkMetrics.TTFB, millisSince(requestStart));
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, okhttp3.Response response) {
+            if (response.code() >= 400) {
+                metrics.recordError(endpoint(call), String.valueOf(response.code()));
+            }
+        }
+
+        @Override
+        public void requestBodyEnd(Call call, long byteCount) {
+            requestBodyBytes.addAndGet(byteCount);
+        }
+
+        @Override
+        public void responseBodyStart(Call call) {
+            bodyStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            responseBodyBytes.addAndGet(byteCount);
+            metrics.recordPhase(endpoint(call), NetworkMetrics.BODY, millisSince(bodyStart));
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            long totalMs = millisSince(callStart);
+            metrics.recordPhase(endpoint(call), NetworkMetrics.TOTAL, totalMs);
+            metrics.recordPhase(endpoint(call), connected
+                    ? NetworkMetrics.TOTAL_NEW_CONNECTION : NetworkMetrics.TOTAL_POOLED, totalMs);
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            metrics.recordError(endpoint(call),
+                    call.isCanceled() ? NetworkMetrics.CANCELED : NetworkMetrics.IO_ERROR);
+        }
+
+        private String endpoint(Call call) {
+            return call.request().url().encodedPath();
+        }
+
+        private long millisSince(long startNanos) {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+    }
+
+    private class PooledResponse implements Response {
+        private final Call call;
+        private final okhttp3.Response response;
+
+        PooledResponse(Call call, okhttp3.Response response) {
+            this.call = call;
+            this.response = response;
+        }
+
+        @Override
+        public int code() {
+            return response.code();
+        }
+
+        @Override
+        public String header(String name) {
+            return response.header(name);
+        }
+
+        @Override
+        public InputStream body() {
+            ResponseBody body = response.body();
+            return body != null ? body.byteStream() : new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public void close() {
+            // Closing (not disconnecting) hands the socket back to the pool
+            openCalls.remove(call);
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.smrutipanchsoft.zeni;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Base64;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Durable queue for chat messages that could not be sent.
+ *
+ * Every message is appended to a journal in app storage ("A id text") before
+ * anything else happens, and marked done ("D id") as soon as its own reply
+ * arrives. After a process kill the journal is replayed and the open entries
+ * are resent with the same message id. Only a message whose reply was lost in
+ * that window is sent twice, and a backend that honours messageId drops it.
+ *
+ * A message the backend rejects (as opposed to one that never reached it) is
+ * counted against that entry ("F id"), retried on its own with its own backoff
+ * so it cannot hold up the rest, and given up after MAX_FAILURES.
+ * Journal IO and retry scheduling run on a background thread; results are
+ * delivered on the main thread.
+ */
+public class OutboundQueue {
+
+    private static final String TAG = "OutboundQueue";
+    private static final String JOURNAL_NAME = "outbound_queue.journal";
+
+    private static final long BASE_BACKOFF_MS = 2000;
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000;
+    // Rejections after which a message is dropped instead of retried
+    private static final int MAX_FAILURES = 5;
+    // Rewrite the journal once it holds this much dead weight
+    private static final long COMPACT_THRESHOLD_BYTES = 64 * 1024;
+
+    public interface Listener {
+        void onDelivered(Entry entry, String reply);
+
+        // The backend rejected the message MAX_FAILURES times; it is no longer queued
+        void onFailed(Entry entry, String error);
+    }
+
+    public static class Entry {
+        public final String id;
+        public final String message;
+        // Owned by ioThread
+        int failures = 0;
+        long retryAt = 0;
+
+        Entry(String id, String message) {
+            this.id = id;
+            this.message = message;
+        }
+    }
+
+    private final Context context;
+    private final AIApiClient apiClient;
+    private final Listener listener;
+    private final File journal;
+
+    private final HandlerThread ioThread = new HandlerThread("OutboundQueue");
+    private final Handler ioHandler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Random jitter = new Random();
+
+    // Owned by ioThread
+    private final Map<String, Entry> pending = new LinkedHashMap<>();
+    private boolean flushing = false;
+    // Consecutive flushes that could not reach the backend - shared by all entries
+    private int attempt = 0;
+
+    private ConnectivityManager.NetworkCallback networkCallback;
+
+    public OutboundQueue(Context context, AIApiClient apiClient, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.apiClient = apiClient;
+        this.listener = listener;
+        this.journal = new File(this.context.getFilesDir(), JOURNAL_NAME);
+        ioThread.start();
+        ioHandler = new Handler(ioThread.getLooper());
+    }
+
+    /**
+     * Replay the journal, start watching connectivity and send what is left over.
+     */
+    public void start() {
+        ioHandler.post(() -> {
+            loadJournal();
+            if (!pending.isEmpty()) {
+                RingLog.d(TAG, "📬 Replaying queued messages", pending.size());
+                flush();
+            }
+        });
+        registerNetworkCallback();
+    }
+
+    public void stop() {
+        unregisterNetworkCallback();
+        ioHandler.removeCallbacksAndMessages(null);
+        ioThread.quitSafely();
+    }
+
+    /**
+     * Persist a message and try to send it. Pass the id the message was first
+     * sent with, so the backend sees a resend rather than a new message.
+     */
+    public Entry enqueue(String id, String message) {
+        Entry entry = new Entry(id, message);
+        ioHandler.post(() -> {
+            try {
+                append("A " + entry.id + " " + encode(entry.message) + "\n", true);
+                pending.put(entry.id, entry);
+                RingLog.d(TAG, "📥 Queued message, pending", pending.size());
+                scheduleFlush(nextFlushDelay());
+            } catch (IOException e) {
+                RingLog.e(TAG, "❌ Could not journal message", e);
+            }
+        });
+        return entry;
+    }
+
+    // ioThread
+    private void flush() {
+        if (flushing || pending.isEmpty()) {
+            return;
+        }
+
+        // Messages that never failed go out together in one round trip; a message
+        // the backend rejected before goes alone, once its own backoff is over
+        long now = SystemClock.uptimeMillis();
+        List<Entry> batch = new ArrayList<>();
+        Entry retry = null;
+        for (Entry entry : pending.values()) {
+            if (entry.failures == 0) {
+                batch.add(entry);
+            } else if (retry == null && entry.retryAt <= now) {
+                retry = entry;
+            }
+        }
+        if (batch.isEmpty() && retry != null) {
+            batch.add(retry);
+        }
+        if (batch.isEmpty()) {
+            scheduleFlush(nextFlushDelay());
+            return;
+        }
+        flushing = true;
+
+        List<String> messages = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (Entry entry : batch) {
+            messages.add(entry.message);
+            ids.add(entry.id);
+        }
+
+        boolean[] unreachable = new boolean[1];
+        apiClient.sendBatch(false, messages, ids, new AIApiClient.BatchCallback() {
+            @Override
+            public void onReply(int index, String reply) {
+                Entry entry = batch.get(index);
+                ioHandler.post(() -> {
+                    // Journal first, then tell the UI
+                    if (markDone(entry)) {
+                        mainHandler.post(() -> listener.onDelivered(entry, reply));
+                    }
+                });
+            }
+
+            @Override
+            public void onFailed(int index, String error, boolean offline) {
+                if (offline) {
+                    unreachable[0] = true;
+                } else {
+                    Entry entry = batch.get(index);
+                    ioHandler.post(() -> markFailed(entry, error));
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                boolean offline = unreachable[0];
+                ioHandler.post(() -> {
+                    flushing = false;
+                    if (offline) {
+                        attempt++;
+                    } else {
+                        attempt = 0;
+                    }
+                    if (!pending.isEmpty()) {
+                        long delay = nextFlushDelay();
+                        if (offline) {
+                            RingLog.w(TAG, "⚠️ Backend unreachable, retry in ms", delay);
+                        }
+                        scheduleFlush(delay);
+                    }
+                });
+            }
+        });
+    }
+
+    // ioThread; false if the entry was already closed
+    private boolean markDone(Entry entry) {
+        if (pending.remove(entry.id) == null) {
+            return false;
+        }
+        try {
+            append("D " + entry.id + "\n", true);
+            if (pending.isEmpty() || journal.length() > COMPACT_THRESHOLD_BYTES) {
+                compact();
+            }
+        } catch (IOException e) {
+            RingLog.e(TAG, "❌ Could not update journal", e);
+        }
+        return true;
+    }
+
+    // ioThread - the backend answered this message with an error
+    private void markFailed(Entry entry, String error) {
+        if (!pending.containsKey(entry.id)) {
+            return;
+        }
+        entry.failures++;
+        if (entry.failures >= MAX_FAILURES) {
+            RingLog.e(TAG, "❌ Giving up on queued message after failures", entry.failures);
+            if (markDone(entry)) {
+                mainHandler.post(() -> listener.onFailed(entry, error));
+            }
+            return;
+        }
+        entry.retryAt = SystemClock.uptimeMillis() + jittered(entry.failures);
+        RingLog.w(TAG, "⚠️ Queued message rejected, failures", entry.failures);
+        try {
+            append("F " + entry.id + "\n", true);
+        } catch (IOException e) {
+            RingLog.e(TAG, "❌ Could not update journal", e);
+        }
+    }
+
+    private void scheduleFlush(long delayMs) {
+        ioHandler.removeCallbacks(flushRunnable);
+        ioHandler.postDelayed(flushRunnable, delayMs);
+    }
+
+    private final Runnable flushRunnable = this::flush;
+
+    // While the backend is unreachable everything waits on the shared backoff;
+    // otherwise the next send is due when the earliest entry is
+    private long nextFlushDelay() {
+        if (attempt > 0) {
+            return jittered(attempt);
+        }
+        long now = SystemClock.uptimeMillis();
+        long next = Long.MAX_VALUE;
+        for (Entry entry : pending.values()) {
+            next = Math.min(next, Math.max(0, entry.retryAt - now));
+        }
+        return next == Long.MAX_VALUE ? 0 : next;
+    }
+
+    // Exponential backoff with full jitter: uniform in [0, min(max, base * 2^n)]
+    private long jittered(int n) {
+        long ceiling = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(n, 16));
+        return (long) (jitter.nextDouble() * ceiling);
+    }
+
+    // ========== JOURNAL ==========
+
+    private void loadJournal() {
+        pending.clear();
+        if (!journal.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(journal), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ", 3);
+                try {
+                    if (parts.length == 3 && parts[0].equals("A")) {
+                        pending.put(parts[1], new Entry(parts[1], decode(parts[2])));
+                    } else if (parts.length >= 2 && parts[0].equals("D")) {
+                        pending.remove(parts[1]);
+                    } else if (parts.length >= 2 && parts[0].equals("F")) {
+                        Entry entry = pending.get(parts[1]);
+                        if (entry != null) {
+                            entry.failures++;
+                        }
+                    }
+                } catch (IllegalArgumentException e) {
+                    // A torn last line from a crash mid-write is simply skipped
+                    RingLog.w(TAG, "⚠️ Skipping corrupt journal record");
+                }
+            }
+        } catch (Exception e) {
+            RingLog.e(TAG, "❌ Could not read journal", e);
+        }
+    }
+
+    private void append(String records, boolean sync) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(journal, true)) {
+            out.write(records.getBytes(StandardCharsets.UTF_8));
+            if (sync) {
+                out.getFD().sync();
+            }
+        }
+    }
+
+    // Rewrite the journal with only the open entries, atomically via rename
+    private void compact() throws IOException {
+        File tmp = new File(journal.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp, false)) {
+            StringBuilder records = new StringBuilder();
+            for (Entry entry : pending.values()) {
+                records.append("A ").append(entry.id).append(' ').append(encode(entry.message)).append('\n');
+                for (int i = 0; i < entry.failures; i++) {
+                    records.append("F ").append(entry.id).append('\n');
+                }
+            }
+            out.write(records.toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(journal)) {
+            throw new IOException("Could not replace journal");
+        }
+    }
+
+    private static String encode(String message) {
+        return Base64.encodeToString(message.getBytes(StandardCharsets.UTF_8), Base64.NO_WRAP);
+    }
+
+    private static String decode(String encoded) {
+        return new String(Base64.decode(encoded, Base64.NO_WRAP), StandardCharsets.UTF_8);
+    }
+
+    // ========== CONNECTIVITY ==========
+
+    private void registerNetworkCallback() {
+        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm == null) {
+            return;
+        }
+        networkCallback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                // Back online - skip the remaining backoff
+                ioHandler.post(() -> {
+                    attempt = 0;
+                    if (!pending.isEmpty()) {
+                        RingLog.d(TAG, "🌐 Network available, flushing queue");
+                        scheduleFlush(nextFlushDelay());
+                    }
+                });
+            }
+        };
+        try {
+            cm.registerDefaultNetworkCallback(networkCallback);
+        } catch (Exception e) {
+            RingLog.e(TAG, "❌ Could not watch connectivity", e);
+            networkCallback = null;
+        }
+    }
+
+    private void unregisterNetworkCallback() {
+        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm != null && networkCallback != null) {
+            try {
+                cm.unregisterNetworkCallback(networkCallback);
+            } catch (Exception ignored) {
+            }
+        }
+        networkCallback = null;
+    }
+}
@@ -0,0 +1,50 @@
+package com.smrutipanchsoft.zeni;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+
+/**
+ * Benchmark-only legacy module: isOverlayRunning the way the pre-TurboModule
+ * OverlayModule answered it, a @ReactMethod promise dispatched on the native
+ * modules thread. It does the same volatile read as
+ * OverlayModule.isOverlayRunningSync, so utils/overlayBenchmark.ts times only
+ * the call path. Registered by OverlayPackage when built with
+ * -PoverlayBridgeProbe=true.
+ */
+public class OverlayBridgeProbeModule extends ReactContextBaseJavaModule {
+
+    public static final String NAME = "OverlayBridgeProbe";
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final OverlayClient overlay;
+
+    public OverlayBridgeProbeModule(ReactApplicationContext context) {
+        super(context);
+        this.overlay = new OverlayClient(context);
+        mainHandler.post(overlay::bind);
+    }
+
+    @NonNull
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @ReactMethod
+    public void isOverlayRunning(Promise promise) {
+        promise.resolve(overlay.isConnected());
+    }
+
+    @Override
+    public void invalidate() {
+        mainHandler.post(overlay::unbind);
+        super.invalidate();
+    }
+}
@@ -0,0 +1,231 @@
+package com.smrutipanchsoft.zeni;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * App-process end of the OverlayIpc channel.
+ *
+ * Binds to OverlayService without BIND_AUTO_CREATE, so the binding never
+ * starts or keeps the overlay alive: it connects whenever the service is
+ * running and disconnects when it stops or its process dies. Ready means the
+ * service answered MSG_REGISTER with its MSG_STATE, which says whether the
+ * bubble could be shown; disconnected comes from the service's MSG_STOPPED at
+ * the end of onDestroy (or the binder dying). whenReady and whenStopped run
+ * their action as soon as that transition is observed, and
+ * the EventListener hears about both plus the events the overlay pushes.
+ * Pending requests are answered with null when the connection goes away.
+ * Main thread only, except isConnected().
+ */
+public class OverlayClient implements ServiceConnection {
+
+    private static final String TAG = "OverlayClient";
+
+    public interface Reply {
+        // Null when the overlay is not running or has nothing to report yet
+        void onReply(Bundle result);
+    }
+
+    public interface Ready {
+        // False when the service is up but failed to show its bubble
+        void onReady(boolean bubbleShown);
+    }
+
+    public interface EventListener {
+        void onStatus(boolean running);
+
+        // One of the OverlayIpc.MSG_EVENT_ codes and its fields
+        void onEvent(int what, Bundle data);
+    }
+
+    private final Context context;
+    private final Messenger replies = new Messenger(new Handler(Looper.getMainLooper(), this::onReplyMessage));
+    private final SparseArray<Reply> pending = new SparseArray<>();
+    private final List<Ready> readyActions = new ArrayList<>();
+    private final List<Runnable> stoppedActions = new ArrayList<>();
+    private int nextRequestId = 1;
+    // Written on the main thread, read from any thread by isConnected()
+    private volatile Messenger service;
+    // From MSG_STATE; null until the service has answered MSG_REGISTER
+    private Boolean bubbleShown;
+    private boolean bound = false;
+    private EventListener eventListener;
+
+    public OverlayClient(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public void bind() {
+        if (bound) {
+            return;
+        }
+        bound = context.bindService(new Intent(context, OverlayService.class), this, 0);
+    }
+
+    public void unbind() {
+        if (!bound) {
+            return;
+        }
+        context.unbindService(this);
+        bound = false;
+        onDisconnected();
+    }
+
+    public void setEventListener(EventListener listener) {
+        eventListener = listener;
+    }
+
+    public boolean isConnected() {
+        return service != null;
+    }
+
+    /**
+     * Run once the overlay is up - right away if it already is.
+     */
+    public void whenReady(Ready action) {
+        if (bubbleShown != null) {
+            action.onReady(bubbleShown);
+        } else {
+            readyActions.add(action);
+        }
+    }
+
+    /**
+     * Drop an action passed to whenReady that has not run yet.
+     */
+    public void cancelReady(Ready action) {
+        readyActions.remove(action);
+    }
+
+    /**
+     * Run once the overlay has stopped - right away if it is not running.
+     */
+    public void whenStopped(Runnable action) {
+        if (service == null) {
+            action.run();
+        } else {
+            stoppedActions.add(action);
+        }
+    }
+
+    public void request(int what, Reply reply) {
+        if (service == null) {
+            reply.onReply(null);
+            return;
+        }
+        int requestId = nextRequestId++;
+        Message message = Message.obtain(null, what, requestId, 0);
+        message.replyTo = replies;
+        pending.put(requestId, reply);
+        try {
+            service.send(message);
+        } catch (RemoteException e) {
+            // Overlay process died; onServiceDisconnected follows
+            RingLog.w(TAG, "⚠️ Overlay not reachable", e);
+            pending.remove(requestId);
+            reply.onReply(null);
+        }
+    }
+
+    private boolean onReplyMessage(Message message) {
+        if (message.what == OverlayIpc.MSG_STOPPED) {
+            RingLog.d(TAG, "🛑 Overlay stopped");
+            onDisconnected();
+            return true;
+        }
+        if (message.what == OverlayIpc.MSG_STATE) {
+            if (service == null) {
+                // Stopped again before the state arrived
+                return true;
+            }
+            bubbleShown = message.getData().getBoolean(OverlayIpc.KEY_BUBBLE_SHOWN);
+            RingLog.d(TAG, "✅ Overlay ready, bubble shown", bubbleShown ? 1 : 0);
+            List<Ready> batch = new ArrayList<>(readyActions);
+            readyActions.clear();
+            for (Ready action : batch) {
+                action.onReady(bubbleShown);
+            }
+            return true;
+        }
+        if (message.what == OverlayIpc.MSG_EVENT_MESSAGE || message.what == OverlayIpc.MSG_EVENT_METRICS) {
+            if (eventListener != null) {
+                eventListener.onEvent(message.what, message.getData());
+            }
+            return true;
+        }
+        Reply reply = pending.get(message.arg1);
+        if (reply != null) {
+            pending.remove(message.arg1);
+            reply.onReply(message.arg2 != 0 ? message.getData() : null);
+        }
+        return true;
+    }
+
+    @Override
+    public void onServiceConnected(ComponentName name, IBinder binder) {
+        service = new Messenger(binder);
+        RingLog.d(TAG, "🔗 Overlay connected");
+        Message register = Message.obtain(null, OverlayIpc.MSG_REGISTER);
+        register.replyTo = replies;
+        try {
+            service.send(register);
+        } catch (RemoteException e) {
+            // Died right away; onServiceDisconnected follows
+            RingLog.w(TAG, "⚠️ Overlay not reachable", e);
+        }
+        if (eventListener != null) {
+            eventListener.onStatus(true);
+        }
+    }
+
+    @Override
+    public void onServiceDisconnected(ComponentName name) {
+        RingLog.d(TAG, "🔌 Overlay disconnected");
+        onDisconnected();
+    }
+
+    @Override
+    public void onBindingDied(ComponentName name) {
+        // The binding is unusable from now on - bind again for the next start
+        unbind();
+        bind();
+    }
+
+    private void onDisconnected() {
+        if (service == null) {
+            return;
+        }
+        service = null;
+        bubbleShown = null;
+        SparseArray<Reply> dropped = pending.clone();
+        pending.clear();
+        for (int i = 0; i < dropped.size(); i++) {
+            dropped.valueAt(i).onReply(null);
+        }
+        runAll(stoppedActions);
+        if (eventListener != null) {
+            eventListener.onStatus(false);
+        }
+    }
+
+    private static void runAll(List<Runnable> actions) {
+        List<Runnable> batch = new ArrayList<>(actions);
+        actions.clear();
+        for (Runnable action : batch) {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.smrutipanchsoft.zeni;
+
+import android.view.Choreographer;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects native-to-JS overlay events and hands them to JS as one batch per
+ * frame, so a burst of messages or status changes costs a single emit instead
+ * of one JS call each. Same pattern as WindowLayoutScheduler. Main thread only.
+ */
+public class OverlayEventBatcher implements Choreographer.FrameCallback {
+
+    public interface Sink {
+        void emit(ReadableMap batch);
+    }
+
+    private final Sink sink;
+    private List<WritableMap> pending = new ArrayList<>();
+    private boolean scheduled = false;
+
+    public OverlayEventBatcher(Sink sink) {
+        this.sink = sink;
+    }
+
+    public void post(WritableMap event) {
+        pending.add(event);
+        if (!scheduled) {
+            scheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    public void cancel() {
+        if (scheduled) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            scheduled = false;
+        }
+        pending.clear();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        scheduled = false;
+        List<WritableMap> batch = pending;
+        pending = new ArrayList<>();
+
+        WritableArray events = Arguments.createArray();
+        for (WritableMap event : batch) {
+            events.pushMap(event);
+        }
+        WritableMap result = Arguments.createMap();
+        result.putArray("events", events);
+        sink.emit(result);
+    }
+}
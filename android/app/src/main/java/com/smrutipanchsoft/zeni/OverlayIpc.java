@@ -0,0 +1,266 @@
+package com.smrutipanchsoft.zeni;
+
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.Process;
+import android.os.RemoteException;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Messenger protocol between OverlayModule (app process) and OverlayService,
+ * which runs in its own ":overlay" process without React Native.
+ *
+ * A request is a Message whose what is one of the MSG_ codes, arg1 a caller
+ * chosen request id and replyTo the caller's Messenger. The reply echoes what
+ * and arg1 and carries the result as a Bundle laid out exactly like the map
+ * handed to JS; arg2 is 0 when there is no result yet (e.g. the spotlight has
+ * never been opened). Everything runs on the overlay's main thread.
+ *
+ * Lifecycle: a client sends MSG_REGISTER once connected - the service only
+ * answers bindings after onCreate - and the service replies with MSG_STATE,
+ * whose KEY_BUBBLE_SHOWN says whether onCreate managed to show the bubble.
+ * When the service has torn down in onDestroy it sends MSG_STOPPED to every
+ * registered client, and ACTION_OVERLAY_STOPPED to the package for callers
+ * that never got connected. Registered clients also get MSG_EVENT_ messages
+ * pushed to them, with the event fields in the data Bundle.
+ */
+final class OverlayIpc {
+
+    static final int MSG_NETWORK_METRICS = 1;
+    static final int MSG_FRAME_STATS = 2;
+    static final int MSG_STARTUP_TIMINGS = 3;
+    static final int MSG_DUMP_LOG = 4;
+    static final int MSG_MEMORY = 5;
+    static final int MSG_REGISTER = 6;
+    static final int MSG_STOPPED = 7;
+    // Pushed: a message was settled (user message sent or reply complete)
+    static final int MSG_EVENT_MESSAGE = 8;
+    // Pushed after each reply: {metrics: getNetworkMetrics() result}
+    static final int MSG_EVENT_METRICS = 9;
+    // Reply to MSG_REGISTER: {bubbleShown}
+    static final int MSG_STATE = 10;
+
+    static final String KEY_LOG = "log";
+    static final String KEY_BUBBLE_SHOWN = "bubbleShown";
+
+    // Package-only broadcast sent last in OverlayService.onDestroy
+    static final String ACTION_OVERLAY_STOPPED = "com.smrutipanchsoft.zeni.action.OVERLAY_STOPPED";
+
+    private OverlayIpc() {
+    }
+
+    /**
+     * Answers requests from the app process on the overlay's main thread.
+     */
+    static class ServiceHandler extends Handler {
+        private static final String TAG = "OverlayIpc";
+
+        private final OverlayService service;
+        private final List<Messenger> clients = new ArrayList<>();
+
+        ServiceHandler(OverlayService service) {
+            super(Looper.getMainLooper());
+            this.service = service;
+        }
+
+        /**
+         * Tell every registered client the service is gone. Call last in onDestroy.
+         */
+        void notifyStopped() {
+            broadcast(MSG_STOPPED, null);
+            clients.clear();
+        }
+
+        /**
+         * Push an event to every registered client; dead clients are dropped.
+         */
+        void broadcast(int what, Bundle data) {
+            for (int i = clients.size() - 1; i >= 0; i--) {
+                Message message = Message.obtain(null, what);
+                if (data != null) {
+                    message.setData(data);
+                }
+                try {
+                    clients.get(i).send(message);
+                } catch (RemoteException e) {
+                    // Client process already gone
+                    clients.remove(i);
+                }
+            }
+        }
+
+        @Override
+        public void handleMessage(Message msg) {
+            if (msg.what == MSG_REGISTER) {
+                if (msg.replyTo == null) {
+                    return;
+                }
+                if (!clients.contains(msg.replyTo)) {
+                    clients.add(msg.replyTo);
+                }
+                Message state = Message.obtain(null, MSG_STATE);
+                Bundle data = new Bundle();
+                data.putBoolean(KEY_BUBBLE_SHOWN, service.isBubbleShown());
+                state.setData(data);
+                try {
+                    msg.replyTo.send(state);
+                } catch (RemoteException e) {
+                    // Client process went away right after registering
+                    clients.remove(msg.replyTo);
+                }
+                return;
+            }
+            Bundle result;
+            switch (msg.what) {
+                case MSG_NETWORK_METRICS:
+                    result = networkMetrics(service.getApiClient());
+                    break;
+                case MSG_FRAME_STATS:
+                    result = frameStats(service);
+                    break;
+                case MSG_STARTUP_TIMINGS:
+                    result = startupTimings(service.getStartupTimings());
+                    break;
+                case MSG_DUMP_LOG:
+                    result = new Bundle();
+                    result.putString(KEY_LOG, RingLog.dump());
+                    break;
+                case MSG_MEMORY:
+                    result = memory();
+                    break;
+                default:
+                    super.handleMessage(msg);
+                    return;
+            }
+            if (msg.replyTo == null) {
+                return;
+            }
+            Message reply = Message.obtain(null, msg.what, msg.arg1, result != null ? 1 : 0);
+            if (result != null) {
+                reply.setData(result);
+            }
+            try {
+                msg.replyTo.send(reply);
+            } catch (RemoteException e) {
+                // App process went away while we were answering
+                RingLog.w(TAG, "⚠️ Reply not delivered", e);
+            }
+        }
+    }
+
+    static Bundle messageEvent(String conversationId, long seq, boolean isUser, String text, String timestamp) {
+        Bundle event = new Bundle();
+        event.putString("conversationId", conversationId);
+        event.putDouble("seq", seq);
+        event.putBoolean("isUser", isUser);
+        event.putString("text", text);
+        event.putString("timestamp", timestamp);
+        return event;
+    }
+
+    static Bundle networkMetrics(AIApiClient client) {
+        if (client == null) {
+            return null;
+        }
+        Bundle endpoints = new Bundle();
+        for (NetworkMetrics.Snapshot snapshot : client.getNetworkMetrics().snapshots()) {
+            Bundle phases = new Bundle();
+            for (Map.Entry<String, NetworkMetrics.Phase> entry : snapshot.phases.entrySet()) {
+                NetworkMetrics.Phase phase = entry.getValue();
+                Bundle timing = new Bundle();
+                timing.putDouble("count", phase.count);
+                timing.putDouble("meanMs", phase.meanMs);
+                timing.putDouble("p50Ms", phase.p50Ms);
+                timing.putDouble("p95Ms", phase.p95Ms);
+                timing.putDouble("p99Ms", phase.p99Ms);
+                timing.putDouble("maxMs", phase.maxMs);
+                phases.putBundle(entry.getKey(), timing);
+            }
+            Bundle errors = new Bundle();
+            for (Map.Entry<String, Long> entry : snapshot.errors.entrySet()) {
+                errors.putDouble(entry.getKey(), entry.getValue());
+            }
+            Bundle endpoint = new Bundle();
+            endpoint.putBundle("phases", phases);
+            endpoint.putBundle("errors", errors);
+            endpoints.putBundle(snapshot.endpoint, endpoint);
+        }
+
+        HttpTransport.Stats stats = client.getConnectionStats();
+        Bundle connections = new Bundle();
+        connections.putDouble("requests", stats.requests);
+        connections.putDouble("opened", stats.connectionsOpened);
+        connections.putDouble("reused", stats.connectionsReused);
+        connections.putDouble("http2", stats.http2Requests);
+        connections.putDouble("sentBytes", stats.requestBodyBytes);
+        connections.putDouble("receivedBytes", stats.responseBodyBytes);
+
+        Bundle result = new Bundle();
+        result.putBundle("endpoints", endpoints);
+        result.putBundle("connections", connections);
+        result.putDouble("hedgesSent", client.getHedgesSent());
+        result.putDouble("prewarms", client.getPrewarmsSent());
+        return result;
+    }
+
+    static Bundle frameStats(OverlayService service) {
+        if (service.getChatFrameStats() == null) {
+            return null;
+        }
+        Bundle result = new Bundle();
+        result.putBundle("chatScroll", frameStats(service.getChatFrameStats()));
+        result.putBundle("bubbleDrag", frameStats(service.getDragFrameStats()));
+
+        WindowLayoutScheduler scheduler = service.getWindowLayoutScheduler();
+        Bundle windowLayout = new Bundle();
+        windowLayout.putDouble("requests", scheduler.requestCount());
+        windowLayout.putDouble("updates", scheduler.updateCount());
+        result.putBundle("windowLayout", windowLayout);
+        return result;
+    }
+
+    private static Bundle frameStats(FrameStats stats) {
+        LatencyHistogram frames = stats.histogram();
+        Bundle bundle = new Bundle();
+        bundle.putDouble("frames", frames.count());
+        bundle.putDouble("janky", stats.jankyFrames());
+        bundle.putDouble("meanMs", frames.meanMs());
+        bundle.putDouble("p50Ms", frames.percentileMs(50));
+        bundle.putDouble("p95Ms", frames.percentileMs(95));
+        bundle.putDouble("p99Ms", frames.percentileMs(99));
+        bundle.putDouble("maxMs", frames.maxMs());
+        return bundle;
+    }
+
+    static Bundle startupTimings(OverlayService.StartupTimings timings) {
+        Bundle result = new Bundle();
+        result.putDouble("serviceCreateMs", timings.serviceCreateMs);
+        result.putDouble("timeToBubbleMs", timings.timeToBubbleMs);
+        result.putDouble("spotlightBuildMs", timings.spotlightBuildMs);
+        result.putDouble("timeToFirstOpenMs", timings.timeToFirstOpenMs);
+        result.putBoolean("spotlightPrewarmed", timings.spotlightPrewarmed);
+        return result;
+    }
+
+    // Resident footprint of the overlay process (KiB) and how long it has lived
+    static Bundle memory() {
+        Debug.MemoryInfo info = new Debug.MemoryInfo();
+        Debug.getMemoryInfo(info);
+        Bundle result = new Bundle();
+        result.putDouble("pid", Process.myPid());
+        result.putDouble("totalPssKb", info.getTotalPss());
+        result.putDouble("javaHeapKb", info.dalvikPss);
+        result.putDouble("nativeHeapKb", info.nativePss);
+        result.putDouble("otherKb", info.otherPss);
+        result.putDouble("uptimeMs", SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime());
+        return result;
+    }
+}
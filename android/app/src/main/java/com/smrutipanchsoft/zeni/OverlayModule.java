@@ -1,55 +1,112 @@
 package com.smrutipanchsoft.zeni;
 
 import android.app.Activity;
+import android.app.ActivityManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.net.Uri;
 import android.os.Build;
+import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.provider.Settings;
-import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
 
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.bridge.ReactContextBaseJavaModule;
-import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableMap;
+import com.smrutipanchsoft.zeni.specs.NativeOverlayModuleSpec;
 
-public class OverlayModule extends ReactContextBaseJavaModule {
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TurboModule behind specs/NativeOverlayModule.ts. Cheap state is exposed as
+ * synchronous JSI getters; overlay status, settled messages and metrics are
+ * pushed to JS through onOverlayEvents, batched per frame.
+ */
+public class OverlayModule extends NativeOverlayModuleSpec {
     
     private static final String TAG = "OverlayModule";
     private static final int OVERLAY_PERMISSION_REQUEST_CODE = 1234;
+    // startOverlay rejects with TIMEOUT if the service has not answered by then
+    private static final long START_TIMEOUT_MS = 10_000;
+    // stopOverlay falls back to asking ActivityManager after this long
+    private static final long STOP_TIMEOUT_MS = 5_000;
+    // Intent extra set by the overlay's maximize button
+    public static final String EXTRA_CONVERSATION_ID = "conversation_id";
     private final ReactApplicationContext reactContext;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // The overlay runs in its own process; everything about it goes through here
+    private final OverlayClient overlay;
+    private final OverlayEventBatcher events = new OverlayEventBatcher(this::emitOnOverlayEvents);
 
     public OverlayModule(ReactApplicationContext context) {
         super(context);
         this.reactContext = context;
+        this.overlay = new OverlayClient(context);
+        overlay.setEventListener(new OverlayClient.EventListener() {
+            @Override
+            public void onStatus(boolean running) {
+                WritableMap event = Arguments.createMap();
+                event.putString("type", "status");
+                event.putBoolean("running", running);
+                events.post(event);
+            }
+
+            @Override
+            public void onEvent(int what, Bundle data) {
+                WritableMap event = Arguments.fromBundle(data);
+                event.putString("type", what == OverlayIpc.MSG_EVENT_MESSAGE ? "message" : "metrics");
+                events.post(event);
+            }
+        });
+        mainHandler.post(overlay::bind);
     }
 
     @NonNull
     @Override
     public String getName() {
-        return "OverlayModule";
+        return NAME;
+    }
+
+    // ✅ Synchronous: a volatile read on the JS thread, no promise round trip.
+    // False until the binding connects; isOverlayRunning also asks ActivityManager
+    @Override
+    public boolean isOverlayRunningSync() {
+        return overlay.isConnected();
+    }
+
+    @Override
+    public boolean checkOverlayPermissionSync() {
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.M || Settings.canDrawOverlays(reactContext);
     }
 
-    @ReactMethod
+    @Override
     public void checkOverlayPermission(Promise promise) {
         try {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
                 boolean canDraw = Settings.canDrawOverlays(reactContext);
-                Log.d(TAG, "✅ Overlay permission check: " + canDraw);
+                RingLog.d(TAG, "✅ Overlay permission check", canDraw ? 1 : 0);
                 promise.resolve(canDraw);
             } else {
                 promise.resolve(true);
             }
         } catch (Exception e) {
-            Log.e(TAG, "❌ Error checking permission", e);
+            RingLog.e(TAG, "❌ Error checking permission", e);
             promise.reject("ERROR", e.getMessage());
         }
     }
 
-    @ReactMethod
+    @Override
     public void requestOverlayPermission(Promise promise) {
         try {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
@@ -58,7 +115,7 @@ public class OverlayModule extends ReactContextBaseJavaModule {
                     Intent intent = new Intent(Settings.ACTION_MANAGE_OVERLAY_PERMISSION,
                             Uri.parse("package:" + reactContext.getPackageName()));
                     activity.startActivityForResult(intent, OVERLAY_PERMISSION_REQUEST_CODE);
-                    Log.d(TAG, "📱 Requesting overlay permission");
+                    RingLog.d(TAG, "📱 Requesting overlay permission");
                     promise.resolve(true);
                 } else {
                     promise.reject("ERROR", "No activity available");
@@ -67,85 +124,465 @@ public class OverlayModule extends ReactContextBaseJavaModule {
                 promise.resolve(true);
             }
         } catch (Exception e) {
-            Log.e(TAG, "❌ Error requesting permission", e);
+            RingLog.e(TAG, "❌ Error requesting permission", e);
             promise.reject("ERROR", e.getMessage());
         }
     }
 
-    @ReactMethod
+    /**
+     * Resolves once the service is up and its bubble is shown. Rejects with
+     * TIMEOUT if the service has not answered within START_TIMEOUT_MS, and
+     * stops the service again if it came up without its bubble.
+     */
+    @Override
     public void startOverlay(Promise promise) {
+        mainHandler.post(() -> {
+            try {
+                RingLog.d(TAG, "========== START OVERLAY REQUEST ==========");
+                Intent intent = new Intent(reactContext, OverlayService.class);
+                
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                    reactContext.startForegroundService(intent);
+                } else {
+                    reactContext.startService(intent);
+                }
+                
+                OverlayClient.Ready[] ready = new OverlayClient.Ready[1];
+                Runnable timeout = () -> {
+                    overlay.cancelReady(ready[0]);
+                    RingLog.e(TAG, "❌ Overlay did not start in time, ms", START_TIMEOUT_MS);
+                    promise.reject("TIMEOUT", "Overlay did not start within " + START_TIMEOUT_MS + " ms");
+                };
+                ready[0] = bubbleShown -> {
+                    mainHandler.removeCallbacks(timeout);
+                    if (!bubbleShown) {
+                        RingLog.w(TAG, "⚠️ Overlay could not show its bubble, stopping it");
+                        reactContext.stopService(intent);
+                        promise.reject("ERROR", "Overlay could not show its bubble");
+                        return;
+                    }
+                    promise.resolve(true);
+                    RingLog.d(TAG, "========== START OVERLAY COMPLETE ==========");
+                };
+                mainHandler.postDelayed(timeout, START_TIMEOUT_MS);
+                overlay.whenReady(ready[0]);
+            } catch (Exception e) {
+                RingLog.e(TAG, "❌ CRITICAL ERROR starting overlay", e);
+                promise.reject("ERROR", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Resolves once the service has removed its windows and been destroyed,
+     * connected or not: onDestroy ends with OverlayIpc.ACTION_OVERLAY_STOPPED.
+     * If that never arrives (e.g. the overlay process was killed) it resolves
+     * after STOP_TIMEOUT_MS with whether the service is gone.
+     */
+    @Override
+    public void stopOverlay(Promise promise) {
+        mainHandler.post(() -> {
+            try {
+                RingLog.d(TAG, "========== STOP OVERLAY REQUEST ==========");
+                
+                // Listen first - the service may be gone before stopService() returns
+                Runnable stopWaiting = awaitStopped(promise);
+                boolean stopped = reactContext.stopService(new Intent(reactContext, OverlayService.class));
+                RingLog.d(TAG, "stopService() returned", stopped ? 1 : 0);
+                if (!stopped) {
+                    // Not running - nothing to wait for
+                    stopWaiting.run();
+                    promise.resolve(true);
+                }
+            } catch (Exception e) {
+                RingLog.e(TAG, "❌ CRITICAL ERROR in stopOverlay", e);
+                promise.resolve(false); // Don't reject to avoid crash
+            }
+        });
+    }
+
+    @Override
+    public void isOverlayRunning(Promise promise) {
         try {
-            Log.d(TAG, "========== START OVERLAY REQUEST ==========");
-            Intent intent = new Intent(reactContext, OverlayService.class);
-            
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                reactContext.startForegroundService(intent);
-            } else {
-                reactContext.startService(intent);
+            boolean running = overlay.isConnected() || isServiceRunning();
+            RingLog.d(TAG, "🔍 Overlay running check", running ? 1 : 0);
+            promise.resolve(running);
+        } catch (Exception e) {
+            RingLog.e(TAG, "❌ Error checking overlay status", e);
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    // Resolve on the service's stopped broadcast, or on the fallback check.
+    // The returned action stops waiting without resolving.
+    private Runnable awaitStopped(Promise promise) {
+        BroadcastReceiver[] receiver = new BroadcastReceiver[1];
+        Runnable[] timeout = new Runnable[1];
+        boolean[] done = new boolean[1];
+        Runnable finish = () -> {
+            if (done[0]) {
+                return;
+            }
+            done[0] = true;
+            mainHandler.removeCallbacks(timeout[0]);
+            reactContext.unregisterReceiver(receiver[0]);
+        };
+        receiver[0] = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                finish.run();
+                promise.resolve(true);
+                RingLog.d(TAG, "========== STOP OVERLAY COMPLETE ==========");
+            }
+        };
+        timeout[0] = () -> {
+            finish.run();
+            boolean gone = !isServiceRunning();
+            RingLog.w(TAG, "⚠️ No stopped broadcast, service gone", gone ? 1 : 0);
+            promise.resolve(gone);
+        };
+        ContextCompat.registerReceiver(reactContext, receiver[0],
+                new IntentFilter(OverlayIpc.ACTION_OVERLAY_STOPPED), null, mainHandler,
+                ContextCompat.RECEIVER_NOT_EXPORTED);
+        mainHandler.postDelayed(timeout[0], STOP_TIMEOUT_MS);
+        return finish;
+    }
+
+    // Running but not connected yet, e.g. right after the app process started
+    @SuppressWarnings("deprecation")
+    private boolean isServiceRunning() {
+        ActivityManager manager = (ActivityManager) reactContext.getSystemService(Context.ACTIVITY_SERVICE);
+        if (manager == null) {
+            return false;
+        }
+        // Still reports the caller's own services
+        for (ActivityManager.RunningServiceInfo info : manager.getRunningServices(Integer.MAX_VALUE)) {
+            if (OverlayService.class.getName().equals(info.service.getClassName()) && info.started) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Phase timings (ms), error counts and connection counters of the overlay's
+     * backend client. Resolves null while the overlay is not running.
+     */
+    @Override
+    public void getNetworkMetrics(Promise promise) {
+        requestOverlay(OverlayIpc.MSG_NETWORK_METRICS, promise);
+    }
+
+    /**
+     * Frame durations (ms) and janky frame counts of the overlay: "chatScroll"
+     * while the chat list scrolls, "bubbleDrag" while the bubble is dragged or
+     * snapping, plus how many window layout requests were coalesced into how
+     * many updateViewLayout calls. Resolves null while the overlay is not running.
+     */
+    @Override
+    public void getFrameStats(Promise promise) {
+        requestOverlay(OverlayIpc.MSG_FRAME_STATS, promise);
+    }
+
+    /**
+     * Id of the overlay conversation the app was opened with, or null. The id is
+     * consumed, so it is only reported once per hand-off.
+     */
+    @Override
+    public void getHandoffConversationId(Promise promise) {
+        try {
+            Activity activity = getCurrentActivity();
+            Intent intent = activity != null ? activity.getIntent() : null;
+            String conversationId = intent != null ? intent.getStringExtra(EXTRA_CONVERSATION_ID) : null;
+            if (conversationId != null) {
+                intent.removeExtra(EXTRA_CONVERSATION_ID);
             }
-            
-            promise.resolve(true);
-            Log.d(TAG, "========== START OVERLAY COMPLETE ==========");
+            promise.resolve(conversationId);
         } catch (Exception e) {
-            Log.e(TAG, "❌ CRITICAL ERROR starting overlay", e);
-            e.printStackTrace();
+            RingLog.e(TAG, "❌ Error reading hand-off conversation", e);
             promise.reject("ERROR", e.getMessage());
         }
     }
 
-    @ReactMethod
-    public void stopOverlay(Promise promise) {
+    /**
+     * One page of an overlay conversation, oldest first: up to limit messages
+     * older than beforeSeq (pass -1 for the latest page).
+     */
+    @Override
+    public void loadConversation(String conversationId, double beforeSeq, double limit, Promise promise) {
         try {
-            Log.d(TAG, "========== STOP OVERLAY REQUEST ==========");
-            
-            // Check if service is even running
-            if (OverlayService.instance == null) {
-                Log.d(TAG, "⚠️ Service already stopped");
-                promise.resolve(true);
-                return;
+            long before = beforeSeq < 0 ? Long.MAX_VALUE : (long) beforeSeq;
+            ConversationStore.get(reactContext).loadBefore(conversationId, before, (int) limit,
+                    page -> promise.resolve(recordsArray(page)));
+        } catch (Exception e) {
+            RingLog.e(TAG, "❌ Error loading conversation", e);
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    private static WritableArray recordsArray(List<ConversationStore.Record> records) {
+        WritableArray messages = Arguments.createArray();
+        for (ConversationStore.Record record : records) {
+            WritableMap message = Arguments.createMap();
+            message.putDouble("seq", record.seq);
+            if (record.messageId != null) {
+                message.putString("messageId", record.messageId);
             }
-            
-            Log.d(TAG, "🛑 Stopping overlay service...");
-            Intent intent = new Intent(reactContext, OverlayService.class);
-            boolean stopped = reactContext.stopService(intent);
-            Log.d(TAG, "stopService() returned: " + stopped);
-            
-            // Wait for cleanup to complete
-            new Handler(Looper.getMainLooper()).postDelayed(() -> {
-                try {
-                    boolean stillRunning = OverlayService.instance != null;
-                    Log.d(TAG, "After 300ms delay - Still running: " + stillRunning);
-                    
-                    if (stillRunning) {
-                        Log.w(TAG, "⚠️ Service didn't stop properly, forcing null...");
-                        OverlayService.instance = null;
+            message.putString("text", record.text);
+            message.putBoolean("isUser", record.isUser);
+            message.putString("timestamp", record.timestamp);
+            messages.pushMap(message);
+        }
+        return messages;
+    }
+
+    // JS messages ({id, text, isUser, timestamp}) as records; the store picks the seq
+    private static List<ConversationStore.Record> toRecords(ReadableArray messages) {
+        List<ConversationStore.Record> records = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            ReadableMap message = messages.getMap(i);
+            records.add(new ConversationStore.Record(-1,
+                    message.hasKey("id") ? message.getString("id") : null,
+                    message.getBoolean("isUser"), message.getString("text"),
+                    message.hasKey("timestamp") ? message.getString("timestamp") : null));
+        }
+        return records;
+    }
+
+    /**
+     * Add an in-app chat message to the on-device history. It stays pending
+     * until markHistoryMessageSynced.
+     */
+    @Override
+    public void recordHistoryMessage(String conversationId, String messageId, boolean isUser,
+                                     String text, String timestamp) {
+        ConversationStore.get(reactContext).appendNext(
+                conversationId, messageId, ConversationStore.SOURCE_APP, isUser, text, timestamp);
+    }
+
+    /**
+     * The server accepted this message.
+     */
+    @Override
+    public void markHistoryMessageSynced(String conversationId, String messageId) {
+        ConversationStore.get(reactContext).markSynced(conversationId, messageId);
+    }
+
+    @Override
+    public void deleteHistoryConversation(String conversationId) {
+        ConversationStore.get(reactContext).delete(conversationId);
+    }
+
+    /**
+     * Create or rename an in-app chat; its messages go through recordHistoryMessage.
+     */
+    @Override
+    public void saveChat(String id, String title, String createdAt) {
+        ConversationStore.get(reactContext).saveChat(id, title, createdAt);
+    }
+
+    /**
+     * Every in-app chat stored on the device, oldest first, each with its
+     * newest messagesPerChat messages; page older ones with loadConversation.
+     */
+    @Override
+    public void listChats(double messagesPerChat, Promise promise) {
+        try {
+            ConversationStore.get(reactContext).listChats((int) messagesPerChat,
+                    chats -> promise.resolve(chatsArray(chats)));
+        } catch (Exception e) {
+            RingLog.e(TAG, "❌ Error loading chats", e);
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * Every in-app chat stored on the device with all of its messages, for
+     * uploading the offline copy.
+     */
+    @Override
+    public void exportChats(Promise promise) {
+        try {
+            ConversationStore.get(reactContext).exportChats(chats -> promise.resolve(chatsArray(chats)));
+        } catch (Exception e) {
+            RingLog.e(TAG, "❌ Error exporting chats", e);
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    private static WritableArray chatsArray(List<ConversationStore.Chat> chats) {
+        WritableArray results = Arguments.createArray();
+        for (ConversationStore.Chat chat : chats) {
+            WritableMap result = Arguments.createMap();
+            result.putString("id", chat.id);
+            result.putString("title", chat.title);
+            result.putString("createdAt", chat.createdAt);
+            result.putArray("messages", recordsArray(chat.messages));
+            result.putBoolean("hasOlder", chat.hasOlder);
+            results.pushMap(result);
+        }
+        return results;
+    }
+
+    /**
+     * Per stored chat: title, createdAt, how many messages the server is known
+     * to have and the id of the newest of them.
+     */
+    @Override
+    public void chatSummaries(Promise promise) {
+        try {
+            ConversationStore.get(reactContext).chatSummaries(summaries -> {
+                WritableArray results = Arguments.createArray();
+                for (ConversationStore.Summary summary : summaries) {
+                    WritableMap result = Arguments.createMap();
+                    result.putString("id", summary.id);
+                    result.putString("title", summary.title);
+                    result.putString("createdAt", summary.createdAt);
+                    result.putDouble("syncedCount", summary.syncedCount);
+                    if (summary.lastSyncedId != null) {
+                        result.putString("lastSyncedId", summary.lastSyncedId);
                     }
-                    
+                    results.pushMap(result);
+                }
+                promise.resolve(results);
+            });
+        } catch (Exception e) {
+            RingLog.e(TAG, "❌ Error summarizing chats", e);
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * Drop every in-app chat and its messages from the device; overlay
+     * conversations stay.
+     */
+    @Override
+    public void deleteAllChats() {
+        ConversationStore.get(reactContext).deleteAllChats();
+    }
+
+    /**
+     * Replace the device copy of a chat with the server's, keeping messages
+     * that are still pending. Resolves once it is written.
+     */
+    @Override
+    public void replaceChat(String id, String title, String createdAt, ReadableArray messages, Promise promise) {
+        try {
+            ConversationStore.get(reactContext).replaceChat(id, title, createdAt, toRecords(messages), ok -> {
+                if (ok) {
                     promise.resolve(true);
-                    Log.d(TAG, "========== STOP OVERLAY COMPLETE ==========");
-                } catch (Exception e) {
-                    Log.e(TAG, "❌ Error in delayed callback", e);
-                    e.printStackTrace();
-                    promise.resolve(true); // Still resolve to avoid crash
+                } else {
+                    promise.reject("ERROR", "Could not store chat " + id);
                 }
-            }, 300); // 300ms delay for cleanup
-            
+            });
         } catch (Exception e) {
-            Log.e(TAG, "❌ CRITICAL ERROR in stopOverlay", e);
-            e.printStackTrace();
-            promise.resolve(false); // Don't reject to avoid crash
+            RingLog.e(TAG, "❌ Error replacing chat", e);
+            promise.reject("ERROR", e.getMessage());
         }
     }
 
-    @ReactMethod
-    public void isOverlayRunning(Promise promise) {
+    /**
+     * Bulk-insert chats ({id, title, createdAt, messages}) keeping their message
+     * ids, all or nothing. Resolves once they are written.
+     */
+    @Override
+    public void importChats(ReadableArray chats, Promise promise) {
         try {
-            boolean running = OverlayService.instance != null;
-            Log.d(TAG, "🔍 Overlay running check: " + running);
-            promise.resolve(running);
+            List<ConversationStore.Chat> imported = new ArrayList<>(chats.size());
+            for (int i = 0; i < chats.size(); i++) {
+                ReadableMap chat = chats.getMap(i);
+                imported.add(new ConversationStore.Chat(chat.getString("id"), chat.getString("title"),
+                        chat.getString("createdAt"), toRecords(chat.getArray("messages")), false));
+            }
+            ConversationStore.get(reactContext).importChats(imported, ok -> {
+                if (ok) {
+                    promise.resolve(true);
+                } else {
+                    promise.reject("ERROR", "Could not import chats");
+                }
+            });
+        } catch (Exception e) {
+            RingLog.e(TAG, "❌ Error importing chats", e);
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * Full-text search over overlay and in-app history, newest first. Page with
+     * offset; a page shorter than limit is the last one.
+     */
+    @Override
+    public void searchHistory(String query, double limit, double offset, Promise promise) {
+        try {
+            ConversationStore.get(reactContext).search(query, (int) limit, (int) offset, hits -> {
+                WritableArray results = Arguments.createArray();
+                for (ConversationStore.Hit hit : hits) {
+                    WritableMap result = Arguments.createMap();
+                    result.putString("conversationId", hit.conversationId);
+                    result.putDouble("seq", hit.seq);
+                    result.putString("source", hit.source);
+                    result.putBoolean("isUser", hit.isUser);
+                    result.putString("text", hit.text);
+                    result.putString("timestamp", hit.timestamp);
+                    result.putString("snippet", hit.snippet);
+                    results.pushMap(result);
+                }
+                promise.resolve(results);
+            });
         } catch (Exception e) {
-            Log.e(TAG, "❌ Error checking overlay status", e);
+            RingLog.e(TAG, "❌ Error searching history", e);
             promise.reject("ERROR", e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Service start-up costs (ms): onCreate, time until the bubble is first
+     * drawn, building the spotlight and tap-to-first-frame of the first open.
+     * Resolves null while the overlay is not running.
+     */
+    @Override
+    public void getStartupTimings(Promise promise) {
+        requestOverlay(OverlayIpc.MSG_STARTUP_TIMINGS, promise);
+    }
+
+    /**
+     * Memory of the overlay process (KiB of PSS: total, Java heap, native heap,
+     * other) and its pid and uptime. Resolves null while the overlay is not running.
+     */
+    @Override
+    public void getOverlayMemory(Promise promise) {
+        requestOverlay(OverlayIpc.MSG_MEMORY, promise);
+    }
+
+    /**
+     * The native diagnostic logs of the app and overlay processes, oldest record
+     * first, one per line. Records carry event names and numbers only, never
+     * message text.
+     */
+    @Override
+    public void dumpLog(Promise promise) {
+        mainHandler.post(() -> overlay.request(OverlayIpc.MSG_DUMP_LOG, result -> {
+            StringBuilder log = new StringBuilder("===== app =====\n").append(RingLog.dump());
+            if (result != null) {
+                log.append("===== overlay =====\n").append(result.getString(OverlayIpc.KEY_LOG));
+            }
+            promise.resolve(log.toString());
+        }));
+    }
+
+    // Ask the overlay process; its reply Bundle has the same layout as the JS result
+    private void requestOverlay(int what, Promise promise) {
+        mainHandler.post(() -> overlay.request(what, result ->
+            promise.resolve(result != null ? Arguments.fromBundle(result) : null)));
+    }
+
+    @Override
+    public void invalidate() {
+        mainHandler.post(() -> {
+            overlay.setEventListener(null);
+            overlay.unbind();
+            events.cancel();
+        });
+        super.invalidate();
+    }
+}
@@ -1,25 +1,57 @@
 package com.smrutipanchsoft.zeni;
 
-import com.facebook.react.ReactPackage;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.BaseReactPackage;
 import com.facebook.react.bridge.NativeModule;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.uimanager.ViewManager;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
-public class OverlayPackage implements ReactPackage {
+// Registers OverlayModule as a TurboModule (JSI, created on first use), and
+// the legacy OverlayBridgeProbe module in benchmark builds
+public class OverlayPackage extends BaseReactPackage {
 
+    @Nullable
     @Override
-    public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-        List<NativeModule> modules = new ArrayList<>();
-        modules.add(new OverlayModule(reactContext));
-        return modules;
+    public NativeModule getModule(@NonNull String name, @NonNull ReactApplicationContext reactContext) {
+        if (OverlayModule.NAME.equals(name)) {
+            return new OverlayModule(reactContext);
+        }
+        if (BuildConfig.OVERLAY_BRIDGE_PROBE && OverlayBridgeProbeModule.NAME.equals(name)) {
+            return new OverlayBridgeProbeModule(reactContext);
+        }
+        return null;
     }
 
+    @NonNull
     @Override
-    public List<ViewManager> createViewManagers(ReactApplicationContext reactContext) {
-        return Collections.emptyList();
+    public ReactModuleInfoProvider getReactModuleInfoProvider() {
+        return () -> {
+            Map<String, ReactModuleInfo> modules = new HashMap<>();
+            modules.put(OverlayModule.NAME, new ReactModuleInfo(
+                    OverlayModule.NAME,
+                    OverlayModule.class.getName(),
+                    false, // canOverrideExistingModule
+                    false, // needsEagerInit
+                    false, // isCxxModule
+                    true   // isTurboModule
+            ));
+            if (BuildConfig.OVERLAY_BRIDGE_PROBE) {
+                modules.put(OverlayBridgeProbeModule.NAME, new ReactModuleInfo(
+                        OverlayBridgeProbeModule.NAME,
+                        OverlayBridgeProbeModule.class.getName(),
+                        false, // canOverrideExistingModule
+                        false, // needsEagerInit
+                        false, // isCxxModule
+                        false  // isTurboModule
+                ));
+            }
+            return modules;
+        };
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,8 @@
 package com.smrutipanchsoft.zeni;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
@@ -12,21 +15,27 @@ import android.graphics.PixelFormat;
 import android.graphics.Point;
 import android.graphics.drawable.GradientDrawable;
 import android.os.Build;
+import android.os.Bundle;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
-import android.text.Html;
+import android.os.Messenger;
+import android.os.SystemClock;
+import android.text.Editable;
 import android.text.InputType;
+import android.text.TextWatcher;
 import android.util.DisplayMetrics;
-import android.util.Log;
 import android.util.TypedValue;
 import android.view.Display;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.view.WindowManager;
+import android.view.animation.DecelerateInterpolator;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.EditText;
 import android.widget.FrameLayout;
@@ -36,16 +45,27 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.core.app.NotificationCompat;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 public class OverlayService extends Service {
 
-    public static OverlayService instance = null;
     private WindowManager windowManager;
+    private OverlayIpc.ServiceHandler ipcHandler;
+    private Messenger ipcMessenger;
+    // Reported to clients in OverlayIpc.MSG_STATE; false means onCreate failed
+    private boolean bubbleShown = false;
     
     private FrameLayout buttonContainer;
     private ImageView floatingButton;
@@ -54,6 +74,11 @@ public class OverlayService extends Service {
     private LinearLayout spotlightView;
     private WindowManager.LayoutParams spotlightParams;
     private boolean isSpotlightVisible = false;
+    // Built on first open (or warmed while the bubble is pressed) and then kept:
+    // hiding parks the window instead of removing it
+    private boolean spotlightAttached = false;
+    private boolean spotlightPrewarmQueued = false;
+    private final StartupTimings startupTimings = new StartupTimings();
     
     private EditText searchInput;
     private ImageView btnSend;
@@ -61,15 +86,33 @@ public class OverlayService extends Service {
     private RecyclerView chatRecyclerView;
     private ChatAdapter chatAdapter;
     private List<ChatMessage> chatMessages = new ArrayList<>();
+    private long nextMessageId = 0;
+    private boolean scrollToEndOnLayout = false;
+    private LinearLayoutManager chatLayoutManager;
+    // Older messages than the in-memory window live here
+    private ConversationStore conversationStore;
+    private String conversationId;
+    private boolean hasOlderMessages = false;
+    private boolean loadingOlderMessages = false;
+    private TextLayoutPipeline textLayoutPipeline;
+    private FrameStats chatFrameStats;
     
     private LinearLayout chatContainer;
     private LinearLayout typingIndicatorContainer;
-    private ImageView typingDots1, typingDots2, typingDots3;
+    private TypingDotsDrawable typingDots;
     
     private float initialTouchX, initialTouchY;
     private int initialX, initialY;
     private boolean isDragging = false;
     private static final int DRAG_THRESHOLD = 10;
+
+    // ✅ One updateViewLayout per window per frame while dragging or resizing
+    private WindowLayoutScheduler windowLayoutScheduler;
+    private FrameStats dragFrameStats;
+    private ValueAnimator bubbleSnapAnimator;
+    // How far ahead a release velocity is projected before snapping to an edge
+    private static final float FLING_PROJECTION_S = 0.15f;
+    private static final long SNAP_DURATION_MS = 350;
     
     private int screenWidth, screenHeight;
     private int buttonSize;
@@ -88,10 +131,23 @@ public class OverlayService extends Service {
     private Handler handler = new Handler(Looper.getMainLooper());
     
     private AIApiClient apiClient;
+    private OutboundQueue outboundQueue;
+    // Queued in this process - their user bubble is already on screen
+    private final Set<String> localQueuedIds = new HashSet<>();
 
     private static final String CHANNEL_ID = "overlay_service_channel";
     private static final int NOTIFICATION_ID = 1001;
 
+    private static final long REPLY_CACHE_TTL_MS = 30 * 60 * 1000;
+    private static final long REPLY_CACHE_MEMORY_CHARS = 256 * 1024;
+    private static final long REPLY_CACHE_DISK_BYTES = 2 * 1024 * 1024;
+
+    // Package-private for the paging memory test
+    static final int CHAT_WINDOW_SIZE = 100;
+    static final int CHAT_PAGE_SIZE = 30;
+    // Start loading an older page this many rows before the top is reached
+    private static final int CHAT_PREFETCH_ROWS = 5;
+
     private void createNotificationChannel() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
@@ -130,36 +186,103 @@ public class OverlayService extends Service {
             .build();
         
         startForeground(NOTIFICATION_ID, notification);
-        Log.d(TAG, "✅ Foreground notification started");
+        RingLog.d(TAG, "✅ Foreground notification started");
+    }
+
+    /**
+     * Wall-clock costs of bringing the overlay up, in ms; -1 until measured.
+     */
+    public static class StartupTimings {
+        public long serviceCreateMs = -1;
+        public long timeToBubbleMs = -1;
+        public long spotlightBuildMs = -1;
+        public long timeToFirstOpenMs = -1;
+        // Built on the idle handler while the bubble was pressed, not on the tap
+        public boolean spotlightPrewarmed = false;
     }
 
     // Chat Message Model
     private static class ChatMessage {
+        // Stable across edits; every edit is a new instance with a higher version
+        final long id;
+        final int version;
         String message;
         boolean isUser;
         String timestamp;
-
-        ChatMessage(String message, boolean isUser, String timestamp) {
+        // AI replies only - rendered once, then extended as tokens stream in
+        MarkdownRenderer rendered;
+        boolean streaming;
+        // Measured off the main thread; only valid while layoutSource is text()
+        PrecomputedTextCompat layout;
+        CharSequence layoutSource;
+
+        ChatMessage(long id, String message, boolean isUser, String timestamp) {
+            this.id = id;
+            this.version = 0;
             this.message = message;
             this.isUser = isUser;
             this.timestamp = timestamp;
+            if (!isUser) {
+                rendered = new MarkdownRenderer(message);
+            }
+        }
+
+        private ChatMessage(ChatMessage previous) {
+            this.id = previous.id;
+            this.version = previous.version + 1;
+            this.message = previous.message;
+            this.isUser = previous.isUser;
+            this.timestamp = previous.timestamp;
+            this.rendered = previous.rendered;
+            this.streaming = previous.streaming;
+            this.layout = previous.layout;
+            this.layoutSource = previous.layoutSource;
+        }
+
+        // Copy to edit - the list handed to the adapter keeps the old version for diffing
+        ChatMessage edit() {
+            return new ChatMessage(this);
+        }
+
+        CharSequence text() {
+            return isUser ? message : rendered.getSpanned();
         }
     }
 
+    private static final DiffUtil.ItemCallback<ChatMessage> CHAT_DIFF = new DiffUtil.ItemCallback<ChatMessage>() {
+        @Override
+        public boolean areItemsTheSame(ChatMessage oldItem, ChatMessage newItem) {
+            return oldItem.id == newItem.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(ChatMessage oldItem, ChatMessage newItem) {
+            return oldItem.version == newItem.version;
+        }
+    };
+
     // Chat Adapter
-    private class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+    private class ChatAdapter extends ListAdapter<ChatMessage, RecyclerView.ViewHolder> {
         private static final int TYPE_USER = 1;
         private static final int TYPE_AI = 2;
         
-        private List<ChatMessage> messages;
+        // Text metrics of each bubble type, taken from the first inflated row
+        private PrecomputedTextCompat.Params userTextParams;
+        private PrecomputedTextCompat.Params aiTextParams;
+
+        ChatAdapter() {
+            super(CHAT_DIFF);
+            setHasStableIds(true);
+        }
 
-        ChatAdapter(List<ChatMessage> messages) {
-            this.messages = messages;
+        @Override
+        public long getItemId(int position) {
+            return getItem(position).id;
         }
 
         @Override
         public int getItemViewType(int position) {
-            return messages.get(position).isUser ? TYPE_USER : TYPE_AI;
+            return getItem(position).isUser ? TYPE_USER : TYPE_AI;
         }
 
         @Override
@@ -167,16 +290,48 @@ public class OverlayService extends Service {
             LayoutInflater inflater = LayoutInflater.from(parent.getContext());
             if (viewType == TYPE_USER) {
                 View view = inflater.inflate(R.layout.item_chat_user, parent, false);
-                return new UserMessageViewHolder(view);
+                UserMessageViewHolder holder = new UserMessageViewHolder(view);
+                if (userTextParams == null) {
+                    userTextParams = TextViewCompat.getTextMetricsParams(holder.messageText);
+                }
+                return holder;
             } else {
                 View view = inflater.inflate(R.layout.item_chat_ai, parent, false);
-                return new AIMessageViewHolder(view);
+                AIMessageViewHolder holder = new AIMessageViewHolder(view);
+                if (aiTextParams == null) {
+                    aiTextParams = TextViewCompat.getTextMetricsParams(holder.messageText);
+                }
+                return holder;
             }
         }
 
+        // ✅ Queue background measuring unless it is done or the text is still streaming
+        void measure(ChatMessage message) {
+            if (message.streaming || message.layoutSource == message.text()) {
+                return;
+            }
+            textLayoutPipeline.submit(message, message.text(), message.isUser ? userTextParams : aiTextParams);
+        }
+
+        private void setMessageText(TextView view, ChatMessage message) {
+            CharSequence text = message.text();
+            if (message.layout != null && message.layoutSource == text) {
+                try {
+                    TextViewCompat.setPrecomputedText(view, message.layout);
+                    return;
+                } catch (IllegalArgumentException e) {
+                    // Metrics changed since measuring - measure again below
+                    message.layout = null;
+                    message.layoutSource = null;
+                }
+            }
+            view.setText(text);
+            measure(message);
+        }
+
         @Override
         public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
-            ChatMessage message = messages.get(position);
+            ChatMessage message = getItem(position);
             
             if (holder.getItemViewType() == TYPE_USER) {
                 ((UserMessageViewHolder) holder).bind(message);
@@ -185,11 +340,6 @@ public class OverlayService extends Service {
             }
         }
 
-        @Override
-        public int getItemCount() {
-            return messages.size();
-        }
-
         class UserMessageViewHolder extends RecyclerView.ViewHolder {
             TextView messageText, timeText;
             LinearLayout messageBubble;
@@ -202,7 +352,7 @@ public class OverlayService extends Service {
             }
 
             void bind(ChatMessage message) {
-                messageText.setText(message.message);
+                setMessageText(messageText, message);
                 timeText.setText(message.timestamp);
             }
         }
@@ -221,7 +371,7 @@ public class OverlayService extends Service {
             }
 
             void bind(ChatMessage message) {
-                messageText.setText(Html.fromHtml(message.message));
+                setMessageText(messageText, message);
                 timeText.setText(message.timestamp);
             }
         }
@@ -229,39 +379,92 @@ public class OverlayService extends Service {
 
     @Override
     public IBinder onBind(Intent intent) {
-        return null;
+        // OverlayModule lives in the app process and asks for metrics over this
+        return ipcMessenger.getBinder();
+    }
+
+    // Read-only access for OverlayIpc (metrics)
+    public AIApiClient getApiClient() {
+        return apiClient;
+    }
+
+    public FrameStats getChatFrameStats() {
+        return chatFrameStats;
+    }
+
+    public FrameStats getDragFrameStats() {
+        return dragFrameStats;
+    }
+
+    public WindowLayoutScheduler getWindowLayoutScheduler() {
+        return windowLayoutScheduler;
+    }
+
+    public boolean isBubbleShown() {
+        return bubbleShown;
     }
 
     @Override
     public void onCreate() {
         super.onCreate();
+        long createStart = SystemClock.uptimeMillis();
         
         startForegroundNotification();
         
-        instance = this;
+        ipcHandler = new OverlayIpc.ServiceHandler(this);
+        ipcMessenger = new Messenger(ipcHandler);
         apiClient = new AIApiClient();
+        // ✅ Repeated quick questions are answered from cache
+        apiClient.setResponseCache(new ResponseCache(
+            REPLY_CACHE_TTL_MS, REPLY_CACHE_MEMORY_CHARS,
+            new File(getCacheDir(), "replies"), REPLY_CACHE_DISK_BYTES
+        ));
+        apiClient.setHedging(true);
+        outboundQueue = new OutboundQueue(this, apiClient, new OutboundQueue.Listener() {
+            @Override
+            public void onDelivered(OutboundQueue.Entry entry, String reply) {
+                onQueuedMessageDelivered(entry, reply);
+            }
+
+            @Override
+            public void onFailed(OutboundQueue.Entry entry, String error) {
+                onQueuedMessageFailed(entry, error);
+            }
+        });
+        outboundQueue.start();
+        textLayoutPipeline = new TextLayoutPipeline(this::onTextLayoutReady);
+        conversationStore = ConversationStore.get(this);
+        conversationId = conversationStore.newConversation();
 
         try {
             windowManager = (WindowManager) getSystemService(WINDOW_SERVICE);
+            windowLayoutScheduler = new WindowLayoutScheduler(windowManager);
+            float refreshRate = windowManager.getDefaultDisplay().getRefreshRate();
+            dragFrameStats = new FrameStats(refreshRate);
+            chatFrameStats = new FrameStats(refreshRate);
             getScreenDimensions();
             createFloatingButton();
-            createCompactChat();
+            bubbleShown = true;
+            // ✅ The spotlight is built on first open, not here
+            onFirstPreDraw(buttonContainer, () ->
+                startupTimings.timeToBubbleMs = SystemClock.uptimeMillis() - createStart);
             
             apiClient.pingBackend(new AIApiClient.Callback<String>() {
                 @Override
                 public void onSuccess(String result) {
-                    Log.d(TAG, "✅ Backend connected: " + result);
+                    RingLog.d(TAG, "✅ Backend connected");
                 }
 
                 @Override
                 public void onError(String error) {
-                    Log.e(TAG, "⚠️ Backend not reachable: " + error);
+                    RingLog.w(TAG, "⚠️ Backend not reachable");
                 }
             });
             
-            Log.d(TAG, "✅ Service initialized");
+            startupTimings.serviceCreateMs = SystemClock.uptimeMillis() - createStart;
+            RingLog.d(TAG, "✅ Service initialized");
         } catch (Exception e) {
-            Log.e(TAG, "❌ Error", e);
+            RingLog.e(TAG, "❌ Error", e);
         }
     }
 
@@ -322,16 +525,31 @@ public class OverlayService extends Service {
             private float initialTouchX, initialTouchY;
             private int initialX, initialY;
             private boolean isDragging = false;
+            private VelocityTracker velocityTracker;
 
             @Override
             public boolean onTouch(View v, MotionEvent event) {
+                if (velocityTracker != null) {
+                    // Raw coordinates - the window itself moves under the finger
+                    MotionEvent raw = MotionEvent.obtain(event);
+                    raw.setLocation(event.getRawX(), event.getRawY());
+                    velocityTracker.addMovement(raw);
+                    raw.recycle();
+                }
                 switch (event.getAction()) {
                     case MotionEvent.ACTION_DOWN:
+                        if (bubbleSnapAnimator != null) {
+                            bubbleSnapAnimator.cancel();
+                        }
                         initialTouchX = event.getRawX();
                         initialTouchY = event.getRawY();
                         initialX = buttonParams.x;
                         initialY = buttonParams.y;
                         isDragging = false;
+                        velocityTracker = VelocityTracker.obtain();
+                        // A tap is likely - build the spotlight and open a connection while the finger is down
+                        prewarmSpotlight();
+                        apiClient.prewarm();
                         buttonContainer.animate().alpha(0.5f).setDuration(150).start();
                         return true;
 
@@ -339,9 +557,10 @@ public class OverlayService extends Service {
                         float dx = event.getRawX() - initialTouchX;
                         float dy = event.getRawY() - initialTouchY;
                         
-                        if (Math.abs(dx) > DRAG_THRESHOLD || Math.abs(dy) > DRAG_THRESHOLD) {
+                        if (!isDragging && (Math.abs(dx) > DRAG_THRESHOLD || Math.abs(dy) > DRAG_THRESHOLD)) {
                             isDragging = true;
                             buttonContainer.setAlpha(0.7f);
+                            dragFrameStats.start();
                         }
                         
                         if (isDragging) {
@@ -351,16 +570,24 @@ public class OverlayService extends Service {
                             newY = Math.max(0, Math.min(newY, screenHeight - buttonSize));
                             buttonParams.x = newX;
                             buttonParams.y = newY;
-                            windowManager.updateViewLayout(buttonContainer, buttonParams);
+                            windowLayoutScheduler.request(buttonContainer, buttonParams);
                         }
                         return true;
 
                     case MotionEvent.ACTION_UP:
+                    case MotionEvent.ACTION_CANCEL:
                         buttonContainer.animate().alpha(0.15f).setDuration(300).start();
-                        if (!isDragging) {
+                        if (isDragging && velocityTracker != null) {
+                            velocityTracker.computeCurrentVelocity(1000);
+                            snapBubbleToEdge(velocityTracker.getXVelocity(), velocityTracker.getYVelocity());
+                        } else if (event.getAction() == MotionEvent.ACTION_UP) {
                             toggleSpotlight();
                         }
                         isDragging = false;
+                        if (velocityTracker != null) {
+                            velocityTracker.recycle();
+                            velocityTracker = null;
+                        }
                         return true;
                 }
                 return false;
@@ -368,6 +595,33 @@ public class OverlayService extends Service {
         });
     }
 
+    // ✅ Fling: project the release velocity, then settle on the nearer screen edge
+    private void snapBubbleToEdge(float velocityX, float velocityY) {
+        float projectedX = buttonParams.x + velocityX * FLING_PROJECTION_S;
+        float projectedY = buttonParams.y + velocityY * FLING_PROJECTION_S;
+        int targetX = projectedX + buttonSize / 2f < screenWidth / 2f ? 0 : screenWidth - buttonSize;
+        int targetY = (int) Math.max(0, Math.min(projectedY, screenHeight - buttonSize));
+
+        int startX = buttonParams.x;
+        int startY = buttonParams.y;
+        bubbleSnapAnimator = ValueAnimator.ofFloat(0f, 1f);
+        bubbleSnapAnimator.setDuration(SNAP_DURATION_MS);
+        bubbleSnapAnimator.setInterpolator(new DecelerateInterpolator(2f));
+        bubbleSnapAnimator.addUpdateListener(animation -> {
+            float fraction = animation.getAnimatedFraction();
+            buttonParams.x = startX + Math.round((targetX - startX) * fraction);
+            buttonParams.y = startY + Math.round((targetY - startY) * fraction);
+            windowLayoutScheduler.request(buttonContainer, buttonParams);
+        });
+        bubbleSnapAnimator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                dragFrameStats.stop();
+            }
+        });
+        bubbleSnapAnimator.start();
+    }
+
     private void createCompactChat() {
         float dp = getResources().getDisplayMetrics().density;
         
@@ -436,9 +690,45 @@ public class OverlayService extends Service {
         chatContainer.setVisibility(View.GONE);
         
         chatRecyclerView = new RecyclerView(this);
-        chatRecyclerView.setLayoutManager(new LinearLayoutManager(this));
-        chatAdapter = new ChatAdapter(chatMessages);
+        chatLayoutManager = new LinearLayoutManager(this) {
+            @Override
+            public void onLayoutCompleted(RecyclerView.State state) {
+                super.onLayoutCompleted(state);
+                if (scrollToEndOnLayout && state.getItemCount() > 0) {
+                    scrollToEndOnLayout = false;
+                    int last = state.getItemCount() - 1;
+                    // Not allowed from inside layout - run right after this pass
+                    chatRecyclerView.post(() -> chatRecyclerView.smoothScrollToPosition(last));
+                }
+            }
+        };
+        chatRecyclerView.setLayoutManager(chatLayoutManager);
+        chatAdapter = new ChatAdapter();
         chatRecyclerView.setAdapter(chatAdapter);
+
+        // ✅ Frame times are sampled only while the chat list is moving
+        chatRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    chatFrameStats.stop();
+                    // Back near the bottom - let go of pages loaded while scrolling up
+                    if (trimChatWindow()) {
+                        publishMessages(false);
+                    }
+                } else {
+                    chatFrameStats.start();
+                }
+            }
+
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy < 0 && hasOlderMessages && !loadingOlderMessages
+                        && chatLayoutManager.findFirstVisibleItemPosition() <= CHAT_PREFETCH_ROWS) {
+                    loadOlderMessages();
+                }
+            }
+        });
         
         LinearLayout.LayoutParams chatParams = new LinearLayout.LayoutParams(
             ViewGroup.LayoutParams.MATCH_PARENT,
@@ -464,18 +754,11 @@ public class OverlayService extends Service {
         typingDotsContainer.setGravity(Gravity.CENTER_VERTICAL);
         typingDotsContainer.setPadding((int)(8*dp), 0, 0, 0);
         
-        typingDots1 = new ImageView(this);
-        typingDots2 = new ImageView(this);
-        typingDots3 = new ImageView(this);
-        
-        for (ImageView dot : new ImageView[]{typingDots1, typingDots2, typingDots3}) {
-            dot.setImageResource(R.drawable.ic_dot);
-            dot.setColorFilter(Color.parseColor("#666666"));
-            LinearLayout.LayoutParams dotParams = new LinearLayout.LayoutParams((int)(6*dp), (int)(6*dp));
-            dotParams.setMarginEnd((int)(4*dp));
-            dot.setLayoutParams(dotParams);
-            typingDotsContainer.addView(dot);
-        }
+        // ✅ All three dots in one drawable, animated by a single ValueAnimator
+        typingDots = new TypingDotsDrawable(Color.parseColor("#666666"), 6 * dp, 4 * dp);
+        ImageView typingDotsView = new ImageView(this);
+        typingDotsView.setImageDrawable(typingDots);
+        typingDotsContainer.addView(typingDotsView);
         
         typingIndicatorContainer.addView(typingAvatar);
         typingIndicatorContainer.addView(typingDotsContainer);
@@ -506,6 +789,23 @@ public class OverlayService extends Service {
         inputParams.setMarginEnd((int)(8*dp));
         searchInput.setLayoutParams(inputParams);
         searchInput.setPadding((int)(4*dp), 0, 0, 0);
+        searchInput.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                // First keystroke of a message - a send is coming
+                if (s.length() == count && count > 0) {
+                    apiClient.prewarm();
+                }
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+            }
+        });
 
         btnSend = new ImageView(this);
         btnSend.setImageResource(R.drawable.ic_send);
@@ -646,7 +946,7 @@ public class OverlayService extends Service {
                     .scaleY(0.9f)
                     .setDuration(200)
                     .withEndAction(() -> {
-                        windowManager.removeView(spotlightView);
+                        parkSpotlight();
                         isSpotlightVisible = false;
                         searchInput.setText("");
                         // ✅ DON'T clear chat messages - keep conversation data
@@ -656,7 +956,7 @@ public class OverlayService extends Service {
                 Toast.makeText(this, "Chat minimized", Toast.LENGTH_SHORT).show();
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error minimizing", e);
+            RingLog.e(TAG, "Error minimizing", e);
         }
     }
 
@@ -667,20 +967,8 @@ public class OverlayService extends Service {
             Intent intent = new Intent(this, MainActivity.class);
             intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
             
-            // ✅ Pass conversation data to app
-            ArrayList<String> messages = new ArrayList<>();
-            ArrayList<Boolean> isUserList = new ArrayList<>();
-            ArrayList<String> timestamps = new ArrayList<>();
-            
-            for (ChatMessage msg : chatMessages) {
-                messages.add(msg.message);
-                isUserList.add(msg.isUser);
-                timestamps.add(msg.timestamp);
-            }
-            
-            intent.putStringArrayListExtra("chat_messages", messages);
-            intent.putExtra("is_user", isUserList.toArray(new Boolean[0]));
-            intent.putStringArrayListExtra("timestamps", timestamps);
+            // ✅ Messages are already in the shared store - only the id crosses over
+            intent.putExtra(OverlayModule.EXTRA_CONVERSATION_ID, conversationId);
             
             startActivity(intent);
             
@@ -689,7 +977,7 @@ public class OverlayService extends Service {
             
             Toast.makeText(this, "Opening in app...", Toast.LENGTH_SHORT).show();
         } catch (Exception e) {
-            Log.e(TAG, "Error maximizing to app", e);
+            RingLog.e(TAG, "Error maximizing to app", e);
             Toast.makeText(this, "Error opening app", Toast.LENGTH_SHORT).show();
         }
     }
@@ -732,7 +1020,7 @@ public class OverlayService extends Service {
                             
                             spotlightParams.x = newX;
                             spotlightParams.y = newY;
-                            windowManager.updateViewLayout(spotlightView, spotlightParams);
+                            windowLayoutScheduler.request(spotlightView, spotlightParams);
                         }
                         return true;
 
@@ -785,7 +1073,7 @@ public class OverlayService extends Service {
                                 chatRecyclerView.setLayoutParams(chatParams);
                             }
                             
-                            windowManager.updateViewLayout(spotlightView, spotlightParams);
+                            windowLayoutScheduler.request(spotlightView, spotlightParams);
                         }
                         return true;
 
@@ -805,39 +1093,204 @@ public class OverlayService extends Service {
         
         addUserMessage(message, "Just now");
         showTypingIndicator();
-        
-        apiClient.sendMessage(message, new AIApiClient.Callback<String>() {
+
+        // Same id on the first try and on every queued resend
+        String messageId = UUID.randomUUID().toString();
+        apiClient.sendMessageStreaming(message, messageId, new AIApiClient.StreamCallback() {
+            private long streamingId = -1;
+
+            @Override
+            public void onToken(String token) {
+                if (streamingId < 0) {
+                    // ✅ First token - swap typing dots for the reply bubble
+                    hideTypingIndicator();
+                    streamingId = addAIMessage(token, "Just now", true);
+                } else {
+                    appendToAIMessage(streamingId, token);
+                }
+            }
+
             @Override
-            public void onSuccess(String response) {
-                handler.post(() -> {
+            public void onComplete(String reply) {
+                if (streamingId < 0) {
                     hideTypingIndicator();
-                    String formattedResponse = formatMessageToHtml(response);
-                    addAIMessage(formattedResponse, "Just now");
-                });
+                    addAIMessage(reply, "Just now");
+                } else {
+                    finishAIMessage(streamingId, reply);
+                }
             }
 
             @Override
             public void onError(String error) {
-                handler.post(() -> {
-                    hideTypingIndicator();
-                    addAIMessage("⚠️ Error: " + error, "Just now");
-                });
+                hideTypingIndicator();
+                if (streamingId >= 0) {
+                    finishAIMessage(streamingId, null);
+                }
+                addAIMessage("⚠️ Error: " + error, "Just now");
+            }
+
+            @Override
+            public void onUnreachable(String error) {
+                if (streamingId >= 0) {
+                    // Part of the reply is on screen - a resend would answer it twice
+                    onError(error);
+                    return;
+                }
+                // ✅ Backend never answered - keep the question and retry in the background
+                hideTypingIndicator();
+                OutboundQueue.Entry entry = outboundQueue.enqueue(messageId, message);
+                localQueuedIds.add(entry.id);
+                Toast.makeText(OverlayService.this, "Offline - will send when back online", Toast.LENGTH_SHORT).show();
             }
         });
     }
-    
-    private String formatMessageToHtml(String text) {
-        if (text == null) return "";
-        
-        text = text.replaceAll("\\*\\*(.+?)\\*\\*", "<b>$1</b>");
-        text = text.replaceAll("\\*(.+?)\\*", "<i>$1</i>");
-        text = text.replaceAll("(?m)^• (.+)$", "<br/>• $1");
-        text = text.replaceAll("(?m)^(\\d+)\\. (.+)$", "<br/><b>$1.</b> $2");
-        text = text.replaceAll("^<br/>", "");
-        
-        return text;
+
+    // ✅ A queued message finally got its answer
+    private void onQueuedMessageDelivered(OutboundQueue.Entry entry, String reply) {
+        ensureSpotlight(false);
+        if (!isExpanded) {
+            expandChat();
+        }
+        if (!localQueuedIds.remove(entry.id)) {
+            // Replayed after a restart - the question is not on screen yet
+            addUserMessage(entry.message, "Earlier");
+        }
+        addAIMessage(reply, "Just now");
     }
 
+    // ✅ The backend kept rejecting a queued message - stop retrying and say so
+    private void onQueuedMessageFailed(OutboundQueue.Entry entry, String error) {
+        ensureSpotlight(false);
+        if (!isExpanded) {
+            expandChat();
+        }
+        if (!localQueuedIds.remove(entry.id)) {
+            addUserMessage(entry.message, "Earlier");
+        }
+        addAIMessage("⚠️ Error: " + error, "Just now");
+    }
+
+    private int indexOfMessage(long id) {
+        for (int i = chatMessages.size() - 1; i >= 0; i--) {
+            if (chatMessages.get(i).id == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // ✅ Render just the new token of a reply that is still streaming in
+    private void appendToAIMessage(long id, String token) {
+        int index = indexOfMessage(id);
+        if (index < 0) {
+            return;
+        }
+        ChatMessage edited = chatMessages.get(index).edit();
+        edited.rendered.append(token);
+        edited.message = edited.rendered.getSource();
+        chatMessages.set(index, edited);
+        publishMessages(false);
+    }
+
+    // ✅ Settle a streamed reply on its final text (null keeps what arrived)
+    private void finishAIMessage(long id, String reply) {
+        int index = indexOfMessage(id);
+        if (index < 0) {
+            if (reply != null) {
+                conversationStore.updateText(conversationId, id, reply);
+            }
+            return;
+        }
+        ChatMessage edited = chatMessages.get(index).edit();
+        edited.streaming = false;
+        if (reply != null) {
+            edited.message = reply;
+            // Only the unseen suffix is parsed when the text grew
+            edited.rendered.setText(reply);
+        }
+        chatMessages.set(index, edited);
+        conversationStore.updateText(conversationId, id, edited.message);
+        pushMessageEvent(edited);
+        chatAdapter.measure(edited);
+        publishMessages(false);
+        pushMetricsEvent();
+    }
+
+    // ✅ Let an open app mirror the conversation live
+    private void pushMessageEvent(ChatMessage message) {
+        ipcHandler.broadcast(OverlayIpc.MSG_EVENT_MESSAGE, OverlayIpc.messageEvent(
+                conversationId, message.id, message.isUser, message.message, message.timestamp));
+    }
+
+    private void pushMetricsEvent() {
+        Bundle event = new Bundle();
+        event.putBundle("metrics", OverlayIpc.networkMetrics(apiClient));
+        ipcHandler.broadcast(OverlayIpc.MSG_EVENT_METRICS, event);
+    }
+
+    // ✅ Keep only the recent window in memory - older messages are paged back in on demand
+    private boolean trimChatWindow() {
+        if (loadingOlderMessages) {
+            return false;
+        }
+        int excess = chatMessages.size() - CHAT_WINDOW_SIZE;
+        // Never drop rows that are on screen
+        int firstVisible = chatLayoutManager.findFirstVisibleItemPosition();
+        if (firstVisible != RecyclerView.NO_POSITION) {
+            excess = Math.min(excess, firstVisible);
+        }
+        if (excess <= 0) {
+            return false;
+        }
+        chatMessages.subList(0, excess).clear();
+        hasOlderMessages = true;
+        return true;
+    }
+
+    private void loadOlderMessages() {
+        if (chatMessages.isEmpty()) {
+            return;
+        }
+        loadingOlderMessages = true;
+        String conversation = conversationId;
+        conversationStore.loadBefore(conversation, chatMessages.get(0).id, CHAT_PAGE_SIZE, page -> {
+            loadingOlderMessages = false;
+            if (!conversation.equals(conversationId)) {
+                return;
+            }
+            List<ChatMessage> older = new ArrayList<>(page.size());
+            for (ConversationStore.Record record : page) {
+                ChatMessage message = new ChatMessage(record.seq, record.text, record.isUser, record.timestamp);
+                chatAdapter.measure(message);
+                older.add(message);
+            }
+            chatMessages.addAll(0, older);
+            hasOlderMessages = page.size() == CHAT_PAGE_SIZE;
+            publishMessages(false);
+        });
+    }
+
+    // ✅ Keep a background measurement only if the text did not change meanwhile
+    private void onTextLayoutReady(Object owner, CharSequence text, PrecomputedTextCompat layout) {
+        int index = indexOfMessage(((ChatMessage) owner).id);
+        if (index < 0) {
+            return;
+        }
+        ChatMessage message = chatMessages.get(index);
+        if (message.text() == text) {
+            message.layout = layout;
+            message.layoutSource = text;
+        }
+    }
+
+    // ✅ Diff against what is on screen in the background; only changed rows rebind
+    private void publishMessages(boolean scrollToEnd) {
+        chatAdapter.submitList(new ArrayList<>(chatMessages), scrollToEnd ? () -> {
+            // The commit schedules a layout pass - scroll once it has happened
+            scrollToEndOnLayout = true;
+        } : null);
+    }
+    
     private void expandChat() {
         isExpanded = true;
         chatContainer.setVisibility(View.VISIBLE);
@@ -851,52 +1304,107 @@ public class OverlayService extends Service {
     }
 
     private void addUserMessage(String message, String timestamp) {
-        ChatMessage chatMessage = new ChatMessage(message, true, timestamp);
+        ChatMessage chatMessage = new ChatMessage(nextMessageId++, message, true, timestamp);
         chatMessages.add(chatMessage);
-        chatAdapter.notifyItemInserted(chatMessages.size() - 1);
-        
-        handler.postDelayed(() -> {
-            chatRecyclerView.smoothScrollToPosition(chatMessages.size() - 1);
-        }, 100);
+        conversationStore.append(conversationId, chatMessage.id, true, message, timestamp);
+        pushMessageEvent(chatMessage);
+        trimChatWindow();
+        chatAdapter.measure(chatMessage);
+        publishMessages(true);
     }
 
-    private void addAIMessage(String message, String timestamp) {
-        ChatMessage chatMessage = new ChatMessage(message, false, timestamp);
+    private long addAIMessage(String message, String timestamp) {
+        return addAIMessage(message, timestamp, false);
+    }
+
+    private long addAIMessage(String message, String timestamp, boolean streaming) {
+        ChatMessage chatMessage = new ChatMessage(nextMessageId++, message, false, timestamp);
+        chatMessage.streaming = streaming;
         chatMessages.add(chatMessage);
-        chatAdapter.notifyItemInserted(chatMessages.size() - 1);
-        
-        handler.postDelayed(() -> {
-            chatRecyclerView.smoothScrollToPosition(chatMessages.size() - 1);
-        }, 100);
+        conversationStore.append(conversationId, chatMessage.id, false, message, timestamp);
+        if (!streaming) {
+            pushMessageEvent(chatMessage);
+        }
+        trimChatWindow();
+        chatAdapter.measure(chatMessage);
+        publishMessages(true);
+        return chatMessage.id;
     }
 
     private void showTypingIndicator() {
         typingIndicatorContainer.setVisibility(View.VISIBLE);
         typingIndicatorContainer.setAlpha(0f);
         typingIndicatorContainer.animate().alpha(1f).setDuration(200).start();
-        animateTypingDots();
+        typingDots.start();
     }
 
     private void hideTypingIndicator() {
         typingIndicatorContainer.animate().alpha(0f).setDuration(200)
-            .withEndAction(() -> typingIndicatorContainer.setVisibility(View.GONE))
+            .withEndAction(() -> {
+                typingIndicatorContainer.setVisibility(View.GONE);
+                typingDots.stop();
+            })
             .start();
     }
 
-    private void animateTypingDots() {
-        typingDots1.animate().alpha(0.3f).setDuration(300).start();
-        typingDots2.animate().alpha(0.3f).setDuration(300).setStartDelay(100).start();
-        typingDots3.animate().alpha(0.3f).setDuration(300).setStartDelay(200).start();
-        
-        handler.postDelayed(() -> {
-            typingDots1.animate().alpha(1f).setDuration(300).start();
-            typingDots2.animate().alpha(1f).setDuration(300).setStartDelay(100).start();
-            typingDots3.animate().alpha(1f).setDuration(300).setStartDelay(200).start();
-        }, 600);
-        
-        if (typingIndicatorContainer.getVisibility() == View.VISIBLE) {
-            handler.postDelayed(this::animateTypingDots, 1200);
+    public StartupTimings getStartupTimings() {
+        return startupTimings;
+    }
+
+    private void ensureSpotlight(boolean prewarm) {
+        if (spotlightView != null) {
+            return;
+        }
+        long start = SystemClock.uptimeMillis();
+        createCompactChat();
+        startupTimings.spotlightBuildMs = SystemClock.uptimeMillis() - start;
+        startupTimings.spotlightPrewarmed = prewarm;
+    }
+
+    private void prewarmSpotlight() {
+        if (spotlightView != null || spotlightPrewarmQueued) {
+            return;
         }
+        spotlightPrewarmQueued = true;
+        Looper.myQueue().addIdleHandler(() -> {
+            spotlightPrewarmQueued = false;
+            ensureSpotlight(true);
+            return false;
+        });
+    }
+
+    // Run once, right before the view's next frame is drawn
+    private static void onFirstPreDraw(View view, Runnable action) {
+        view.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                view.getViewTreeObserver().removeOnPreDrawListener(this);
+                action.run();
+                return true;
+            }
+        });
+    }
+
+    // ✅ Put the parked window back instead of adding a new one
+    private void attachSpotlight() {
+        spotlightView.setVisibility(View.VISIBLE);
+        if (!spotlightAttached) {
+            windowManager.addView(spotlightView, spotlightParams);
+            spotlightAttached = true;
+            return;
+        }
+        spotlightParams.flags &= ~(WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE
+                | WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE);
+        windowManager.updateViewLayout(spotlightView, spotlightParams);
+    }
+
+    // ✅ Keep the window and its hierarchy, but invisible and out of the way of input
+    private void parkSpotlight() {
+        windowLayoutScheduler.cancel(spotlightView);
+        spotlightView.setVisibility(View.GONE);
+        spotlightParams.flags |= WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE
+                | WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE;
+        windowManager.updateViewLayout(spotlightView, spotlightParams);
     }
 
     private void toggleSpotlight() {
@@ -909,12 +1417,20 @@ public class OverlayService extends Service {
 
     private void showSpotlight() {
         try {
-            if (!isSpotlightVisible && spotlightView != null) {
+            if (!isSpotlightVisible) {
+                long requestedAt = SystemClock.uptimeMillis();
+                apiClient.prewarm();
+                ensureSpotlight(false);
+                if (!spotlightAttached) {
+                    // First open - tap to first frame, including any build on the tap
+                    onFirstPreDraw(spotlightView, () ->
+                        startupTimings.timeToFirstOpenMs = SystemClock.uptimeMillis() - requestedAt);
+                }
                 spotlightView.setAlpha(0f);
                 spotlightView.setScaleX(0.9f);
                 spotlightView.setScaleY(0.9f);
                 
-                windowManager.addView(spotlightView, spotlightParams);
+                attachSpotlight();
                 isSpotlightVisible = true;
                 
                 spotlightView.animate()
@@ -924,23 +1440,29 @@ public class OverlayService extends Service {
                     .setDuration(250)
                     .start();
                 
-                handler.postDelayed(() -> {
-                    searchInput.requestFocus();
-                    InputMethodManager imm = (InputMethodManager) getSystemService(Context.INPUT_METHOD_SERVICE);
-                    if (imm != null) {
-                        imm.showSoftInput(searchInput, InputMethodManager.SHOW_IMPLICIT);
-                    }
-                }, 200);
+                handler.postDelayed(focusInputRunnable, 200);
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error showing", e);
+            RingLog.e(TAG, "Error showing", e);
         }
     }
 
+    private final Runnable focusInputRunnable = () -> {
+        searchInput.requestFocus();
+        InputMethodManager imm = (InputMethodManager) getSystemService(Context.INPUT_METHOD_SERVICE);
+        if (imm != null) {
+            imm.showSoftInput(searchInput, InputMethodManager.SHOW_IMPLICIT);
+        }
+    };
+
     private void hideSpotlight() {
         try {
             if (isSpotlightVisible && spotlightView != null) {
-                handler.removeCallbacksAndMessages(null);
+                // Only what belongs to the spotlight - other posted work keeps running
+                handler.removeCallbacks(focusInputRunnable);
+                typingDots.stop();
+                typingIndicatorContainer.setVisibility(View.GONE);
+                apiClient.cancelChatRequests();
                 
                 InputMethodManager imm = (InputMethodManager) getSystemService(Context.INPUT_METHOD_SERVICE);
                 if (imm != null) {
@@ -953,7 +1475,7 @@ public class OverlayService extends Service {
                     .scaleY(0.9f)
                     .setDuration(200)
                     .withEndAction(() -> {
-                        windowManager.removeView(spotlightView);
+                        parkSpotlight();
                         isSpotlightVisible = false;
                         searchInput.setText("");
                         
@@ -961,12 +1483,18 @@ public class OverlayService extends Service {
                         chatContainer.setVisibility(View.GONE);
                         isExpanded = false;
                         chatMessages.clear();
-                        chatAdapter.notifyDataSetChanged();
+                        textLayoutPipeline.clear();
+                        // The old conversation stays in the searchable history
+                        conversationId = conversationStore.newConversation();
+                        // Queued questions left the screen with it - replies bring them back
+                        localQueuedIds.clear();
+                        hasOlderMessages = false;
+                        publishMessages(false);
                     })
                     .start();
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error hiding", e);
+            RingLog.e(TAG, "Error hiding", e);
         }
     }
 
@@ -976,17 +1504,42 @@ public class OverlayService extends Service {
         try {
             handler.removeCallbacksAndMessages(null);
             
+            if (outboundQueue != null) {
+                outboundQueue.stop();
+            }
+            if (textLayoutPipeline != null) {
+                textLayoutPipeline.stop();
+            }
+            if (chatFrameStats != null) {
+                chatFrameStats.stop();
+            }
+            if (bubbleSnapAnimator != null) {
+                bubbleSnapAnimator.cancel();
+            }
+            if (dragFrameStats != null) {
+                dragFrameStats.stop();
+            }
             if (apiClient != null) {
                 apiClient.shutdown();
             }
             
-            hideSpotlight();
+            if (spotlightAttached) {
+                windowLayoutScheduler.cancel(spotlightView);
+                windowManager.removeView(spotlightView);
+                spotlightAttached = false;
+            }
             if (buttonContainer != null) {
+                windowLayoutScheduler.cancel(buttonContainer);
                 windowManager.removeView(buttonContainer);
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error", e);
+            RingLog.e(TAG, "Error", e);
+        }
+        // Everything is torn down - stopOverlay() resolves now
+        if (ipcHandler != null) {
+            ipcHandler.notifyStopped();
         }
-        instance = null;
+        // Also reaches callers that stopped us before they ever connected
+        sendBroadcast(new Intent(OverlayIpc.ACTION_OVERLAY_STOPPED).setPackage(getPackageName()));
     }
 }
\ No newline at end of file
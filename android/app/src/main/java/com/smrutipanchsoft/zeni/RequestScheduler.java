@@ -0,0 +1,167 @@
+package com.smrutipanchsoft.zeni;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs AIApiClient work on two lanes:
+ * - control lane (health, ping, clear) never waits behind a slow /chat
+ * - chat lane keeps requests strictly ordered per session, sessions run in parallel
+ */
+public class RequestScheduler {
+
+    private static final int MAX_CHAT_THREADS = 4;
+
+    public interface Job {
+        void run(Task task) throws Exception;
+    }
+
+    // Handle for a submitted job; cancelled jobs must not deliver results
+    public static class Task {
+        private final Job job;
+        private final boolean cancellable;
+        private volatile boolean cancelled = false;
+
+        Task(Job job, boolean cancellable) {
+            this.job = job;
+            this.cancellable = cancellable;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public void cancel() {
+            if (cancellable) {
+                cancelled = true;
+            }
+        }
+    }
+
+    private final ExecutorService controlExecutor = Executors.newSingleThreadExecutor();
+    private final ThreadPoolExecutor chatExecutor = new ThreadPoolExecutor(
+            MAX_CHAT_THREADS, MAX_CHAT_THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+
+    // Guarded by "this"
+    private final Map<String, SessionQueue> sessions = new HashMap<>();
+
+    public RequestScheduler() {
+        chatExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    public Task submitControl(Job job) {
+        Task task = new Task(job, true);
+        controlExecutor.execute(() -> runTask(task));
+        return task;
+    }
+
+    public Task submitChat(String sessionId, Job job) {
+        return submitChat(sessionId, true, job);
+    }
+
+    /**
+     * Non-cancellable jobs (e.g. offline queue flushes) keep their place in the
+     * session order but survive cancelChat().
+     */
+    public Task submitChat(String sessionId, boolean cancellable, Job job) {
+        Task task = new Task(job, cancellable);
+        synchronized (this) {
+            SessionQueue queue = sessions.get(sessionId);
+            if (queue == null) {
+                queue = new SessionQueue(sessionId);
+                sessions.put(sessionId, queue);
+            }
+            queue.pending.add(task);
+            if (queue.running == null) {
+                scheduleNext(queue);
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Drop queued cancellable chat jobs of a session and flag the running one as cancelled.
+     */
+    public synchronized void cancelChat(String sessionId) {
+        SessionQueue queue = sessions.get(sessionId);
+        if (queue == null) {
+            return;
+        }
+        Iterator<Task> it = queue.pending.iterator();
+        while (it.hasNext()) {
+            Task task = it.next();
+            if (task.cancellable) {
+                task.cancel();
+                it.remove();
+            }
+        }
+        if (queue.running != null) {
+            queue.running.cancel();
+        }
+    }
+
+    public void shutdown() {
+        synchronized (this) {
+            for (String sessionId : sessions.keySet().toArray(new String[0])) {
+                cancelChat(sessionId);
+            }
+        }
+        controlExecutor.shutdown();
+        chatExecutor.shutdown();
+    }
+
+    // Caller holds "this"
+    private void scheduleNext(SessionQueue queue) {
+        Task next = queue.pending.poll();
+        queue.running = next;
+        if (next == null) {
+            sessions.remove(queue.sessionId);
+            return;
+        }
+        try {
+            chatExecutor.execute(() -> {
+                try {
+                    runTask(next);
+                } finally {
+                    synchronized (RequestScheduler.this) {
+                        scheduleNext(queue);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shut down - whatever is left of this session is dropped
+            queue.pending.clear();
+            queue.running = null;
+            sessions.remove(queue.sessionId);
+        }
+    }
+
+    private static void runTask(Task task) {
+        if (task.isCancelled()) {
+            return;
+        }
+        try {
+            task.job.run(task);
+        } catch (Exception ignored) {
+            // Jobs report their own errors through their callbacks
+        }
+    }
+
+    private static class SessionQueue {
+        final String sessionId;
+        final ArrayDeque<Task> pending = new ArrayDeque<>();
+        Task running;
+
+        SessionQueue(String sessionId) {
+            this.sessionId = sessionId;
+        }
+    }
+}
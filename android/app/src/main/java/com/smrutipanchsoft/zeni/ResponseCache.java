@@ -0,0 +1,285 @@
+package com.smrutipanchsoft.zeni;
+
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded LRU cache of chat replies, keyed by normalized prompt plus a
+ * hash of the conversation before it. Entries expire after a TTL.
+ * Memory tier is always on; the disk tier is used when a directory is given.
+ */
+public class ResponseCache {
+
+    private static final String TAG = "ResponseCache";
+
+    private final long ttlMs;
+    private final long maxMemoryChars;
+    private final File diskDir;
+    private final long maxDiskBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry. Guarded by "this".
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryChars = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private static class Entry {
+        final String reply;
+        final long expiresAt;
+
+        Entry(String reply, long expiresAt) {
+            this.reply = reply;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public static class Stats {
+        public final long hits;
+        public final long diskHits;
+        public final long misses;
+        public final long evictions;
+        public final int entries;
+
+        Stats(long hits, long diskHits, long misses, long evictions, int entries) {
+            this.hits = hits;
+            this.diskHits = diskHits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.entries = entries;
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + hits + " (disk " + diskHits + ") misses=" + misses
+                    + " evictions=" + evictions + " entries=" + entries;
+        }
+    }
+
+    /**
+     * Memory-only cache.
+     */
+    public ResponseCache(long ttlMs, long maxMemoryChars) {
+        this(ttlMs, maxMemoryChars, null, 0);
+    }
+
+    /**
+     * Memory cache backed by a disk tier in diskDir, e.g. getCacheDir()/replies.
+     */
+    public ResponseCache(long ttlMs, long maxMemoryChars, File diskDir, long maxDiskBytes) {
+        this.ttlMs = ttlMs;
+        this.maxMemoryChars = maxMemoryChars;
+        this.diskDir = diskDir;
+        this.maxDiskBytes = maxDiskBytes;
+        if (diskDir != null && !diskDir.exists() && !diskDir.mkdirs()) {
+            RingLog.w(TAG, "⚠️ Could not create disk tier");
+        }
+    }
+
+    /**
+     * Build the cache key: whitespace-collapsed, lower-cased prompt plus the context.
+     * Hashes - call off the main thread.
+     */
+    public static String key(String prompt, String context) {
+        String normalized = prompt.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return sha256(context + '\u0000' + normalized);
+    }
+
+    /**
+     * Memory tier only - cheap enough for the main thread.
+     */
+    public synchronized String getFromMemory(String key) {
+        Entry entry = memory.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            removeFromMemory(key, entry);
+            evictions.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.reply;
+    }
+
+    /**
+     * Memory, then disk. Does file IO - call off the main thread. Counts a miss when
+     * neither tier has the key.
+     */
+    public String get(String key) {
+        String reply = getFromMemory(key);
+        if (reply != null) {
+            return reply;
+        }
+        Entry entry = readDisk(key);
+        if (entry != null) {
+            diskHits.incrementAndGet();
+            hits.incrementAndGet();
+            putInMemory(key, entry);
+            return entry.reply;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Store a reply in both tiers. Does file IO when the disk tier is enabled.
+     */
+    public void put(String key, String reply) {
+        Entry entry = new Entry(reply, System.currentTimeMillis() + ttlMs);
+        putInMemory(key, entry);
+        writeDisk(key, entry);
+    }
+
+    public synchronized void clear() {
+        memory.clear();
+        memoryChars = 0;
+        if (diskDir != null) {
+            File[] files = diskDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits.get(), diskHits.get(), misses.get(), evictions.get(), memory.size());
+    }
+
+    private synchronized void putInMemory(String key, Entry entry) {
+        Entry previous = memory.put(key, entry);
+        if (previous != null) {
+            memoryChars -= previous.reply.length();
+        }
+        memoryChars += entry.reply.length();
+
+        Iterator<Map.Entry<String, Entry>> lru = memory.entrySet().iterator();
+        while (memoryChars > maxMemoryChars && lru.hasNext()) {
+            Map.Entry<String, Entry> eldest = lru.next();
+            memoryChars -= eldest.getValue().reply.length();
+            lru.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void removeFromMemory(String key, Entry entry) {
+        memory.remove(key);
+        memoryChars -= entry.reply.length();
+    }
+
+    // ========== DISK TIER ==========
+    // One file per key: first line is the expiry timestamp, the rest is the reply
+
+    private Entry readDisk(String key) {
+        if (diskDir == null) {
+            return null;
+        }
+        File file = new File(diskDir, key);
+        if (!file.exists()) {
+            return null;
+        }
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] bytes = new byte[(int) file.length()];
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            String content = new String(bytes, 0, read, StandardCharsets.UTF_8);
+            int newline = content.indexOf('\n');
+            long expiresAt = Long.parseLong(content.substring(0, newline));
+            if (expiresAt <= System.currentTimeMillis()) {
+                file.delete();
+                evictions.incrementAndGet();
+                return null;
+            }
+            // Touch so the disk trim keeps recently used replies
+            file.setLastModified(System.currentTimeMillis());
+            return new Entry(content.substring(newline + 1), expiresAt);
+        } catch (Exception e) {
+            file.delete();
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, Entry entry) {
+        if (diskDir == null) {
+            return;
+        }
+        File tmp = new File(diskDir, key + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write((entry.expiresAt + "\n" + entry.reply).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            RingLog.w(TAG, "⚠️ Disk write failed", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(new File(diskDir, key))) {
+            tmp.delete();
+            return;
+        }
+        trimDisk();
+    }
+
+    // Drop least recently used files until the tier fits maxDiskBytes
+    private synchronized void trimDisk() {
+        File[] files = diskDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= maxDiskBytes) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (total <= maxDiskBytes) {
+                break;
+            }
+            total -= file.length();
+            if (file.delete()) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+            char[] hex = new char[hash.length * 2];
+            for (int i = 0; i < hash.length; i++) {
+                hex[i * 2] = HEX[(hash[i] >> 4) & 0xf];
+                hex[i * 2 + 1] = HEX[hash[i] & 0xf];
+            }
+            return new String(hex);
+        } catch (Exception e) {
+            // SHA-256 is always available on Android
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.smrutipanchsoft.zeni;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pull-parses backend responses straight off the body stream.
+ * Only the requested fields are materialised - no intermediate body String,
+ * StringBuilder or JSONObject tree is built.
+ */
+public final class ResponseDecoder {
+
+    private ResponseDecoder() {
+    }
+
+    /**
+     * Read a top-level string field of a JSON object body, e.g. "reply" or "status".
+     */
+    public static String readStringField(InputStream body, String name) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        try {
+            String value = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                if (value == null && field.equals(name) && reader.peek() == JsonToken.STRING) {
+                    value = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (value == null) {
+                throw new FormatException("Missing \"" + name + "\" in response");
+            }
+            return value;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Read a top-level array of strings, e.g. the "replies" of a /batch response.
+     */
+    public static List<String> readStringArrayField(InputStream body, String name) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        try {
+            List<String> values = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                if (values == null && field.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    values = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        values.add(reader.nextString());
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (values == null) {
+                throw new FormatException("Missing \"" + name + "\" in response");
+            }
+            return values;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Decode one SSE/NDJSON chunk of a streamed reply.
+     */
+    public static Chunk readChunk(String payload) throws IOException {
+        return readChunk(new StringReader(payload));
+    }
+
+    static Chunk readChunk(Reader source) throws IOException {
+        JsonReader reader = new JsonReader(source);
+        Chunk chunk = new Chunk();
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                JsonToken next = reader.peek();
+                if (next == JsonToken.BOOLEAN && name.equals("done")) {
+                    chunk.done = reader.nextBoolean();
+                } else if (next != JsonToken.STRING) {
+                    reader.skipValue();
+                } else if (name.equals("token") || name.equals("delta")) {
+                    chunk.token = reader.nextString();
+                } else if (name.equals("reply") && chunk.token == null) {
+                    chunk.token = reader.nextString();
+                } else if (name.equals("error")) {
+                    chunk.error = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return chunk;
+        } finally {
+            reader.close();
+        }
+    }
+
+    // The body arrived but is not what the endpoint promises
+    public static final class FormatException extends IOException {
+        FormatException(String message) {
+            super(message);
+        }
+    }
+
+    public static final class Chunk {
+        public String token;
+        public String error;
+        public boolean done;
+    }
+}
@@ -0,0 +1,143 @@
+package com.smrutipanchsoft.zeni;
+
+import android.text.format.DateFormat;
+import android.util.Log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory, allocation-free log for hot paths.
+ *
+ * Records go into a preallocated ring of CAPACITY slots: a time, a level, a
+ * tag and event that must be string constants, one numeric value and an
+ * optional Throwable. Nothing is formatted and nothing reaches logcat when
+ * logging, so user text never ends up in the system log. Writers claim a slot
+ * with one atomic increment and never block; a slot's sequence number is
+ * published last, so dump() skips records that are being overwritten.
+ *
+ * Debug records are dropped in release builds: ENABLED_LEVEL is a static final
+ * derived from BuildConfig.DEBUG, so R8 removes the disabled branches. Debug
+ * builds also mirror every record to logcat.
+ */
+public final class RingLog {
+
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+
+    private static final int ENABLED_LEVEL = BuildConfig.DEBUG ? DEBUG : INFO;
+    private static final String LEVEL_NAMES = "DIWE";
+
+    // Marks a value-less record
+    public static final long NO_VALUE = Long.MIN_VALUE;
+
+    private static final int CAPACITY = 512;
+    private static final int MASK = CAPACITY - 1;
+
+    private static final AtomicLong cursor = new AtomicLong();
+    // Sequence number of the record held by each slot, -1 while it is written
+    private static final AtomicLongArray published = new AtomicLongArray(CAPACITY);
+    private static final long[] times = new long[CAPACITY];
+    private static final int[] levels = new int[CAPACITY];
+    private static final String[] tags = new String[CAPACITY];
+    private static final String[] events = new String[CAPACITY];
+    private static final long[] values = new long[CAPACITY];
+    private static final Throwable[] errors = new Throwable[CAPACITY];
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    private RingLog() {
+    }
+
+    public static void d(String tag, String event) {
+        if (DEBUG >= ENABLED_LEVEL) {
+            write(DEBUG, tag, event, NO_VALUE, null);
+        }
+    }
+
+    public static void d(String tag, String event, long value) {
+        if (DEBUG >= ENABLED_LEVEL) {
+            write(DEBUG, tag, event, value, null);
+        }
+    }
+
+    public static void w(String tag, String event) {
+        write(WARN, tag, event, NO_VALUE, null);
+    }
+
+    public static void w(String tag, String event, long value) {
+        write(WARN, tag, event, value, null);
+    }
+
+    public static void w(String tag, String event, Throwable error) {
+        write(WARN, tag, event, NO_VALUE, error);
+    }
+
+    public static void e(String tag, String event, long value) {
+        write(ERROR, tag, event, value, null);
+    }
+
+    public static void e(String tag, String event, Throwable error) {
+        write(ERROR, tag, event, NO_VALUE, error);
+    }
+
+    private static void write(int level, String tag, String event, long value, Throwable error) {
+        long seq = cursor.getAndIncrement();
+        int slot = (int) (seq & MASK);
+        published.set(slot, -1);
+        times[slot] = System.currentTimeMillis();
+        levels[slot] = level;
+        tags[slot] = tag;
+        events[slot] = event;
+        values[slot] = value;
+        errors[slot] = error;
+        published.set(slot, seq);
+        if (BuildConfig.DEBUG) {
+            Log.println(level, tag, value != NO_VALUE ? event + " " + value
+                    : error != null ? event + "\n" + Log.getStackTraceString(error) : event);
+        }
+    }
+
+    /**
+     * Format the buffered records, oldest first. Allocates - diagnosis only.
+     */
+    public static String dump() {
+        long end = cursor.get();
+        long start = Math.max(0, end - CAPACITY);
+        StringBuilder out = new StringBuilder();
+        for (long seq = start; seq < end; seq++) {
+            int slot = (int) (seq & MASK);
+            if (published.get(slot) != seq) {
+                continue;
+            }
+            long time = times[slot];
+            int level = levels[slot];
+            String tag = tags[slot];
+            String event = events[slot];
+            long value = values[slot];
+            Throwable error = errors[slot];
+            if (published.get(slot) != seq) {
+                // Overwritten while reading
+                continue;
+            }
+            out.append(DateFormat.format("HH:mm:ss", time))
+                    .append('.').append(String.format("%03d", time % 1000))
+                    .append(' ').append(LEVEL_NAMES.charAt(level - DEBUG))
+                    .append(' ').append(tag).append(": ").append(event);
+            if (value != NO_VALUE) {
+                out.append(' ').append(value);
+            }
+            if (error != null) {
+                out.append(" (").append(error).append(')');
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+}
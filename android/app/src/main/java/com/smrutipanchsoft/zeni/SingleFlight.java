@@ -0,0 +1,147 @@
+package com.smrutipanchsoft.zeni;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coalesces identical in-flight chat requests: the first caller for a key leads
+ * the network call, later callers join it and receive the same result.
+ * Main-thread confined - AIApiClient delivers every callback on the main thread,
+ * so joining, fan-out and completion never race.
+ */
+public class SingleFlight {
+
+    private final Map<String, StreamFlight> streams = new HashMap<>();
+    private final Map<String, ReplyFlight> replies = new HashMap<>();
+
+    /**
+     * Returns the callback the leader must drive, or null if the caller joined a
+     * request already in flight. A late joiner first receives everything streamed so far.
+     */
+    public AIApiClient.StreamCallback joinStream(String key, AIApiClient.StreamCallback callback) {
+        StreamFlight flight = streams.get(key);
+        if (flight != null) {
+            flight.add(callback);
+            return null;
+        }
+        flight = new StreamFlight(key);
+        flight.add(callback);
+        streams.put(key, flight);
+        return flight;
+    }
+
+    /**
+     * Same as joinStream for the non-streaming sendMessage.
+     */
+    public AIApiClient.Callback<String> joinReply(String key, AIApiClient.Callback<String> callback) {
+        ReplyFlight flight = replies.get(key);
+        if (flight != null) {
+            flight.callbacks.add(callback);
+            return null;
+        }
+        flight = new ReplyFlight(key);
+        flight.callbacks.add(callback);
+        replies.put(key, flight);
+        return flight;
+    }
+
+    public int inFlight() {
+        return streams.size() + replies.size();
+    }
+
+    /**
+     * Forget every flight, e.g. after the requests were cancelled.
+     */
+    public void clear() {
+        streams.clear();
+        replies.clear();
+    }
+
+    private class StreamFlight implements AIApiClient.StreamCallback {
+        final String key;
+        final List<AIApiClient.StreamCallback> callbacks = new ArrayList<>();
+        final StringBuilder emitted = new StringBuilder();
+
+        StreamFlight(String key) {
+            this.key = key;
+        }
+
+        void add(AIApiClient.StreamCallback callback) {
+            callbacks.add(callback);
+            if (emitted.length() > 0) {
+                callback.onToken(emitted.toString());
+            }
+        }
+
+        @Override
+        public void onToken(String token) {
+            emitted.append(token);
+            for (AIApiClient.StreamCallback callback : callbacks) {
+                callback.onToken(token);
+            }
+        }
+
+        @Override
+        public void onComplete(String reply) {
+            finish();
+            for (AIApiClient.StreamCallback callback : callbacks) {
+                callback.onComplete(reply);
+            }
+        }
+
+        @Override
+        public void onError(String error) {
+            finish();
+            for (AIApiClient.StreamCallback callback : callbacks) {
+                callback.onError(error);
+            }
+        }
+
+        @Override
+        public void onUnreachable(String error) {
+            finish();
+            for (AIApiClient.StreamCallback callback : callbacks) {
+                callback.onUnreachable(error);
+            }
+        }
+
+        private void finish() {
+            if (streams.get(key) == this) {
+                streams.remove(key);
+            }
+        }
+    }
+
+    private class ReplyFlight implements AIApiClient.Callback<String> {
+        final String key;
+        final List<AIApiClient.Callback<String>> callbacks = new ArrayList<>();
+
+        ReplyFlight(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void onSuccess(String reply) {
+            finish();
+            for (AIApiClient.Callback<String> callback : callbacks) {
+                callback.onSuccess(reply);
+            }
+        }
+
+        @Override
+        public void onError(String error) {
+            finish();
+            for (AIApiClient.Callback<String> callback : callbacks) {
+                callback.onError(error);
+            }
+        }
+
+        private void finish() {
+            if (replies.get(key) == this) {
+                replies.remove(key);
+            }
+        }
+    }
+}
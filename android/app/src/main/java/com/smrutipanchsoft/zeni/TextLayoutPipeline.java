@@ -0,0 +1,66 @@
+package com.smrutipanchsoft.zeni;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+
+import androidx.core.text.PrecomputedTextCompat;
+
+/**
+ * Measures chat bubble text off the main thread.
+ *
+ * Each submitted text is turned into a PrecomputedTextCompat on a background
+ * thread, so binding a row only has to break lines on already measured glyphs.
+ * The measurement depends on the text metrics (font, size, break strategy) but
+ * not on the bubble width, so resizing the window never invalidates it.
+ * Results are delivered on the main thread.
+ */
+public class TextLayoutPipeline {
+
+    private static final String TAG = "TextLayoutPipeline";
+
+    public interface Listener {
+        /**
+         * The owner should keep the layout only if its text is still the same instance.
+         */
+        void onLayoutReady(Object owner, CharSequence text, PrecomputedTextCompat layout);
+    }
+
+    private final Listener listener;
+    private final HandlerThread layoutThread = new HandlerThread("TextLayout");
+    private final Handler layoutHandler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public TextLayoutPipeline(Listener listener) {
+        this.listener = listener;
+        layoutThread.start();
+        layoutHandler = new Handler(layoutThread.getLooper());
+    }
+
+    public void submit(Object owner, CharSequence text, PrecomputedTextCompat.Params params) {
+        if (text == null || text.length() == 0 || params == null) {
+            return;
+        }
+        layoutHandler.post(() -> {
+            try {
+                PrecomputedTextCompat layout = PrecomputedTextCompat.create(text, params);
+                mainHandler.post(() -> listener.onLayoutReady(owner, text, layout));
+            } catch (RuntimeException e) {
+                // Bad span or metrics - the row just falls back to plain setText
+                RingLog.w(TAG, "⚠️ Could not precompute text", e);
+            }
+        });
+    }
+
+    /**
+     * Drop work that has not started yet, e.g. when the conversation is cleared.
+     */
+    public void clear() {
+        layoutHandler.removeCallbacksAndMessages(null);
+    }
+
+    public void stop() {
+        layoutHandler.removeCallbacksAndMessages(null);
+        layoutThread.quitSafely();
+    }
+}
@@ -0,0 +1,136 @@
+package com.smrutipanchsoft.zeni;
+
+import android.animation.ValueAnimator;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.Drawable;
+import android.view.animation.LinearInterpolator;
+
+/**
+ * Three pulsing "typing" dots drawn in a single pass.
+ *
+ * One repeating ValueAnimator (Choreographer driven) moves a shared phase and
+ * each dot derives its alpha from it with a 100 ms lag, so a cycle costs one
+ * invalidate per frame instead of a batch of view animators and delayed
+ * posts. The animator stops as soon as the drawable is hidden or detached.
+ */
+public class TypingDotsDrawable extends Drawable implements Animatable {
+
+    private static final int DOTS = 3;
+    private static final long CYCLE_MS = 1200;
+    private static final long DOT_LAG_MS = 100;
+    private static final long FADE_MS = 300;
+    private static final long HOLD_MS = 300;
+    private static final float MIN_ALPHA = 0.3f;
+
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final float radius;
+    private final float gap;
+    private final ValueAnimator animator = ValueAnimator.ofFloat(0f, CYCLE_MS);
+    private int alpha = 255;
+
+    /**
+     * @param dotSizePx diameter of one dot
+     * @param gapPx     space between two dots
+     */
+    public TypingDotsDrawable(int color, float dotSizePx, float gapPx) {
+        paint.setColor(color);
+        radius = dotSizePx / 2f;
+        gap = gapPx;
+
+        animator.setDuration(CYCLE_MS);
+        animator.setRepeatCount(ValueAnimator.INFINITE);
+        animator.setInterpolator(new LinearInterpolator());
+        animator.addUpdateListener(animation -> invalidateSelf());
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        Rect bounds = getBounds();
+        float cy = bounds.exactCenterY();
+        float elapsed = animator.isRunning() ? (float) animator.getAnimatedValue() : 0f;
+        int baseAlpha = Color.alpha(paint.getColor());
+
+        for (int i = 0; i < DOTS; i++) {
+            float cx = bounds.left + radius + i * (2 * radius + gap);
+            float dotAlpha = dotAlpha(elapsed - i * DOT_LAG_MS);
+            paint.setAlpha((int) (baseAlpha * dotAlpha * alpha / 255));
+            canvas.drawCircle(cx, cy, radius, paint);
+        }
+        paint.setAlpha(baseAlpha);
+    }
+
+    // Fade down, hold, fade back up, hold - one cycle
+    private static float dotAlpha(float time) {
+        float t = ((time % CYCLE_MS) + CYCLE_MS) % CYCLE_MS;
+        if (t < FADE_MS) {
+            return 1f - (1f - MIN_ALPHA) * (t / FADE_MS);
+        }
+        if (t < FADE_MS + HOLD_MS) {
+            return MIN_ALPHA;
+        }
+        if (t < 2 * FADE_MS + HOLD_MS) {
+            return MIN_ALPHA + (1f - MIN_ALPHA) * ((t - FADE_MS - HOLD_MS) / FADE_MS);
+        }
+        return 1f;
+    }
+
+    @Override
+    public void start() {
+        if (!animator.isStarted()) {
+            animator.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        animator.cancel();
+        invalidateSelf();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return animator.isRunning();
+    }
+
+    @Override
+    public boolean setVisible(boolean visible, boolean restart) {
+        boolean changed = super.setVisible(visible, restart);
+        if (!visible) {
+            stop();
+        }
+        return changed;
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return (int) Math.ceil(DOTS * 2 * radius + (DOTS - 1) * gap);
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return (int) Math.ceil(2 * radius);
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        this.alpha = alpha;
+        invalidateSelf();
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        paint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+}
@@ -0,0 +1,81 @@
+package com.smrutipanchsoft.zeni;
+
+import android.view.Choreographer;
+import android.view.View;
+import android.view.WindowManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces overlay window moves and resizes to one updateViewLayout per
+ * window per vsync.
+ *
+ * Touch panels can deliver several ACTION_MOVE events per frame and every
+ * updateViewLayout is a Binder call into the system server. Callers mutate
+ * their LayoutParams as before and call request(); the latest params are
+ * applied once on the next Choreographer frame. Main thread only; the
+ * request/update counters may be read from any thread.
+ */
+public class WindowLayoutScheduler implements Choreographer.FrameCallback {
+
+    private static final String TAG = "WindowLayoutScheduler";
+
+    private final WindowManager windowManager;
+    private final Map<View, WindowManager.LayoutParams> pending = new LinkedHashMap<>();
+    private boolean scheduled = false;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong updates = new AtomicLong();
+
+    public WindowLayoutScheduler(WindowManager windowManager) {
+        this.windowManager = windowManager;
+    }
+
+    public void request(View view, WindowManager.LayoutParams params) {
+        requests.incrementAndGet();
+        pending.put(view, params);
+        if (!scheduled) {
+            scheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Forget a pending update, e.g. right before the window is removed.
+     */
+    public void cancel(View view) {
+        pending.remove(view);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        scheduled = false;
+        List<Map.Entry<View, WindowManager.LayoutParams>> batch = new ArrayList<>(pending.entrySet());
+        pending.clear();
+        for (Map.Entry<View, WindowManager.LayoutParams> entry : batch) {
+            View view = entry.getKey();
+            if (!view.isAttachedToWindow()) {
+                continue;
+            }
+            try {
+                windowManager.updateViewLayout(view, entry.getValue());
+                updates.incrementAndGet();
+            } catch (IllegalArgumentException e) {
+                // Removed between request and frame
+                RingLog.w(TAG, "⚠️ Window gone before layout update");
+            }
+        }
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    public long updateCount() {
+        return updates.get();
+    }
+}
@@ -0,0 +1,149 @@
+package com.smrutipanchsoft.zeni;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class AIApiClientBatchTest {
+
+    private MockWebServer server;
+    private AIApiClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        client = new AIApiClient(new OkHttpTransport(), server.url("/").toString().replaceAll("/$", ""));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void batchEndpointAnswersEveryMessageInOneRoundTrip() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"replies\":[\"r1\",\"r2\"]}"));
+
+        Results results = new Results();
+        client.sendBatch(false, Arrays.asList("m1", "m2"), Arrays.asList("id1", "id2"), results);
+
+        MainLooper.await(() -> results.complete);
+        assertEquals(Arrays.asList("0:r1", "1:r2"), results.events);
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("/batch", request.getPath());
+        JSONObject body = new JSONObject(request.getBody().readUtf8());
+        assertEquals("id2", body.getJSONArray("messageIds").getString(1));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void fallbackGoesOnPastARejectedMessage() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(new MockResponse().setBody("{\"reply\":\"r1\"}"));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setBody("{\"reply\":\"r3\"}"));
+
+        Results results = new Results();
+        client.sendBatch(false, Arrays.asList("m1", "m2", "m3"), Arrays.asList("id1", "id2", "id3"), results);
+
+        MainLooper.await(() -> results.complete);
+        assertEquals(3, results.events.size());
+        assertEquals("0:r1", results.events.get(0));
+        assertTrue(results.events.get(1), results.events.get(1).startsWith("1:failed"));
+        assertEquals("2:r3", results.events.get(2));
+
+        assertEquals("/batch", server.takeRequest().getPath());
+        assertEquals("id1", new JSONObject(server.takeRequest().getBody().readUtf8()).getString("messageId"));
+        assertEquals("id2", new JSONObject(server.takeRequest().getBody().readUtf8()).getString("messageId"));
+        assertEquals("id3", new JSONObject(server.takeRequest().getBody().readUtf8()).getString("messageId"));
+    }
+
+    @Test
+    public void unreachableBackendStopsTheRun() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(new MockResponse().setBody("{\"reply\":\"r1\"}"));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+
+        Results results = new Results();
+        client.sendBatch(false, Arrays.asList("m1", "m2", "m3"), Arrays.asList("id1", "id2", "id3"), results);
+
+        MainLooper.await(() -> results.complete);
+        assertEquals("0:r1", results.events.get(0));
+        assertTrue(results.events.get(1), results.events.get(1).startsWith("1:unreachable"));
+        assertTrue(results.events.get(2), results.events.get(2).startsWith("2:unreachable"));
+        // OkHttp may retry the dropped connection once; m3 is never sent on its own
+        assertEquals("/batch", server.takeRequest().getPath());
+        for (RecordedRequest request; (request = server.takeRequest(200, TimeUnit.MILLISECONDS)) != null; ) {
+            String body = request.getBody().readUtf8();
+            assertTrue(body, !body.contains("\"m3\""));
+        }
+    }
+
+    @Test
+    public void replyIsReportedBeforeTheNextMessageIsAnswered() {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(new MockResponse().setBody("{\"reply\":\"r1\"}"));
+        server.enqueue(new MockResponse().setBody("{\"reply\":\"r2\"}").setBodyDelay(1500, TimeUnit.MILLISECONDS));
+
+        Results results = new Results();
+        client.sendBatch(false, Arrays.asList("m1", "m2"), Arrays.asList("id1", "id2"), results);
+
+        MainLooper.await(() -> !results.events.isEmpty());
+        assertEquals(Arrays.asList("0:r1"), results.events);
+
+        MainLooper.await(() -> results.complete);
+        assertEquals(Arrays.asList("0:r1", "1:r2"), results.events);
+    }
+
+    @Test
+    public void streamingSendCarriesTheMessageId() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"reply\":\"ok\"}"));
+
+        AIApiClientStreamingTest.Recorder recorder = new AIApiClientStreamingTest.Recorder();
+        client.sendMessageStreaming("hi", "id-42", recorder);
+
+        MainLooper.await(() -> recorder.reply != null);
+        assertEquals("id-42", new JSONObject(server.takeRequest().getBody().readUtf8()).getString("messageId"));
+    }
+
+    static class Results implements AIApiClient.BatchCallback {
+        final List<String> events = new ArrayList<>();
+        boolean complete;
+
+        @Override
+        public void onReply(int index, String reply) {
+            events.add(index + ":" + reply);
+        }
+
+        @Override
+        public void onFailed(int index, String error, boolean unreachable) {
+            events.add(index + (unreachable ? ":unreachable " : ":failed ") + error);
+        }
+
+        @Override
+        public void onComplete() {
+            complete = true;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.smrutipanchsoft.zeni;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import com.smrutipanchsoft.zeni.AIApiClientStreamingTest.Recorder;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class AIApiClientCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private AIApiClient client;
+    private File cacheDir;
+    private int chatRequests;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if ("/clear".equals(request.getPath())) {
+                    return new MockResponse();
+                }
+                int n;
+                synchronized (AIApiClientCacheTest.this) {
+                    n = ++chatRequests;
+                }
+                return new MockResponse()
+                        .setBody("{\"reply\":\"reply " + n + "\"}")
+                        .setBodyDelay(100, TimeUnit.MILLISECONDS);
+            }
+        });
+        server.start();
+        cacheDir = folder.newFolder("replies");
+        client = newClient();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void samePromptLaterInTheConversationIsNotServedFromCache() {
+        assertEquals("reply 1", send("tell me more"));
+        assertEquals("reply 2", send("about cats"));
+        // Same words, different conversation before them
+        assertEquals("reply 3", send("tell me more"));
+        assertEquals(3, chatRequests);
+    }
+
+    @Test
+    public void clearedConversationReusesTheReplyForAFreshStart() {
+        assertEquals("reply 1", send("hello"));
+        clear();
+        assertEquals("reply 1", send("hello"));
+        assertEquals(1, chatRequests);
+    }
+
+    @Test
+    public void diskTierHitsAfterARestart() {
+        assertEquals("reply 1", send("hello"));
+
+        client.shutdown();
+        client = newClient();
+
+        assertEquals("reply 1", send("hello"));
+        assertEquals(1, chatRequests);
+        assertEquals(1, client.getCacheStats().diskHits);
+    }
+
+    @Test
+    public void identicalBackToBackSendsShareOneRequest() {
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        client.sendMessageStreaming("same", first);
+        client.sendMessageStreaming("same", second);
+
+        MainLooper.await(() -> first.reply != null && second.reply != null);
+        assertEquals(first.reply, second.reply);
+        assertEquals(1, chatRequests);
+    }
+
+    @Test
+    public void repeatAfterAnotherMessageIsANewTurn() {
+        Recorder[] sends = {new Recorder(), new Recorder(), new Recorder()};
+        client.sendMessageStreaming("again", sends[0]);
+        client.sendMessageStreaming("other", sends[1]);
+        client.sendMessageStreaming("again", sends[2]);
+
+        MainLooper.await(() -> sends[2].reply != null);
+        assertEquals("reply 3", sends[2].reply);
+        assertEquals(3, chatRequests);
+    }
+
+    @Test
+    public void debouncedBurstIsOneRequestAndEarlierCallbacksAreSuperseded() throws Exception {
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        client.sendMessageDebounced("one", 200, first);
+        // From a background thread, like a caller off the main looper
+        Thread sender = new Thread(() -> client.sendMessageDebounced("two", 200, second));
+        sender.start();
+        sender.join();
+
+        MainLooper.await(() -> second.reply != null);
+        assertEquals(AIApiClient.SUPERSEDED, first.error);
+        assertEquals("reply 1", second.reply);
+        assertEquals(1, chatRequests);
+        assertEquals("one\ntwo", new JSONObject(server.takeRequest().getBody().readUtf8()).getString("message"));
+    }
+
+    private AIApiClient newClient() {
+        AIApiClient created = new AIApiClient(new OkHttpTransport(), server.url("/").toString().replaceAll("/$", ""));
+        created.setResponseCache(new ResponseCache(60_000, 10_000, cacheDir, 1 << 20));
+        return created;
+    }
+
+    private String send(String message) {
+        Recorder recorder = new Recorder();
+        client.sendMessageStreaming(message, recorder);
+        MainLooper.await(() -> recorder.reply != null);
+        return recorder.reply;
+    }
+
+    private void clear() {
+        boolean[] done = new boolean[1];
+        client.clearConversation(new AIApiClient.AICallback() {
+            @Override
+            public void onSuccess(String response) {
+                done[0] = true;
+            }
+
+            @Override
+            public void onError(String error) {
+                done[0] = true;
+            }
+        });
+        MainLooper.await(() -> done[0]);
+    }
+}
@@ -0,0 +1,113 @@
+package com.smrutipanchsoft.zeni;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class AIApiClientLanesTest {
+
+    private static final long SLOW_CHAT_MS = 3000;
+
+    private MockWebServer server;
+    private AIApiClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if ("/chat".equals(request.getPath())) {
+                    String body = request.getBody().readUtf8();
+                    return new MockResponse()
+                            .setBody("{\"reply\":\"re: " + body.replaceAll(".*\"message\":\"([^\"]*)\".*", "$1") + "\"}")
+                            .setBodyDelay(SLOW_CHAT_MS, TimeUnit.MILLISECONDS);
+                }
+                return new MockResponse().setBody("{\"status\":\"ok\"}");
+            }
+        });
+        server.start();
+        client = new AIApiClient(new OkHttpTransport(), server.url("/").toString().replaceAll("/$", ""));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void healthCheckIsNotQueuedBehindASlowChat() {
+        List<String> replies = new ArrayList<>();
+        client.sendMessage("one", callback(replies));
+        client.sendMessage("two", callback(replies));
+
+        String[] status = new String[1];
+        long start = System.currentTimeMillis();
+        client.healthCheck(new AIApiClient.AICallback() {
+            @Override
+            public void onSuccess(String response) {
+                status[0] = response;
+            }
+
+            @Override
+            public void onError(String error) {
+                status[0] = error;
+            }
+        });
+
+        MainLooper.await(() -> status[0] != null);
+        assertEquals("ok", status[0]);
+        assertTrue("Health check waited for /chat", System.currentTimeMillis() - start < SLOW_CHAT_MS);
+        assertTrue(replies.isEmpty());
+
+        // Chat replies still arrive, in the order they were sent
+        MainLooper.await(() -> replies.size() == 2, 4 * SLOW_CHAT_MS);
+        assertEquals("re: one", replies.get(0));
+        assertEquals("re: two", replies.get(1));
+    }
+
+    @Test
+    public void cancelledChatDeliversNothing() throws Exception {
+        List<String> replies = new ArrayList<>();
+        client.sendMessage("one", callback(replies));
+        server.takeRequest(1, TimeUnit.SECONDS);
+        client.cancelChatRequests();
+
+        // Anything the running call returns after the cancel is dropped
+        Thread.sleep(SLOW_CHAT_MS + 500);
+        MainLooper.await(() -> true);
+        assertTrue(replies.isEmpty());
+        assertNull(server.takeRequest(100, TimeUnit.MILLISECONDS));
+    }
+
+    private static AIApiClient.Callback<String> callback(List<String> replies) {
+        return new AIApiClient.Callback<String>() {
+            @Override
+            public void onSuccess(String reply) {
+                replies.add(reply);
+            }
+
+            @Override
+            public void onError(String error) {
+                replies.add("error: " + error);
+            }
+        };
+    }
+}
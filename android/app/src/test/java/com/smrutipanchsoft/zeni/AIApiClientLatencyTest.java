@@ -0,0 +1,110 @@
+package com.smrutipanchsoft.zeni;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class AIApiClientLatencyTest {
+
+    private static final int WARM_UP = 8;
+
+    private MockWebServer server;
+    private AIApiClient client;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile long slowRequestDelayMs;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                MockResponse response = new MockResponse().setBody("{\"status\":\"ok\"}");
+                // The first call after the warm-up is the slow one
+                if (requests.incrementAndGet() == WARM_UP + 1) {
+                    response.setBodyDelay(slowRequestDelayMs, TimeUnit.MILLISECONDS);
+                }
+                return response;
+            }
+        });
+        server.start();
+        client = new AIApiClient(new OkHttpTransport(), server.url("/").toString().replaceAll("/$", ""));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void timedOutCallIsRecordedAtItsTimeout() {
+        slowRequestDelayMs = 5000;
+        for (int i = 0; i < WARM_UP; i++) {
+            assertEquals("ok", healthCheck());
+        }
+
+        // Past the 2 s floor of the control read timeout
+        assertTrue(healthCheck().startsWith("Cannot reach"));
+
+        LatencyTracker.Snapshot stats = snapshot("/");
+        assertEquals(WARM_UP + 1, stats.samples);
+        assertTrue(stats.toString(), stats.p95Ms >= 2000);
+    }
+
+    @Test
+    public void losingHedgeIsNotRecorded() {
+        slowRequestDelayMs = 1500;
+        client.setHedging(true);
+        for (int i = 0; i < WARM_UP; i++) {
+            assertEquals("ok", healthCheck());
+        }
+
+        assertEquals("ok", healthCheck());
+
+        assertEquals(1, client.getHedgesSent());
+        assertEquals(WARM_UP + 2, requests.get());
+        // The winner is a sample; the cancelled loser is not
+        assertEquals(WARM_UP + 1, snapshot("/").samples);
+    }
+
+    private String healthCheck() {
+        String[] result = new String[1];
+        client.healthCheck(new AIApiClient.AICallback() {
+            @Override
+            public void onSuccess(String response) {
+                result[0] = response;
+            }
+
+            @Override
+            public void onError(String error) {
+                result[0] = error;
+            }
+        });
+        MainLooper.await(() -> result[0] != null);
+        return result[0];
+    }
+
+    private LatencyTracker.Snapshot snapshot(String endpoint) {
+        for (LatencyTracker.Snapshot snapshot : client.getLatencyStats()) {
+            if (snapshot.endpoint.equals(endpoint)) {
+                return snapshot;
+            }
+        }
+        throw new AssertionError("No samples for " + endpoint);
+    }
+}
@@ -0,0 +1,139 @@
+package com.smrutipanchsoft.zeni;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.net.InetAddress;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class AIApiClientPrewarmTest {
+
+    private MockWebServer server;
+    private HandshakeCertificates clientCertificates;
+
+    @Before
+    public void setUp() throws Exception {
+        String host = InetAddress.getByName("localhost").getCanonicalHostName();
+        HeldCertificate localhost = new HeldCertificate.Builder()
+                .addSubjectAlternativeName(host)
+                .build();
+        HandshakeCertificates serverCertificates = new HandshakeCertificates.Builder()
+                .heldCertificate(localhost)
+                .build();
+        clientCertificates = new HandshakeCertificates.Builder()
+                .addTrustedCertificate(localhost.certificate())
+                .build();
+
+        server = new MockWebServer();
+        server.useHttps(serverCertificates.sslSocketFactory(), false);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if ("/chat".equals(request.getPath())) {
+                    return new MockResponse().setBody("{\"reply\":\"hi\"}");
+                }
+                return new MockResponse().setBody("{\"status\":\"ok\"}");
+            }
+        });
+        server.start();
+
+        // Pay the JVM's one-off TLS setup before the clients under test
+        sendFirstMessage(newClient(), false);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void prewarmedConnectionCarriesTheFirstMessage() {
+        AIApiClient cold = newClient();
+        sendFirstMessage(cold, false);
+        NetworkMetrics.Phase coldTls = phase(cold, "/chat", NetworkMetrics.TLS);
+
+        AIApiClient warm = newClient();
+        sendFirstMessage(warm, true);
+
+        // Without warm-up the message pays for the handshake itself
+        assertEquals(1, coldTls.count);
+        assertEquals(1, cold.getConnectionStats().connectionsOpened);
+
+        // With warm-up the handshake happened on "/", and /chat reused its connection
+        assertEquals(1, warm.getPrewarmsSent());
+        assertEquals(1, phase(warm, "/", NetworkMetrics.TLS).count);
+        assertNull(phase(warm, "/chat", NetworkMetrics.TLS));
+        HttpTransport.Stats stats = warm.getConnectionStats();
+        assertEquals(1, stats.connectionsOpened);
+        assertEquals(1, stats.connectionsReused);
+
+        cold.shutdown();
+        warm.shutdown();
+    }
+
+    @Test
+    public void repeatedTouchesSendOneWarmUp() {
+        AIApiClient client = newClient();
+        for (int i = 0; i < 5; i++) {
+            client.prewarm();
+        }
+        MainLooper.await(() -> phase(client, "/", NetworkMetrics.TOTAL) != null);
+
+        assertEquals(1, client.getPrewarmsSent());
+        client.shutdown();
+    }
+
+    private AIApiClient newClient() {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .sslSocketFactory(clientCertificates.sslSocketFactory(), clientCertificates.trustManager());
+        return new AIApiClient(new OkHttpTransport(builder), server.url("/").toString().replaceAll("/$", ""));
+    }
+
+    // Send one message and wait for the reply, optionally after a completed warm-up
+    private static void sendFirstMessage(AIApiClient client, boolean prewarm) {
+        if (prewarm) {
+            client.prewarm();
+            MainLooper.await(() -> phase(client, "/", NetworkMetrics.TOTAL) != null);
+        }
+        String[] reply = new String[1];
+        client.sendMessage("hello", new AIApiClient.Callback<String>() {
+            @Override
+            public void onSuccess(String response) {
+                reply[0] = response;
+            }
+
+            @Override
+            public void onError(String error) {
+                reply[0] = "error " + error;
+            }
+        });
+        MainLooper.await(() -> reply[0] != null);
+        assertTrue(reply[0], reply[0].equals("hi"));
+    }
+
+    // The phase of an endpoint, or null when it has no samples
+    private static NetworkMetrics.Phase phase(AIApiClient client, String endpoint, String name) {
+        for (NetworkMetrics.Snapshot snapshot : client.getNetworkMetrics().snapshots()) {
+            if (snapshot.endpoint.equals(endpoint)) {
+                NetworkMetrics.Phase phase = snapshot.phases.get(name);
+                return phase != null && phase.count > 0 ? phase : null;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,181 @@
+package com.smrutipanchsoft.zeni;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class AIApiClientStreamingTest {
+
+    private MockWebServer server;
+    private AIApiClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        client = new AIApiClient(new OkHttpTransport(), server.url("/").toString().replaceAll("/$", ""));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void eventStreamTokensArriveBeforeTheResponseEnds() throws Exception {
+        // One event per second: the body takes ~2 s to finish after the first token
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody("data: {\"token\":\"Hel\"}\n\n"
+                        + "data: {\"token\":\"lo\"}\n\n"
+                        + "data: [DONE]\n\n")
+                .throttleBody(22, 1, TimeUnit.SECONDS));
+
+        Recorder recorder = new Recorder();
+        client.sendMessageStreaming("hi", recorder);
+
+        MainLooper.await(() -> !recorder.tokens.isEmpty());
+        assertEquals("Hel", recorder.tokens.get(0));
+        assertNull("Completed before the first token was shown", recorder.reply);
+
+        MainLooper.await(() -> recorder.reply != null);
+        assertEquals("Hello", recorder.reply);
+        assertTrue("First token did not arrive ahead of the end",
+                recorder.completedAt - recorder.firstTokenAt >= 500);
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("/chat", request.getPath());
+        assertTrue(request.getBody().readUtf8().contains("\"stream\":true"));
+    }
+
+    @Test
+    public void ndjsonStreamIsDeliveredIncrementally() {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/x-ndjson")
+                .setBody("{\"delta\":\"a\"}\n{\"delta\":\"b\"}\n{\"done\":true}\n{\"delta\":\"ignored\"}\n")
+                .throttleBody(14, 500, TimeUnit.MILLISECONDS));
+
+        Recorder recorder = new Recorder();
+        client.sendMessageStreaming("hi", recorder);
+
+        MainLooper.await(() -> recorder.reply != null);
+        assertEquals(2, recorder.tokens.size());
+        assertEquals("ab", recorder.reply);
+    }
+
+    @Test
+    public void plainJsonReplyIsDeliveredAsOneToken() {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"reply\":\"whole answer\"}"));
+
+        Recorder recorder = new Recorder();
+        client.sendMessageStreaming("hi", recorder);
+
+        MainLooper.await(() -> recorder.reply != null);
+        assertEquals(1, recorder.tokens.size());
+        assertEquals("whole answer", recorder.reply);
+    }
+
+    @Test
+    public void errorChunkFailsTheStream() {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody("data: {\"token\":\"par\"}\n\ndata: {\"error\":\"model overloaded\"}\n\n"));
+
+        Recorder recorder = new Recorder();
+        client.sendMessageStreaming("hi", recorder);
+
+        MainLooper.await(() -> recorder.error != null);
+        assertTrue(recorder.error.contains("model overloaded"));
+        assertFalse(recorder.tokens.isEmpty());
+        assertNull(recorder.reply);
+    }
+
+    @Test
+    public void httpErrorIsAnAnswerNotAnOutage() {
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        Recorder recorder = new Recorder();
+        client.sendMessageStreaming("hi", recorder);
+
+        MainLooper.await(() -> recorder.error != null);
+        assertTrue(recorder.error, recorder.error.contains("500"));
+        assertFalse(recorder.unreachable);
+    }
+
+    @Test
+    public void malformedBodyIsAnAnswerNotAnOutage() {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"status\":\"ok\"}"));
+
+        Recorder recorder = new Recorder();
+        client.sendMessageStreaming("hi", recorder);
+
+        MainLooper.await(() -> recorder.error != null);
+        assertFalse(recorder.unreachable);
+    }
+
+    @Test
+    public void refusedConnectionIsUnreachable() throws Exception {
+        server.shutdown();
+
+        Recorder recorder = new Recorder();
+        client.sendMessageStreaming("hi", recorder);
+
+        MainLooper.await(() -> recorder.error != null);
+        assertTrue(recorder.unreachable);
+    }
+
+    static class Recorder implements AIApiClient.StreamCallback {
+        final List<String> tokens = new ArrayList<>();
+        String reply;
+        String error;
+        boolean unreachable;
+        long firstTokenAt;
+        long completedAt;
+
+        @Override
+        public void onToken(String token) {
+            if (tokens.isEmpty()) {
+                firstTokenAt = System.currentTimeMillis();
+            }
+            tokens.add(token);
+        }
+
+        @Override
+        public void onComplete(String reply) {
+            completedAt = System.currentTimeMillis();
+            this.reply = reply;
+        }
+
+        @Override
+        public void onError(String error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onUnreachable(String error) {
+            this.unreachable = true;
+            this.error = error;
+        }
+    }
+}
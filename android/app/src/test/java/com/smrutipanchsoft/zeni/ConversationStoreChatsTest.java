@@ -0,0 +1,232 @@
+package com.smrutipanchsoft.zeni;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class ConversationStoreChatsTest {
+
+    private static final String DB_NAME = "conversations-test.db";
+    private static final String CHAT = "chat_1";
+
+    private Context context;
+    private ConversationStore store;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        store = new ConversationStore(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void replaceChatStoresTheServersMessages() {
+        replace(CHAT, "a", "b", "c");
+
+        assertEquals(Arrays.asList("a", "b", "c"), ids(CHAT));
+    }
+
+    @Test
+    public void pendingMessagesStayAfterTheServersCopy() {
+        replace(CHAT, "a", "b");
+        store.appendNext(CHAT, "p1", ConversationStore.SOURCE_APP, true, "p1", null);
+        store.appendNext(CHAT, "p2", ConversationStore.SOURCE_APP, true, "p2", null);
+
+        // Someone else added c, d on the server meanwhile
+        replace(CHAT, "a", "b", "c", "d");
+
+        assertEquals(Arrays.asList("a", "b", "c", "d", "p1", "p2"), ids(CHAT));
+    }
+
+    @Test
+    public void pendingMessagesTheServerHasAreNotDuplicated() {
+        replace(CHAT, "a");
+        store.appendNext(CHAT, "p1", ConversationStore.SOURCE_APP, true, "p1", null);
+        store.appendNext(CHAT, "p2", ConversationStore.SOURCE_APP, true, "p2", null);
+
+        replace(CHAT, "a", "p1", "x");
+
+        assertEquals(Arrays.asList("a", "p1", "x", "p2"), ids(CHAT));
+    }
+
+    @Test
+    public void syncedMessagesTheServerNoLongerHasAreDropped() {
+        replace(CHAT, "a", "b", "c");
+        store.appendNext(CHAT, "p1", ConversationStore.SOURCE_APP, true, "p1", null);
+        store.markSynced(CHAT, "p1");
+
+        replace(CHAT, "a", "c");
+
+        assertEquals(Arrays.asList("a", "c"), ids(CHAT));
+    }
+
+    @Test
+    public void importKeepsIdsAndIsIdempotent() {
+        List<ConversationStore.Chat> chats = Collections.singletonList(new ConversationStore.Chat(
+                CHAT, "Imported", "2024-01-01T00:00:00Z", records("m1", "m2", "m3"), false));
+
+        assertTrue(await(callback -> store.importChats(chats, callback)));
+        assertTrue(await(callback -> store.importChats(chats, callback)));
+
+        List<ConversationStore.Chat> stored = await(store::exportChats);
+        assertEquals(1, stored.size());
+        assertEquals("Imported", stored.get(0).title);
+        assertEquals(Arrays.asList("m1", "m2", "m3"), ids(CHAT));
+
+        // Imported messages are pending, so the server's copy does not drop them
+        replace(CHAT, "s1");
+        assertEquals(Arrays.asList("s1", "m1", "m2", "m3"), ids(CHAT));
+    }
+
+    @Test
+    public void exportChatsReturnsEveryMessage() {
+        String[] many = new String[500];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = "m" + i;
+        }
+        replace(CHAT, many);
+
+        assertEquals(many.length, await(store::exportChats).get(0).messages.size());
+    }
+
+    @Test
+    public void listChatsReturnsTheNewestPageOfEachChat() {
+        replace("chat_1", "a", "b", "c", "d", "e");
+        replace("chat_2", "f", "g", "h");
+        store.saveChat("chat_3", "Empty", "2024-01-01T00:00:00Z");
+
+        List<ConversationStore.Chat> chats = await(callback -> store.listChats(3, callback));
+        assertEquals(3, chats.size());
+
+        ConversationStore.Chat paged = chats.get(0);
+        assertEquals(Arrays.asList("c", "d", "e"), messageIds(paged.messages));
+        assertTrue(paged.hasOlder);
+        List<ConversationStore.Record> older = await(callback ->
+                store.loadBefore("chat_1", paged.messages.get(0).seq, 3, callback));
+        assertEquals(Arrays.asList("a", "b"), messageIds(older));
+
+        assertEquals(Arrays.asList("f", "g", "h"), messageIds(chats.get(1).messages));
+        assertFalse(chats.get(1).hasOlder);
+        assertTrue(chats.get(2).messages.isEmpty());
+        assertFalse(chats.get(2).hasOlder);
+    }
+
+    @Test
+    public void chatSummariesCountOnlySyncedMessages() {
+        replace(CHAT, "a", "b");
+        store.appendNext(CHAT, "p1", ConversationStore.SOURCE_APP, true, "p1", null);
+        store.saveChat("chat_2", "Empty", "2024-01-01T00:00:00Z");
+
+        List<ConversationStore.Summary> summaries = await(store::chatSummaries);
+        assertEquals(2, summaries.size());
+        ConversationStore.Summary chat = summaries.get(0).id.equals(CHAT) ? summaries.get(0) : summaries.get(1);
+        ConversationStore.Summary empty = chat == summaries.get(0) ? summaries.get(1) : summaries.get(0);
+        assertEquals(2, chat.syncedCount);
+        assertEquals("b", chat.lastSyncedId);
+        assertEquals(0, empty.syncedCount);
+        assertNull(empty.lastSyncedId);
+    }
+
+    @Test
+    public void deleteAllChatsKeepsOverlayConversations() {
+        replace(CHAT, "inapp");
+        store.appendNext("chat_without_row", "p1", ConversationStore.SOURCE_APP, true, "pending", null);
+        store.append("overlay-1", 0, true, "overlay words", "12:00");
+
+        store.deleteAllChats();
+
+        assertTrue(await(store::exportChats).isEmpty());
+        assertTrue(search("inapp").isEmpty());
+        assertTrue(search("pending").isEmpty());
+        assertEquals(1, search("overlay").size());
+    }
+
+    @Test
+    public void appendingTheSameSeqAgainReplacesItsSearchEntry() {
+        store.append("overlay-1", 0, true, "original wording", "12:00");
+        store.append("overlay-1", 0, true, "corrected phrasing", "12:00");
+
+        List<ConversationStore.Hit> hits = search("corrected");
+        assertEquals(1, hits.size());
+        assertEquals("corrected phrasing", hits.get(0).text);
+
+        // Search joins back to messages and would hide a stale entry, so read the index itself
+        try (SQLiteDatabase db = SQLiteDatabase.openDatabase(context.getDatabasePath(DB_NAME).getPath(),
+                null, SQLiteDatabase.OPEN_READONLY);
+             Cursor stale = db.rawQuery("SELECT docid FROM messages_fts WHERE messages_fts MATCH 'original'", null)) {
+            assertEquals(0, stale.getCount());
+        }
+    }
+
+    private void replace(String chat, String... messageIds) {
+        assertTrue(await(callback -> store.replaceChat(chat, "Chat", "2024-01-01T00:00:00Z",
+                records(messageIds), callback)));
+    }
+
+    private List<ConversationStore.Hit> search(String query) {
+        return await(callback -> store.search(query, 10, 0, callback));
+    }
+
+    private List<String> ids(String chat) {
+        for (ConversationStore.Chat stored : await(store::exportChats)) {
+            if (stored.id.equals(chat)) {
+                List<String> ids = new ArrayList<>();
+                long lastSeq = -1;
+                for (ConversationStore.Record record : stored.messages) {
+                    assertTrue("seq order", record.seq > lastSeq);
+                    lastSeq = record.seq;
+                    ids.add(record.messageId);
+                }
+                return ids;
+            }
+        }
+        throw new AssertionError("No chat " + chat);
+    }
+
+    private static List<String> messageIds(List<ConversationStore.Record> records) {
+        List<String> ids = new ArrayList<>();
+        for (ConversationStore.Record record : records) {
+            ids.add(record.messageId);
+        }
+        return ids;
+    }
+
+    private static List<ConversationStore.Record> records(String... messageIds) {
+        List<ConversationStore.Record> records = new ArrayList<>();
+        for (int i = 0; i < messageIds.length; i++) {
+            records.add(new ConversationStore.Record(-1, messageIds[i], i % 2 == 0, messageIds[i], null));
+        }
+        return records;
+    }
+
+    private static <T> T await(Consumer<ConversationStore.Callback<T>> call) {
+        List<T> result = new ArrayList<>();
+        call.accept(result::add);
+        MainLooper.await(() -> !result.isEmpty());
+        return result.get(0);
+    }
+}
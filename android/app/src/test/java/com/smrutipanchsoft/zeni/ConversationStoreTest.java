@@ -0,0 +1,40 @@
+package com.smrutipanchsoft.zeni;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ConversationStoreTest {
+
+    @Test
+    public void wordsAreLowerCasedAndTheLastOneIsAPrefix() {
+        assertEquals("hello world*", ConversationStore.toMatchQuery("Hello, World!"));
+        assertEquals("cats*", ConversationStore.toMatchQuery("  cats  "));
+    }
+
+    @Test
+    public void operatorsBecomePlainWords() {
+        assertEquals("cats and dogs or not near birds*",
+                ConversationStore.toMatchQuery("cats AND dogs OR NOT NEAR birds"));
+    }
+
+    @Test
+    public void ftsSyntaxIsStripped() {
+        assertEquals("foo bar baz*", ConversationStore.toMatchQuery("\"foo\" -bar* baz:"));
+        assertEquals("c vs c*", ConversationStore.toMatchQuery("c++ vs. c#"));
+        assertEquals("a b*", ConversationStore.toMatchQuery("(a) {b}"));
+    }
+
+    @Test
+    public void nonAsciiLettersAreKept() {
+        assertEquals("café déjà 東京*", ConversationStore.toMatchQuery("Café DÉJÀ 東京"));
+    }
+
+    @Test
+    public void nothingSearchableGivesNull() {
+        assertNull(ConversationStore.toMatchQuery(null));
+        assertNull(ConversationStore.toMatchQuery(""));
+        assertNull(ConversationStore.toMatchQuery(" *\"-:() "));
+    }
+}
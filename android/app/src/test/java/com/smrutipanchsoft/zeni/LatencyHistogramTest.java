@@ -0,0 +1,63 @@
+package com.smrutipanchsoft.zeni;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramReportsMinusOne() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.count());
+        assertEquals(-1, histogram.meanMs());
+        assertEquals(-1, histogram.percentileMs(50));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+        assertEquals(5, histogram.percentileMs(50));
+        assertEquals(10, histogram.percentileMs(95));
+        assertEquals(10, histogram.maxMs());
+        assertEquals(5, histogram.meanMs());
+    }
+
+    @Test
+    public void percentilesStayWithinTheBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(42);
+        long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1 + (long) (Math.exp(random.nextDouble() * Math.log(200_000)));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double p : new double[]{50, 90, 95, 99}) {
+            long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+            long reported = histogram.percentileMs(p);
+            // Upper bound of the bucket: never below the true value, at most 6.25% above
+            assertTrue("p" + p + " " + reported + " < " + exact, reported >= exact);
+            assertTrue("p" + p + " " + reported + " vs " + exact, reported <= exact * 1.0625 + 1);
+        }
+    }
+
+    @Test
+    public void valuesPastTheRangeLandInTheLastBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10_000_000);
+        histogram.record(-5);
+        assertEquals(1, histogram.count());
+        assertEquals(10_000_000, histogram.maxMs());
+        // Clamped into the top bucket rather than dropped
+        assertTrue(histogram.percentileMs(100) >= 1 << 17);
+    }
+}
@@ -0,0 +1,78 @@
+package com.smrutipanchsoft.zeni;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyTrackerTest {
+
+    private final LatencyTracker tracker = new LatencyTracker();
+
+    @Test
+    public void defaultsUntilThereAreEnoughSamples() {
+        for (int i = 0; i < 7; i++) {
+            tracker.record("/chat", 100);
+        }
+        assertEquals(-1, tracker.p95Ms("/chat"));
+        assertEquals(30000, tracker.readTimeoutMs("/chat", 30000, 1000, 60000));
+
+        tracker.record("/chat", 100);
+        assertEquals(100, tracker.p95Ms("/chat"));
+    }
+
+    @Test
+    public void readTimeoutIsThreeTimesP95WithinBounds() {
+        for (int i = 0; i < 20; i++) {
+            tracker.record("/chat", 2000);
+        }
+        assertEquals(6000, tracker.readTimeoutMs("/chat", 30000, 1000, 60000));
+        assertEquals(15000, tracker.readTimeoutMs("/chat", 30000, 15000, 60000));
+        assertEquals(5000, tracker.readTimeoutMs("/chat", 30000, 1000, 5000));
+    }
+
+    @Test
+    public void timeoutsRecordedAtTheirLimitPullTheTailUp() {
+        for (int i = 0; i < 60; i++) {
+            tracker.record("/chat", 1000);
+        }
+        int before = tracker.readTimeoutMs("/chat", 30000, 1000, 60000);
+
+        // Four calls that timed out at 30 s, recorded as censored samples
+        for (int i = 0; i < 4; i++) {
+            tracker.record("/chat", 30000);
+        }
+        int after = tracker.readTimeoutMs("/chat", 30000, 1000, 60000);
+
+        assertEquals(3000, before);
+        assertEquals(60000, after);
+    }
+
+    @Test
+    public void windowForgetsOldSamples() {
+        for (int i = 0; i < 64; i++) {
+            tracker.record("/", 5000);
+        }
+        for (int i = 0; i < 64; i++) {
+            tracker.record("/", 50);
+        }
+        assertEquals(50, tracker.p95Ms("/"));
+    }
+
+    @Test
+    public void connectTimeoutComesFromTheConnectPhase() {
+        NetworkMetrics metrics = new NetworkMetrics();
+        // Slow server, fast network: whole calls take seconds, connects do not
+        for (int i = 0; i < 20; i++) {
+            tracker.record("/chat", 8000);
+            metrics.recordConnect(40);
+        }
+
+        assertEquals(3000, tracker.connectTimeoutMs(metrics, 10000, 3000, 15000));
+        assertEquals(80, tracker.connectTimeoutMs(metrics, 10000, 10, 15000));
+    }
+
+    @Test
+    public void connectTimeoutFallsBackWithoutConnectSamples() {
+        assertEquals(10000, tracker.connectTimeoutMs(new NetworkMetrics(), 10000, 3000, 15000));
+    }
+}
@@ -0,0 +1,48 @@
+package com.smrutipanchsoft.zeni;
+
+import android.os.Looper;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * AIApiClient delivers results on the main thread, which Robolectric only runs
+ * when the test idles it. These helpers pump it while background work finishes,
+ * and move the simulated clock along with real time so delayed posts (backoff,
+ * debounce) on any looper come due.
+ */
+final class MainLooper {
+
+    private MainLooper() {
+    }
+
+    // Run posted main-thread work until the condition holds
+    static void await(BooleanSupplier condition, long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        long last = System.currentTimeMillis();
+        while (true) {
+            long now = System.currentTimeMillis();
+            shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(now - last));
+            last = now;
+            if (condition.getAsBoolean()) {
+                return;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out after " + timeoutMs + " ms");
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted");
+            }
+        }
+    }
+
+    static void await(BooleanSupplier condition) {
+        await(condition, 10_000);
+    }
+}
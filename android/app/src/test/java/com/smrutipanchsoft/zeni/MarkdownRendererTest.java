@@ -0,0 +1,141 @@
+package com.smrutipanchsoft.zeni;
+
+import android.graphics.Typeface;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
+import android.text.style.TypefaceSpan;
+import android.text.style.URLSpan;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+public class MarkdownRendererTest {
+
+    @Test
+    public void boldAndItalicBecomeStyleSpans() {
+        Spanned text = render("a **bold** and *soft* word");
+
+        assertEquals("a bold and soft word", text.toString());
+        assertEquals(Arrays.asList("bold:bold", "italic:soft"), styles(text));
+    }
+
+    @Test
+    public void listsAreNormalized() {
+        Spanned text = render("- one\n* two\n• three\n12. twelve");
+
+        assertEquals("• one\n• two\n• three\n12. twelve", text.toString());
+        assertEquals(Arrays.asList("bold:12."), styles(text));
+    }
+
+    @Test
+    public void codeBlocksAreMonospacedAndNotParsed() {
+        Spanned text = render("before\n```\nx = **y**\n```\nafter `z`");
+
+        assertEquals("before\nx = **y**\nafter z", text.toString());
+        TypefaceSpan[] code = text.getSpans(0, text.length(), TypefaceSpan.class);
+        assertEquals(2, code.length);
+        assertEquals("x = **y**", slice(text, code[0]));
+        assertEquals("z", slice(text, code[1]));
+        assertEquals(0, text.getSpans(0, text.length(), StyleSpan.class).length);
+    }
+
+    @Test
+    public void linksKeepTheirTarget() {
+        Spanned text = render("see [the docs](https://example.com/a) now");
+
+        assertEquals("see the docs now", text.toString());
+        URLSpan[] links = text.getSpans(0, text.length(), URLSpan.class);
+        assertEquals(1, links.length);
+        assertEquals("https://example.com/a", links[0].getURL());
+        assertEquals("the docs", slice(text, links[0]));
+    }
+
+    @Test
+    public void unclosedMarkersStayLiteral() {
+        assertEquals("2 * 3 = **6", render("2 * 3 = **6").toString());
+    }
+
+    @Test
+    public void streamingMatchesRenderingTheWholeReply() {
+        String reply = longReply(3);
+        MarkdownRenderer streamed = new MarkdownRenderer();
+        for (String token : tokens(reply)) {
+            streamed.append(token);
+        }
+
+        Spanned whole = render(reply);
+        assertEquals(whole.toString(), streamed.getSpanned().toString());
+        assertEquals(styles(whole), styles(streamed.getSpanned()));
+    }
+
+    @Test
+    public void partialLineIsReRenderedWhenItCompletes() {
+        MarkdownRenderer renderer = new MarkdownRenderer();
+        renderer.append("**bo");
+        assertEquals("**bo", renderer.getSpanned().toString());
+
+        renderer.append("ld** done");
+        assertEquals("bold done", renderer.getSpanned().toString());
+        assertEquals(Arrays.asList("bold:bold"), styles(renderer.getSpanned()));
+    }
+
+    @Test
+    public void spannedIsCachedUntilTheTextChanges() {
+        MarkdownRenderer renderer = new MarkdownRenderer("**hi**");
+        Spanned first = renderer.getSpanned();
+        assertSame(first, renderer.getSpanned());
+
+        // The final reply of a stream extends the tokens already shown
+        renderer.setText("**hi** there");
+        assertEquals("hi there", renderer.getSpanned().toString());
+
+        renderer.setText("new");
+        assertEquals("new", renderer.getSpanned().toString());
+    }
+
+    private static String longReply(int sections) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= sections; i++) {
+            sb.append("Here is **point ").append(i).append("** with some *emphasis* and more words to read.\n");
+            sb.append("• first detail of the point\n");
+            sb.append("• second detail with **bold** text\n");
+            sb.append(i).append(". a numbered step that goes on for a while\n");
+        }
+        return sb.toString();
+    }
+
+    // Split like a model stream: a few characters at a time
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < text.length(); i += 4) {
+            tokens.add(text.substring(i, Math.min(text.length(), i + 4)));
+        }
+        return tokens;
+    }
+
+    private static Spanned render(String text) {
+        return new MarkdownRenderer(text).getSpanned();
+    }
+
+    private static List<String> styles(Spanned text) {
+        List<String> styles = new ArrayList<>();
+        for (StyleSpan span : text.getSpans(0, text.length(), StyleSpan.class)) {
+            String kind = span.getStyle() == Typeface.BOLD ? "bold" : "italic";
+            styles.add(kind + ":" + slice(text, span));
+        }
+        return styles;
+    }
+
+    private static String slice(Spanned text, Object span) {
+        return text.subSequence(text.getSpanStart(span), text.getSpanEnd(span)).toString();
+    }
+}
@@ -0,0 +1,161 @@
+package com.smrutipanchsoft.zeni;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class OkHttpTransportTest {
+
+    private MockWebServer server;
+    private OkHttpTransport transport;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        transport = new OkHttpTransport();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        transport.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void sequentialCallsShareOneConnection() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            server.enqueue(new MockResponse().setBody("ok " + i));
+        }
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("ok " + i, get("/health"));
+        }
+
+        HttpTransport.Stats stats = transport.getStats();
+        assertEquals(5, stats.requests);
+        assertEquals(1, stats.connectionsOpened);
+        assertEquals(4, stats.connectionsReused);
+        // Same socket on the server side too
+        assertEquals(0, server.takeRequest().getSequenceNumber());
+        for (int i = 1; i < 5; i++) {
+            assertEquals(i, server.takeRequest().getSequenceNumber());
+        }
+    }
+
+    @Test
+    public void differentTimeoutsStillShareThePool() throws Exception {
+        server.enqueue(new MockResponse().setBody("a"));
+        server.enqueue(new MockResponse().setBody("b"));
+
+        assertEquals("a", read(HttpTransport.Request.get(server.url("/chat").toString()).timeouts(1000, 2000)));
+        assertEquals("b", read(HttpTransport.Request.get(server.url("/chat").toString()).timeouts(3000, 4000)));
+
+        assertEquals(1, transport.getStats().connectionsOpened);
+        assertEquals(1, transport.getStats().connectionsReused);
+    }
+
+    @Test
+    public void eachRequestGetsItsOwnReadTimeout() throws Exception {
+        server.enqueue(new MockResponse().setBody("slow").setHeadersDelay(1, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody("patient").setHeadersDelay(1, TimeUnit.SECONDS));
+
+        try {
+            read(HttpTransport.Request.get(server.url("/chat").toString()).timeouts(1000, 200));
+            fail("Expected a read timeout");
+        } catch (SocketTimeoutException expected) {
+        }
+        assertEquals("patient", read(HttpTransport.Request.get(server.url("/chat").toString()).timeouts(1000, 5000)));
+    }
+
+    @Test
+    public void closedConnectionIsReplaced() throws Exception {
+        server.enqueue(new MockResponse().setBody("first").setHeader("Connection", "close"));
+        server.enqueue(new MockResponse().setBody("second"));
+
+        assertEquals("first", get("/health"));
+        assertEquals("second", get("/health"));
+
+        assertEquals(2, transport.getStats().connectionsOpened);
+    }
+
+    @Test
+    public void cancelledCallsAreNotCountedAsIoErrors() throws Exception {
+        server.enqueue(new MockResponse().setBody("late").setHeadersDelay(5, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+
+        Object tag = new Object();
+        Thread canceller = new Thread(() -> {
+            try {
+                server.takeRequest();
+            } catch (InterruptedException ignored) {
+            }
+            transport.cancel(tag);
+        });
+        canceller.start();
+        try {
+            read(HttpTransport.Request.get(server.url("/chat").toString()).tag(tag));
+            fail("Expected the call to be cancelled");
+        } catch (IOException expected) {
+        }
+        canceller.join();
+
+        try {
+            get("/chat");
+            fail("Expected the call to fail");
+        } catch (IOException expected) {
+        }
+
+        NetworkMetrics.Snapshot chat = transport.getMetrics().snapshots().get(0);
+        assertEquals(Long.valueOf(1), chat.errors.get(NetworkMetrics.CANCELED));
+        assertEquals(Long.valueOf(1), chat.errors.get(NetworkMetrics.IO_ERROR));
+    }
+
+    @Test
+    public void cancelStopsABodyMidStream() throws Exception {
+        server.enqueue(new MockResponse().setBody("data: a\n\n").throttleBody(4, 1, TimeUnit.SECONDS));
+
+        Object tag = new Object();
+        try (HttpTransport.Response response = transport.execute(
+                HttpTransport.Request.get(server.url("/chat").toString()).tag(tag))) {
+            InputStream in = response.body();
+            in.read();
+            transport.cancel(tag);
+            try {
+                while (in.read() != -1) {
+                }
+                fail("Expected the body to be cut off");
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+    private String get(String path) throws IOException {
+        return read(HttpTransport.Request.get(server.url(path).toString()));
+    }
+
+    private String read(HttpTransport.Request request) throws IOException {
+        try (HttpTransport.Response response = transport.execute(request)) {
+            InputStream in = response.body();
+            StringBuilder sb = new StringBuilder();
+            int c;
+            while ((c = in.read()) != -1) {
+                sb.append((char) c);
+            }
+            return sb.toString();
+        }
+    }
+}
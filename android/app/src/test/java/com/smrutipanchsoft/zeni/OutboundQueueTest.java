@@ -0,0 +1,172 @@
+package com.smrutipanchsoft.zeni;
+
+import android.content.Context;
+import android.os.Looper;
+import android.util.Base64;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class OutboundQueueTest {
+
+    private MockWebServer server;
+    private AIApiClient client;
+    private Context context;
+    private OutboundQueue queue;
+    private final List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> failed = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() throws Exception {
+        context = RuntimeEnvironment.getApplication();
+        journal().delete();
+        server = new MockWebServer();
+        server.start();
+        client = new AIApiClient(new OkHttpTransport(), server.url("/").toString().replaceAll("/$", ""));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (queue != null) {
+            queue.stop();
+        }
+        client.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void deliveredMessagesAreNotResentAfterALaterFailure() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(new MockResponse().setBody("{\"reply\":\"r1\"}"));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("{\"reply\":\"r2\"}"));
+
+        queue = start();
+        queue.enqueue("id1", "m1");
+        queue.enqueue("id2", "m2");
+
+        MainLooper.await(() -> delivered.size() == 2, 15_000);
+        assertEquals("m1=r1", delivered.get(0));
+        assertEquals("m2=r2", delivered.get(1));
+
+        List<String> sentIds = new ArrayList<>();
+        server.takeRequest(); // /batch probe
+        for (int i = 0; i < 3; i++) {
+            sentIds.add(new JSONObject(server.takeRequest().getBody().readUtf8()).getString("messageId"));
+        }
+        assertEquals("id1 went out once, id2 was retried", Arrays.asList("id1", "id2", "id2"), sentIds);
+    }
+
+    @Test
+    public void openEntriesAreReplayedWithTheirIdsAfterARestart() throws Exception {
+        // As left behind by a killed process: id0 answered, id1 and id2 still open
+        try (FileOutputStream out = new FileOutputStream(journal())) {
+            out.write(("A id0 " + encode("m0") + "\n"
+                    + "A id1 " + encode("m1") + "\n"
+                    + "D id0\n"
+                    + "A id2 " + encode("m2") + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        server.enqueue(new MockResponse().setBody("{\"replies\":[\"r1\",\"r2\"]}"));
+
+        queue = start();
+
+        MainLooper.await(() -> delivered.size() == 2);
+        assertEquals(Arrays.asList("m1=r1", "m2=r2"), delivered);
+        JSONObject body = new JSONObject(server.takeRequest().getBody().readUtf8());
+        assertEquals("[\"id1\",\"id2\"]", body.getJSONArray("messageIds").toString());
+
+        // Both are closed now - the next start has nothing to send
+        queue.stop();
+        queue = start();
+        Thread.sleep(300);
+        assertNull(server.takeRequest(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void rejectedMessageDoesNotHoldUpTheOthersAndIsEventuallyDropped() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (!"/chat".equals(request.getPath())) {
+                    return new MockResponse().setResponseCode(404);
+                }
+                String body = request.getBody().readUtf8();
+                if (body.contains("poison")) {
+                    return new MockResponse().setResponseCode(500);
+                }
+                return new MockResponse().setBody("{\"reply\":\"ok\"}");
+            }
+        });
+
+        queue = start();
+        queue.enqueue("id1", "poison");
+        queue.enqueue("id2", "m2");
+        queue.enqueue("id3", "m3");
+
+        MainLooper.await(() -> delivered.size() == 2);
+        assertEquals(Arrays.asList("m2=ok", "m3=ok"), delivered);
+
+        // Skip through the per-entry backoff on the simulated clock
+        for (int i = 0; i < 100 && failed.isEmpty(); i++) {
+            shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMinutes(1));
+            Thread.sleep(50);
+        }
+        assertEquals(Collections.singletonList("poison"), failed);
+
+        // Dropped for good: nothing left to replay
+        queue.stop();
+        int sent = server.getRequestCount();
+        queue = start();
+        Thread.sleep(300);
+        assertEquals(sent, server.getRequestCount());
+    }
+
+    private File journal() {
+        return new File(context.getFilesDir(), "outbound_queue.journal");
+    }
+
+    private static String encode(String message) {
+        return Base64.encodeToString(message.getBytes(StandardCharsets.UTF_8), Base64.NO_WRAP);
+    }
+
+    private OutboundQueue start() {
+        OutboundQueue started = new OutboundQueue(context, client, new OutboundQueue.Listener() {
+            @Override
+            public void onDelivered(OutboundQueue.Entry entry, String reply) {
+                delivered.add(entry.message + "=" + reply);
+            }
+
+            @Override
+            public void onFailed(OutboundQueue.Entry entry, String error) {
+                failed.add(entry.message);
+            }
+        });
+        started.start();
+        return started;
+    }
+}
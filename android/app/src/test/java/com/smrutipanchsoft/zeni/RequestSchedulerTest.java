@@ -0,0 +1,114 @@
+package com.smrutipanchsoft.zeni;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RequestSchedulerTest {
+
+    private final RequestScheduler scheduler = new RequestScheduler();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void jobsOfOneSessionRunInSubmissionOrder() throws Exception {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(20);
+
+        for (int i = 0; i < 20; i++) {
+            int n = i;
+            scheduler.submitChat("s", task -> {
+                maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                Thread.sleep(2);
+                order.add(n);
+                concurrent.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxConcurrent.get());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    @Test
+    public void sessionsRunInParallel() throws Exception {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+
+        for (String session : new String[]{"a", "b"}) {
+            scheduler.submitChat(session, task -> {
+                bothRunning.countDown();
+                release.await();
+            });
+        }
+
+        // Would time out if "b" waited behind "a"
+        assertTrue(bothRunning.await(2, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void controlLaneDoesNotWaitForChat() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 8; i++) {
+            scheduler.submitChat("s" + i, task -> release.await());
+        }
+
+        CountDownLatch control = new CountDownLatch(1);
+        scheduler.submitControl(task -> control.countDown());
+
+        assertTrue(control.await(1, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void cancelDropsQueuedJobsButKeepsNonCancellableOnes() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch finished = new CountDownLatch(1);
+
+        RequestScheduler.Task running = scheduler.submitChat("s", task -> {
+            started.countDown();
+            release.await();
+        });
+        scheduler.submitChat("s", task -> ran.add("dropped"));
+        scheduler.submitChat("s", false, task -> {
+            ran.add("kept");
+            finished.countDown();
+        });
+
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        scheduler.cancelChat("s");
+        assertTrue(running.isCancelled());
+        release.countDown();
+
+        assertTrue(finished.await(2, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("kept"), ran);
+    }
+
+    @Test
+    public void nonCancellableTaskIgnoresCancel() {
+        RequestScheduler.Task task = scheduler.submitChat("s", false, t -> { });
+        task.cancel();
+        assertFalse(task.isCancelled());
+    }
+}
@@ -0,0 +1,84 @@
+package com.smrutipanchsoft.zeni;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class ResponseCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keyIsTheHexSha256OfContextAndNormalizedPrompt() throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest("ctx\u0000hello world".getBytes(StandardCharsets.UTF_8));
+        StringBuilder expected = new StringBuilder();
+        for (byte b : digest) {
+            expected.append(String.format("%02x", b));
+        }
+
+        assertEquals(expected.toString(), ResponseCache.key("  Hello \n  World ", "ctx"));
+        assertNotEquals(ResponseCache.key("hello", "a"), ResponseCache.key("hello", "b"));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvictedFirst() {
+        ResponseCache cache = new ResponseCache(60_000, 10);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        cache.getFromMemory("a");
+        cache.put("c", "cccc");
+
+        assertEquals("aaaa", cache.getFromMemory("a"));
+        assertNull(cache.getFromMemory("b"));
+        assertEquals("cccc", cache.getFromMemory("c"));
+        assertEquals(1, cache.getStats().evictions);
+    }
+
+    @Test
+    public void expiredEntriesAreNotReturned() throws Exception {
+        ResponseCache cache = new ResponseCache(1, 100);
+        cache.put("a", "reply");
+        Thread.sleep(5);
+
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.getStats().misses);
+    }
+
+    @Test
+    public void diskTierSurvivesANewInstance() throws Exception {
+        File dir = folder.newFolder("replies");
+        new ResponseCache(60_000, 100, dir, 1024).put("k", "multi\nline reply");
+
+        ResponseCache restarted = new ResponseCache(60_000, 100, dir, 1024);
+        assertNull(restarted.getFromMemory("k"));
+        assertEquals("multi\nline reply", restarted.get("k"));
+        assertEquals(1, restarted.getStats().diskHits);
+        // Promoted to memory
+        assertEquals("multi\nline reply", restarted.getFromMemory("k"));
+    }
+
+    @Test
+    public void diskTierIsTrimmedToItsBudget() throws Exception {
+        File dir = folder.newFolder("replies");
+        ResponseCache cache = new ResponseCache(60_000, 1000, dir, 100);
+        for (int i = 0; i < 10; i++) {
+            cache.put("k" + i, "0123456789012345678901234567890123456789");
+        }
+
+        long total = 0;
+        for (File file : dir.listFiles()) {
+            total += file.length();
+        }
+        assertEquals(true, total <= 100);
+    }
+}
@@ -0,0 +1,122 @@
+package com.smrutipanchsoft.zeni;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class ResponseDecoderTest {
+
+    @Test
+    public void readsStringFieldAndSkipsTheRest() throws Exception {
+        String body = "{\"usage\":{\"tokens\":[1,2,3]},\"reply\":\"hi \\\"there\\\" \\u00e9\",\"reply2\":\"x\"}";
+        assertEquals("hi \"there\" é", ResponseDecoder.readStringField(stream(body), "reply"));
+    }
+
+    @Test
+    public void firstOccurrenceWins() throws Exception {
+        assertEquals("a", ResponseDecoder.readStringField(stream("{\"reply\":\"a\",\"reply\":\"b\"}"), "reply"));
+    }
+
+    @Test
+    public void missingOrNonStringFieldFails() {
+        for (String body : new String[]{"{\"status\":\"ok\"}", "{\"reply\":null}", "{\"reply\":42}"}) {
+            try {
+                ResponseDecoder.readStringField(stream(body), "reply");
+                fail("Expected failure for " + body);
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().contains("reply"));
+            }
+        }
+    }
+
+    @Test
+    public void readsStringArrayField() throws Exception {
+        assertEquals(Arrays.asList("one", "two"),
+                ResponseDecoder.readStringArrayField(stream("{\"n\":2,\"replies\":[\"one\",\"two\"]}"), "replies"));
+    }
+
+    @Test
+    public void decodesStreamChunks() throws Exception {
+        ResponseDecoder.Chunk token = ResponseDecoder.readChunk("{\"token\":\"a\",\"index\":3}");
+        assertEquals("a", token.token);
+        assertFalse(token.done);
+
+        assertEquals("b", ResponseDecoder.readChunk("{\"delta\":\"b\"}").token);
+        // A streamed "token" beats a trailing full "reply"
+        assertEquals("c", ResponseDecoder.readChunk("{\"token\":\"c\",\"reply\":\"full\"}").token);
+        assertEquals("full", ResponseDecoder.readChunk("{\"reply\":\"full\"}").token);
+
+        ResponseDecoder.Chunk done = ResponseDecoder.readChunk("{\"done\":true}");
+        assertTrue(done.done);
+        assertNull(done.token);
+
+        assertEquals("boom", ResponseDecoder.readChunk("{\"error\":\"boom\"}").error);
+    }
+
+    @Test
+    public void allocatesLessThanBufferingTheWholeBody() throws Exception {
+        // Per-thread allocation counters are a HotSpot extension
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        char[] text = new char[64 * 1024];
+        Arrays.fill(text, 'x');
+        byte[] body = ("{\"model\":\"m\",\"usage\":{\"prompt\":12,\"completion\":3400},\"reply\":\""
+                + new String(text) + "\"}").getBytes(StandardCharsets.UTF_8);
+
+        // Warm both paths up so class loading is not measured
+        for (int i = 0; i < 20; i++) {
+            ResponseDecoder.readStringField(new ByteArrayInputStream(body), "reply");
+            readWithJsonObject(new ByteArrayInputStream(body));
+        }
+
+        long id = Thread.currentThread().getId();
+        int rounds = 50;
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < rounds; i++) {
+            ResponseDecoder.readStringField(new ByteArrayInputStream(body), "reply");
+        }
+        long decoder = (threads.getThreadAllocatedBytes(id) - before) / rounds;
+
+        before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < rounds; i++) {
+            readWithJsonObject(new ByteArrayInputStream(body));
+        }
+        long buffered = (threads.getThreadAllocatedBytes(id) - before) / rounds;
+
+        assertTrue("decoder " + decoder + " B vs " + buffered + " B", decoder < buffered);
+    }
+
+    // The pre-decoder path: whole body into a String, then a JSONObject tree
+    private static String readWithJsonObject(InputStream in) throws Exception {
+        BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        StringBuilder response = new StringBuilder();
+        String line;
+        while ((line = br.readLine()) != null) {
+            response.append(line);
+        }
+        return new JSONObject(response.toString()).getString("reply");
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,110 @@
+package com.smrutipanchsoft.zeni;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class SingleFlightTest {
+
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    @Test
+    public void joinersReceiveTheLeadersStream() {
+        Events first = new Events();
+        Events second = new Events();
+
+        AIApiClient.StreamCallback leader = singleFlight.joinStream("k", first);
+        assertNotNull(leader);
+        leader.onToken("a");
+        assertNull(singleFlight.joinStream("k", second));
+        leader.onToken("b");
+        leader.onComplete("ab");
+
+        assertEquals(Arrays.asList("token a", "token b", "complete ab"), first.events);
+        // The late joiner catches up on what was already streamed
+        assertEquals(Arrays.asList("token a", "token b", "complete ab"), second.events);
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    public void finishedFlightIsNotJoined() {
+        singleFlight.joinStream("k", new Events()).onComplete("done");
+        assertNotNull(singleFlight.joinStream("k", new Events()));
+    }
+
+    @Test
+    public void failuresFanOutWithTheirKind() {
+        Events first = new Events();
+        Events second = new Events();
+        AIApiClient.StreamCallback leader = singleFlight.joinStream("k", first);
+        singleFlight.joinStream("k", second);
+
+        leader.onUnreachable("offline");
+
+        assertEquals(Arrays.asList("unreachable offline"), first.events);
+        assertEquals(Arrays.asList("unreachable offline"), second.events);
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    public void replyFlightsAreSeparateFromStreams() {
+        List<String> replies = new ArrayList<>();
+        AIApiClient.Callback<String> callback = new AIApiClient.Callback<String>() {
+            @Override
+            public void onSuccess(String response) {
+                replies.add(response);
+            }
+
+            @Override
+            public void onError(String error) {
+                replies.add("error " + error);
+            }
+        };
+
+        AIApiClient.Callback<String> leader = singleFlight.joinReply("k", callback);
+        assertNull(singleFlight.joinReply("k", callback));
+        assertNotNull(singleFlight.joinStream("k", new Events()));
+        assertEquals(2, singleFlight.inFlight());
+
+        leader.onSuccess("r");
+        assertEquals(Arrays.asList("r", "r"), replies);
+    }
+
+    @Test
+    public void clearForgetsEveryFlight() {
+        singleFlight.joinStream("a", new Events());
+        singleFlight.joinReply("b", null);
+        singleFlight.clear();
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    static class Events implements AIApiClient.StreamCallback {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onToken(String token) {
+            events.add("token " + token);
+        }
+
+        @Override
+        public void onComplete(String reply) {
+            events.add("complete " + reply);
+        }
+
+        @Override
+        public void onError(String error) {
+            events.add("error " + error);
+        }
+
+        @Override
+        public void onUnreachable(String error) {
+            events.add("unreachable " + error);
+        }
+    }
+}
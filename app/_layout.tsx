@@ -5,14 +5,12 @@ import {
   Alert,
   Animated,
   AppState,
-  DeviceEventEmitter,
   Dimensions,
   Easing,
   Platform,
   Pressable,
   Text,
   View,
-  NativeModules,
   Vibration,
   Share,
   Modal,
@@ -29,12 +27,12 @@ import { useChatStore } from "@/store/chat.store";
 import { configureGoogleSignIn } from '@/app/services/auth';
 import { signOutUser } from '@/app/services/auth';
 import { router } from 'expo-router';
+import OverlayModule from "@/specs/NativeOverlayModule";
 
-const { OverlayModule } = NativeModules;
 
 export default function RootLayout() {
   const { mode, theme } = useThemeStore();
-  const { addChat } = useChatStore();
+  const { addChat, openOverlayConversation, applyOverlayEvents } = useChatStore();
   const { user, isGuest, clearAuth } = useAuthStore();
   const [isStarted, setIsStarted] = useState(false);
   const [isPressing, setIsPressing] = useState(false);
@@ -65,10 +63,17 @@ export default function RootLayout() {
     };
 
     checkOverlayStatus();
+    // ✅ Opened from the overlay's maximize button
+    openOverlayConversation().catch((e) =>
+      console.error("Error opening overlay conversation:", e)
+    );
 
     const subscription = AppState.addEventListener("change", (nextAppState) => {
       if (nextAppState === "active") {
         checkOverlayStatus();
+        openOverlayConversation().catch((e) =>
+          console.error("Error opening overlay conversation:", e)
+        );
       }
     });
 
@@ -81,17 +86,18 @@ export default function RootLayout() {
     configureGoogleSignIn();
   }, []);
 
+  // ✅ Native pushes status, settled overlay messages and metrics, one batch per frame
   useEffect(() => {
-    if (Platform.OS === "android") {
-      const subscription = DeviceEventEmitter.addListener(
-        "OVERLAY_STOPPED",
-        () => {
-          console.log("Overlay stopped from service");
-          setIsStarted(false);
+    if (Platform.OS !== "android" || !OverlayModule) return;
+    const subscription = OverlayModule.onOverlayEvents(({ events }) => {
+      for (const event of events) {
+        if (event.type === "status") {
+          setIsStarted(!!event.running);
         }
-      );
-      return () => subscription.remove();
-    }
+      }
+      applyOverlayEvents(events);
+    });
+    return () => subscription.remove();
   }, []);
 
   // Handle logout
@@ -221,7 +227,7 @@ export default function RootLayout() {
         animateWave();
         
         console.log("🔍 Checking permission...");
-        const hasPermission = await OverlayModule.checkOverlayPermission();
+        const hasPermission = OverlayModule.checkOverlayPermissionSync();
         console.log("✅ Permission status:", hasPermission);
         
         if (!hasPermission) {
@@ -259,32 +265,19 @@ export default function RootLayout() {
         }
         
         console.log("🚀 Starting overlay...");
+        // ✅ Resolves once the service is up
         await OverlayModule.startOverlay();
         setIsStarted(true);
-        console.log("✅ Overlay should be visible now");
-        
-        setTimeout(async () => {
-          try {
-            const running = await OverlayModule.isOverlayRunning();
-            console.log("🔍 Is overlay running?", running);
-            if (!running) {
-              Alert.alert("Error", "Failed to start overlay. Check logs.");
-              setIsStarted(false);
-            }
-          } catch (error) {
-            console.error("Error checking running status:", error);
-          }
-        }, 500);
+        console.log("✅ Overlay visible");
         
       } else {
         console.log("🛑 Stopping overlay...");
         
         try {
-          await OverlayModule.stopOverlay();
-          setTimeout(() => {
-            setIsStarted(false);
-            console.log("✅ Overlay stopped");
-          }, 300);
+          // ✅ Resolves once the service is destroyed (false if it is still running)
+          const stopped = await OverlayModule.stopOverlay();
+          setIsStarted(!stopped);
+          console.log(stopped ? "✅ Overlay stopped" : "⚠️ Overlay still running");
         } catch (error) {
           console.error("❌ Error stopping overlay:", error);
           setIsStarted(false);
@@ -26,7 +26,8 @@ import { useRouter } from "expo-router";
 
 export default function ChatScreen() {
   const { theme } = useThemeStore();
-  const { getActiveChat, addMessage, activeChat } = useChatStore();
+  const { getActiveChat, addMessage, activeChat, loadOlderMessages } =
+    useChatStore();
   const { user, isGuest } = useAuthStore();
   const router = useRouter();
   const flatListRef = useRef<FlatList>(null);
@@ -65,10 +66,12 @@ export default function ChatScreen() {
   };
 
   // ================= SCROLL =================
+  // Keyed on the newest message so paging in older ones does not jump down
+  const lastMessageId = messages[messages.length - 1]?.id;
   useEffect(() => {
     if (messages.length === 0) return;
     flatListRef.current?.scrollToEnd({ animated: true });
-  }, [messages.length, isTyping]);
+  }, [lastMessageId, isTyping]);
 
   // ================= TYPING EFFECT =================
   useEffect(() => {
@@ -293,6 +296,9 @@ export default function ChatScreen() {
         data={messages}
         keyExtractor={(i) => i.id}
         renderItem={renderMessage}
+        onStartReached={() => {
+          if (activeChat) loadOlderMessages(activeChat);
+        }}
         contentContainerStyle={{
           flexGrow: 1,
         }}
@@ -0,0 +1,136 @@
+import type { TurboModule } from "react-native";
+import { TurboModuleRegistry } from "react-native";
+import type {
+  Double,
+  EventEmitter,
+  UnsafeObject,
+} from "react-native/Libraries/Types/CodegenTypes";
+
+// Codegen spec of the native OverlayModule (android/.../OverlayModule.java)
+
+export type OverlayRecord = {
+  seq: Double;
+  // The app's message id; absent for overlay messages
+  messageId?: string;
+  text: string;
+  isUser: boolean;
+  timestamp: string;
+};
+
+export type OverlayHistoryHit = {
+  conversationId: string;
+  seq: Double;
+  source: string;
+  isUser: boolean;
+  text: string;
+  timestamp: string;
+  snippet: string;
+};
+
+export type StoredChat = {
+  id: string;
+  title: string;
+  createdAt: string;
+  // Oldest first: the newest page from listChats, everything from exportChats
+  messages: OverlayRecord[];
+  hasOlder: boolean;
+};
+
+// A stored chat without its messages; see chatSummaries
+export type StoredChatSummary = {
+  id: string;
+  title: string;
+  createdAt: string;
+  // Messages the server is known to have, and the newest one's id
+  syncedCount: Double;
+  lastSyncedId?: string;
+};
+
+// A chat as the app and the server hold it
+export type ChatInput = {
+  id: string;
+  title: string;
+  createdAt: string;
+  messages: MessageInput[];
+};
+
+export type MessageInput = {
+  id: string;
+  text: string;
+  isUser: boolean;
+  timestamp: string;
+};
+
+// type is "status" (running), "message" (conversationId, seq, isUser, text,
+// timestamp) or "metrics" (the getNetworkMetrics() result)
+export type OverlayEvent = {
+  type: string;
+  running?: boolean;
+  conversationId?: string;
+  seq?: Double;
+  isUser?: boolean;
+  text?: string;
+  timestamp?: string;
+  metrics?: UnsafeObject;
+};
+
+// Everything native pushed during one frame
+export type OverlayEventBatch = {
+  events: OverlayEvent[];
+};
+
+export interface Spec extends TurboModule {
+  // Synchronous JSI calls - no thread hop, safe to call during render.
+  // isOverlayRunningSync only knows what the binding has seen; right after
+  // launch ask isOverlayRunning instead
+  isOverlayRunningSync(): boolean;
+  checkOverlayPermissionSync(): boolean;
+
+  checkOverlayPermission(): Promise<boolean>;
+  requestOverlayPermission(): Promise<boolean>;
+  startOverlay(): Promise<boolean>;
+  stopOverlay(): Promise<boolean>;
+  isOverlayRunning(): Promise<boolean>;
+  getNetworkMetrics(): Promise<UnsafeObject | null>;
+  getFrameStats(): Promise<UnsafeObject | null>;
+  getHandoffConversationId(): Promise<string | null>;
+  loadConversation(
+    conversationId: string,
+    beforeSeq: Double,
+    limit: Double
+  ): Promise<OverlayRecord[]>;
+  recordHistoryMessage(
+    conversationId: string,
+    messageId: string,
+    isUser: boolean,
+    text: string,
+    timestamp: string
+  ): void;
+  markHistoryMessageSynced(conversationId: string, messageId: string): void;
+  deleteHistoryConversation(conversationId: string): void;
+  saveChat(id: string, title: string, createdAt: string): void;
+  listChats(messagesPerChat: Double): Promise<StoredChat[]>;
+  exportChats(): Promise<StoredChat[]>;
+  chatSummaries(): Promise<StoredChatSummary[]>;
+  deleteAllChats(): void;
+  replaceChat(
+    id: string,
+    title: string,
+    createdAt: string,
+    messages: MessageInput[]
+  ): Promise<boolean>;
+  importChats(chats: ChatInput[]): Promise<boolean>;
+  searchHistory(
+    query: string,
+    limit: Double,
+    offset: Double
+  ): Promise<OverlayHistoryHit[]>;
+  getStartupTimings(): Promise<UnsafeObject | null>;
+  getOverlayMemory(): Promise<UnsafeObject | null>;
+  dumpLog(): Promise<string>;
+
+  readonly onOverlayEvents: EventEmitter<OverlayEventBatch>;
+}
+
+// Null off Android
+export default TurboModuleRegistry.get<Spec>("OverlayModule");
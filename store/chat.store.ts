@@ -1,6 +1,8 @@
 import { create } from "zustand";
+import { Platform } from "react-native";
 import AsyncStorage from "@react-native-async-storage/async-storage";
 import * as api from "@/app/services/api.service";
+import OverlayModule, { type OverlayEvent } from "@/specs/NativeOverlayModule";
 
 export interface Message {
   id: string;
@@ -14,6 +16,133 @@ export interface Chat {
   title: string;
   messages: Message[];
   createdAt: string;
+  // Set when the chat was opened from the overlay
+  overlayConversationId?: string;
+  // Set when only the newest messages were read from the native store - the
+  // overlay's conversation, or the chat's own offline copy; older messages
+  // are paged in on demand
+  oldestSeq?: number;
+  hasOlderMessages?: boolean;
+}
+
+interface OverlayRecord {
+  seq: number;
+  messageId?: string;
+  text: string;
+  isUser: boolean;
+  timestamp: string;
+}
+
+const OVERLAY_PAGE_SIZE = 50;
+// Messages per chat read back from the device when the server is unreachable
+const LOCAL_PAGE_SIZE = 200;
+// Pre-native offline copy: every chat as one JSON blob
+const LEGACY_CHATS_KEY = "chats";
+
+const toMessages = (records: OverlayRecord[]): Message[] =>
+  records.map((r) => ({
+    id: `overlay_${r.seq}`,
+    text: r.text,
+    isUser: r.isUser,
+    timestamp: r.timestamp,
+  }));
+
+// One-time move of the old whole-blob copy into the native store. The blob
+// is only removed once the import is written, so a failure retries next launch.
+const migrateLegacyChats = async () => {
+  if (Platform.OS !== "android" || !OverlayModule) return;
+  try {
+    const legacy = await AsyncStorage.getItem(LEGACY_CHATS_KEY);
+    if (!legacy) return;
+
+    const chats: Chat[] = JSON.parse(legacy);
+    await OverlayModule.importChats(chats);
+    await AsyncStorage.removeItem(LEGACY_CHATS_KEY);
+  } catch (error) {
+    console.error("❌ Could not move legacy chats:", error);
+  }
+};
+
+// Started once at launch; everything that touches the native store awaits it
+const legacyMigration = migrateLegacyChats();
+
+const toLocalMessages = (records: OverlayRecord[]): Message[] =>
+  records.map((r) => ({
+    // Only messages stored before ids were kept lack one
+    id: r.messageId ?? `local_${r.seq}`,
+    text: r.text,
+    isUser: r.isUser,
+    timestamp: r.timestamp,
+  }));
+
+const readLegacyChats = async (): Promise<Chat[] | null> => {
+  const legacy = await AsyncStorage.getItem(LEGACY_CHATS_KEY);
+  return legacy ? JSON.parse(legacy) : null;
+};
+
+// Offline copy of the chats to show: the newest page of each from the native
+// store on Android, the blob elsewhere
+const loadLocalChats = async (): Promise<Chat[] | null> => {
+  if (Platform.OS !== "android" || !OverlayModule) return readLegacyChats();
+
+  await legacyMigration;
+  const stored = await OverlayModule.listChats(LOCAL_PAGE_SIZE);
+  if (stored.length === 0) return null;
+  return stored.map((c) => ({
+    id: c.id,
+    title: c.title,
+    createdAt: c.createdAt,
+    messages: toLocalMessages(c.messages),
+    oldestSeq: c.messages[0]?.seq,
+    hasOlderMessages: c.hasOlder,
+  }));
+};
+
+// Offline copy of the chats, whole, for uploading it
+const exportLocalChats = async (): Promise<Chat[] | null> => {
+  if (Platform.OS !== "android" || !OverlayModule) return readLegacyChats();
+
+  await legacyMigration;
+  const stored = await OverlayModule.exportChats();
+  if (stored.length === 0) return null;
+  return stored.map((c) => ({
+    id: c.id,
+    title: c.title,
+    createdAt: c.createdAt,
+    messages: toLocalMessages(c.messages),
+  }));
+};
+
+// Server chats whose device copy already matches: same title and the same
+// synced messages, compared by count and newest id
+const unchangedOnDevice = async (chats: Chat[]): Promise<Set<string>> => {
+  if (!OverlayModule) return new Set();
+  const summaries = await OverlayModule.chatSummaries();
+  const stored = new Map(summaries.map((s) => [s.id, s] as const));
+  return new Set(
+    chats
+      .filter((chat) => {
+        const summary = stored.get(chat.id);
+        return (
+          summary !== undefined &&
+          summary.title === chat.title &&
+          summary.createdAt === chat.createdAt &&
+          summary.syncedCount === chat.messages.length &&
+          summary.lastSyncedId === chat.messages[chat.messages.length - 1]?.id
+        );
+      })
+      .map((chat) => chat.id)
+  );
+};
+
+export interface HistoryHit {
+  conversationId: string;
+  seq: number;
+  source: "overlay" | "app";
+  isUser: boolean;
+  text: string;
+  timestamp: string;
+  snippet: string;
 }
 
 interface ChatStore {
@@ -31,6 +160,14 @@ interface ChatStore {
   setActiveChat: (id: string) => Promise<void>;
   addMessage: (chatId: string, message: Omit<Message, "id">) => Promise<void>;
   updateChatTitle: (chatId: string, title: string) => Promise<void>;
+  openOverlayConversation: () => Promise<void>;
+  loadOlderMessages: (chatId: string) => Promise<void>;
+  applyOverlayEvents: (events: OverlayEvent[]) => void;
+  searchHistory: (
+    query: string,
+    limit?: number,
+    offset?: number
+  ) => Promise<HistoryHit[]>;
 
   // 🔥 FIX
   getActiveChat: () => Chat | null;
@@ -58,15 +195,36 @@ export const useChatStore = create<ChatStore>((set, get) => ({
         lastSyncTime: new Date().toISOString(),
         isLoading: false,
       });
+
+      // ✅ Keep the server's copy on the device, messages included; messages
+      // the server does not have yet stay. Chats the device already matches
+      // are not sent again
+      if (Platform.OS === "android" && OverlayModule) {
+        await legacyMigration;
+        const native = OverlayModule;
+        try {
+          const serverChats = data.chats as Chat[];
+          const unchanged = await unchangedOnDevice(serverChats);
+          await Promise.all(
+            serverChats
+              .filter((chat) => !unchanged.has(chat.id))
+              .map((chat) =>
+                native.replaceChat(chat.id, chat.title, chat.createdAt, chat.messages)
+              )
+          );
+        } catch (error) {
+          console.error("❌ Could not store chats on the device:", error);
+        }
+      }
     } catch (error) {
       console.error("❌ Server failed, using local storage");
 
-      const localChats = await AsyncStorage.getItem("chats");
+      const localChats = await loadLocalChats();
       const localActiveChat = await AsyncStorage.getItem("activeChat");
 
       if (localChats) {
         set({
-          chats: JSON.parse(localChats),
+          chats: localChats,
           activeChat: localActiveChat,
           isLoading: false,
         });
@@ -92,15 +250,19 @@ export const useChatStore = create<ChatStore>((set, get) => ({
     const id = `chat_${Date.now()}`;
     const title = "New Chat";
 
+    const createdAt = new Date().toISOString();
+
     try {
       await api.createChat(id, title);
     } catch {}
 
+    if (Platform.OS === "android" && OverlayModule) {
+      await legacyMigration;
+      OverlayModule.saveChat(id, title, createdAt);
+    }
+
     set((state) => ({
-      chats: [
-        ...state.chats,
-        { id, title, messages: [], createdAt: new Date().toISOString() },
-      ],
+      chats: [...state.chats, { id, title, messages: [], createdAt }],
       activeChat: id,
     }));
   },
@@ -114,6 +276,11 @@ export const useChatStore = create<ChatStore>((set, get) => ({
       await api.deleteChat(id);
     } catch {}
 
+    if (Platform.OS === "android" && OverlayModule) {
+      await legacyMigration;
+      OverlayModule.deleteHistoryConversation(id);
+    }
+
     const updated = state.chats.filter((c) => c.id !== id);
     set({
       chats: updated,
@@ -127,6 +294,11 @@ export const useChatStore = create<ChatStore>((set, get) => ({
       await api.clearAllChats();
     } catch {}
 
+    if (Platform.OS === "android" && OverlayModule) {
+      await legacyMigration;
+      OverlayModule.deleteAllChats();
+    }
+
     const chat: Chat = {
       id: `chat_${Date.now()}`,
       title: "New Chat",
@@ -165,10 +337,29 @@ export const useChatStore = create<ChatStore>((set, get) => ({
 
     set({ chats: updated });
 
+    // ✅ Keep a searchable copy on the device, pending until the server has it
+    if (Platform.OS === "android" && OverlayModule) {
+      await legacyMigration;
+      OverlayModule.recordHistoryMessage(
+        chatId,
+        newMessage.id,
+        message.isUser,
+        message.text,
+        message.timestamp
+      );
+    }
+
     try {
-      await api.addMessageToChat(chatId, message);
+      // With its id, so the server's copy matches the device's
+      await api.addMessageToChat(chatId, newMessage);
+      if (Platform.OS === "android" && OverlayModule) {
+        OverlayModule.markHistoryMessageSynced(chatId, newMessage.id);
+      }
     } catch {
-      await AsyncStorage.setItem("chats", JSON.stringify(updated));
+      // Android already appended it to the native store above
+      if (!OverlayModule) {
+        await AsyncStorage.setItem(LEGACY_CHATS_KEY, JSON.stringify(updated));
+      }
     }
   },
 
@@ -185,6 +376,127 @@ export const useChatStore = create<ChatStore>((set, get) => ({
     const updated = [...state.chats];
     updated[index] = { ...updated[index], title };
     set({ chats: updated });
+
+    if (Platform.OS === "android" && OverlayModule) {
+      await legacyMigration;
+      OverlayModule.saveChat(chatId, title, updated[index].createdAt);
+    }
+  },
+
+  // ================= OVERLAY HAND-OFF =================
+  // Only the conversation id comes through the Intent; the latest page is
+  // read from the native store, so opening is the same cost at any length
+  openOverlayConversation: async () => {
+    if (Platform.OS !== "android" || !OverlayModule) return;
+
+    const conversationId: string | null =
+      await OverlayModule.getHandoffConversationId();
+    if (!conversationId) return;
+
+    const existing = get().chats.find(
+      (c) => c.overlayConversationId === conversationId
+    );
+    const records: OverlayRecord[] = await OverlayModule.loadConversation(
+      conversationId,
+      -1,
+      OVERLAY_PAGE_SIZE
+    );
+
+    const chat: Chat = {
+      id: existing?.id ?? `chat_${Date.now()}`,
+      title: existing?.title ?? "Overlay Chat",
+      messages: toMessages(records),
+      createdAt: existing?.createdAt ?? new Date().toISOString(),
+      overlayConversationId: conversationId,
+      oldestSeq: records[0]?.seq,
+      hasOlderMessages: records.length === OVERLAY_PAGE_SIZE,
+    };
+
+    set((state) => ({
+      chats: existing
+        ? state.chats.map((c) => (c.id === chat.id ? chat : c))
+        : [...state.chats, chat],
+      activeChat: chat.id,
+    }));
+  },
+
+  // Next page of a chat read from the native store: the overlay's
+  // conversation, or an in-app chat shown from the offline copy
+  loadOlderMessages: async (chatId) => {
+    const chat = get().chats.find((c) => c.id === chatId);
+    if (
+      !OverlayModule ||
+      !chat?.hasOlderMessages ||
+      chat.oldestSeq === undefined
+    ) {
+      return;
+    }
+
+    const fromOverlay = chat.overlayConversationId !== undefined;
+    const pageSize = fromOverlay ? OVERLAY_PAGE_SIZE : LOCAL_PAGE_SIZE;
+    const records: OverlayRecord[] = await OverlayModule.loadConversation(
+      chat.overlayConversationId ?? chat.id,
+      chat.oldestSeq,
+      pageSize
+    );
+    const older = fromOverlay ? toMessages(records) : toLocalMessages(records);
+
+    set((state) => ({
+      chats: state.chats.map((c) =>
+        c.id === chatId
+          ? {
+              ...c,
+              messages: [...older, ...c.messages],
+              oldestSeq: records[0]?.seq ?? c.oldestSeq,
+              hasOlderMessages: records.length === pageSize,
+            }
+          : c
+      ),
+    }));
+  },
+
+  // Messages the overlay settled while its conversation is open in the app
+  applyOverlayEvents: (events) => {
+    const messages = events.filter(
+      (e) => e.type === "message" && e.conversationId && e.seq !== undefined
+    );
+    if (messages.length === 0) return;
+
+    set((state) => ({
+      chats: state.chats.map((c) => {
+        const own = messages.filter(
+          (e) => e.conversationId === c.overlayConversationId
+        );
+        if (own.length === 0) return c;
+
+        const updated = [...c.messages];
+        for (const e of own) {
+          const message: Message = {
+            id: `overlay_${e.seq}`,
+            text: e.text ?? "",
+            isUser: !!e.isUser,
+            timestamp: e.timestamp ?? "",
+          };
+          const index = updated.findIndex((m) => m.id === message.id);
+          if (index === -1) {
+            updated.push(message);
+          } else {
+            updated[index] = { ...updated[index], text: message.text };
+          }
+        }
+        return { ...c, messages: updated };
+      }),
+    }));
+  },
+
+  // ================= HISTORY SEARCH =================
+  searchHistory: async (query, limit = 20, offset = 0) => {
+    if (Platform.OS !== "android" || !OverlayModule || !query.trim()) {
+      return [];
+    }
+    return OverlayModule.searchHistory(query, limit, offset) as Promise<
+      HistoryHit[]
+    >;
   },
 
   // 🔥 FIXED FUNCTION
@@ -202,11 +514,12 @@ export const useChatStore = create<ChatStore>((set, get) => ({
   syncLocalToServer: async () => {
     set({ isSyncing: true });
     try {
-      const chats = await AsyncStorage.getItem("chats");
+      // The server clears everything first, so this must be the whole copy
+      const chats = await exportLocalChats();
       const active = await AsyncStorage.getItem("activeChat");
 
       if (chats) {
-        await api.syncLocalChatsToServer(JSON.parse(chats), active);
+        await api.syncLocalChatsToServer(chats, active);
         await get().loadChatsFromServer();
       }
     } finally {
@@ -0,0 +1,57 @@
+// utils/overlayBenchmark.ts
+import { NativeModules } from "react-native";
+import OverlayModule from "@/specs/NativeOverlayModule";
+
+export interface RoundTripStats {
+  calls: number;
+  meanUs: number;
+  p50Us: number;
+  p95Us: number;
+}
+
+const summarize = (samples: number[]): RoundTripStats => {
+  const sorted = [...samples].sort((a, b) => a - b);
+  const at = (p: number) =>
+    sorted[Math.min(sorted.length - 1, Math.floor((p / 100) * sorted.length))];
+  const mean = sorted.reduce((sum, s) => sum + s, 0) / sorted.length;
+  return {
+    calls: sorted.length,
+    meanUs: Math.round(mean * 1000),
+    p50Us: Math.round(at(50) * 1000),
+    p95Us: Math.round(at(95) * 1000),
+  };
+};
+
+// Legacy copy of isOverlayRunning, only in builds made with -PoverlayBridgeProbe=true
+const BridgeProbe: { isOverlayRunning(): Promise<boolean> } | undefined =
+  NativeModules.OverlayBridgeProbe;
+
+/**
+ * Round-trip time of isOverlayRunning through the old module path - a
+ * @ReactMethod promise on a ReactContextBaseJavaModule, answered on the
+ * native modules thread - and through the TurboModule's synchronous JSI
+ * getter. Both do the same volatile read natively, so the difference is the
+ * call path alone. Needs a release build made with -PoverlayBridgeProbe=true;
+ * returns null without it. With the new architecture on, the legacy module
+ * goes through the interop layer, which keeps its reflective dispatch and
+ * thread hop.
+ */
+export const benchmarkOverlayModule = async (calls = 1000) => {
+  if (!OverlayModule || !BridgeProbe) return null;
+
+  const legacySamples: number[] = [];
+  for (let i = 0; i < calls; i++) {
+    const start = performance.now();
+    await BridgeProbe.isOverlayRunning();
+    legacySamples.push(performance.now() - start);
+  }
+
+  const syncSamples: number[] = [];
+  for (let i = 0; i < calls; i++) {
+    const start = performance.now();
+    OverlayModule.isOverlayRunningSync();
+    syncSamples.push(performance.now() - start);
+  }
+
+  return { legacy: summarize(legacySamples), sync: summarize(syncSamples) };
+};